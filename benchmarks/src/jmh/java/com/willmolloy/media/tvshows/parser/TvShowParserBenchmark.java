@@ -0,0 +1,92 @@
+package com.willmolloy.media.tvshows.parser;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks {@link TvShowParser#parse(Path)} over a synthetic show directory.
+ *
+ * <p>The tree is created once per fork, so after the first iteration it's (mostly) served from the
+ * OS file cache. I.e. this measures the parser rather than the disk.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TvShowParserBenchmark {
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int episodes;
+
+  @Param({"WIDE", "DEEP"})
+  public Layout layout;
+
+  private Path tempDir;
+  private Path showDir;
+  private TvShowParser tvShowParser;
+
+  /**
+   * Creates the show directory.
+   *
+   * @throws IOException if a file can't be created
+   */
+  @Setup
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("tv-show-parser-benchmark");
+    showDir = Files.createDirectory(tempDir.resolve("Show (2000)"));
+    int seasons = layout.seasons(episodes);
+    for (int season = 1; season <= seasons; season++) {
+      Path seasonDir = Files.createDirectory(showDir.resolve("Season %02d".formatted(season)));
+      // spread as evenly as possible, the first seasons take the remainder
+      int seasonEpisodes = episodes / seasons + (season <= episodes % seasons ? 1 : 0);
+      for (int episode = 1; episode <= seasonEpisodes; episode++) {
+        Files.createFile(seasonDir.resolve("Episode %06d.mkv".formatted(episode)));
+      }
+    }
+    tvShowParser = new TvShowParser();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(tempDir, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public TvShow parse() {
+    return tvShowParser.parse(showDir);
+  }
+
+  /** How the episodes are laid out in the show directory. */
+  public enum Layout {
+    /** Every episode in a single season directory. */
+    WIDE {
+      @Override
+      int seasons(int episodes) {
+        return 1;
+      }
+    },
+    /** Episodes spread over as many season directories as can be named (i.e. 99). */
+    DEEP {
+      @Override
+      int seasons(int episodes) {
+        return Math.min(episodes, 99);
+      }
+    };
+
+    abstract int seasons(int episodes);
+  }
+}
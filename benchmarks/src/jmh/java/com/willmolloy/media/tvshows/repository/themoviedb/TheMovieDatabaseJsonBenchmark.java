@@ -0,0 +1,88 @@
+package com.willmolloy.media.tvshows.repository.themoviedb;
+
+import com.willmolloy.media.util.JsonHelper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link JsonHelper#deserialise} of The Movie Database responses, into the types used by
+ * {@link TheMovieDatabase}.
+ *
+ * <p>The response types aren't visible outside this package, so are returned as {@link Object}.
+ *
+ * <p>The payloads (under {@code resources/themoviedb}) are shaped like the real responses,
+ * including the fields that aren't used (e.g. crew and guest stars), since skipping those is most
+ * of the work.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TheMovieDatabaseJsonBenchmark {
+
+  private JsonHelper jsonHelper;
+  private String searchTv;
+  private String tvSeasonDetails;
+  private byte[] tvSeasonDetailsBytes;
+
+  /** Loads the payloads. */
+  @Setup
+  public void setUp() {
+    jsonHelper = new JsonHelper();
+    searchTv = new String(read("search-tv.json"), StandardCharsets.UTF_8);
+    tvSeasonDetailsBytes = read("tv-season-details.json");
+    tvSeasonDetails = new String(tvSeasonDetailsBytes, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Object searchTv() {
+    return jsonHelper.deserialise(searchTv, TheMovieDatabase.TvShowSearchResponse.class);
+  }
+
+  /**
+   * Season details, the bulk of what's fetched.
+   *
+   * @return deserialised response
+   */
+  @Benchmark
+  public Object tvSeasonDetails() {
+    return jsonHelper.deserialise(
+        tvSeasonDetails, TheMovieDatabase.TvSeasonDetailsResponse.class);
+  }
+
+  /**
+   * As {@link #tvSeasonDetails()}, but from a stream (as {@link
+   * com.willmolloy.media.util.HttpHelper} does).
+   *
+   * @return deserialised response
+   */
+  @Benchmark
+  public Object tvSeasonDetailsStream() {
+    return jsonHelper.deserialise(
+        new ByteArrayInputStream(tvSeasonDetailsBytes),
+        TheMovieDatabase.TvSeasonDetailsResponse.class);
+  }
+
+  private byte[] read(String name) {
+    try (InputStream in = getClass().getResourceAsStream("/themoviedb/" + name)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing resource: " + name);
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.willmolloy.media.util;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks {@link FileFingerprinter#fingerprint} over a directory of (sparse) media sized files.
+ *
+ * <p>Like {@link com.willmolloy.media.tvshows.parser.TvShowParserBenchmark}, the files are created
+ * once per fork and are then (mostly) served from the OS file cache. I.e. this measures the reads
+ * and hashing rather than disk seeks.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileFingerprinterBenchmark {
+
+  @Param({"1000", "10000"})
+  public int files;
+
+  @Param({"1", "4096"})
+  public int fileSizeMb;
+
+  private Path tempDir;
+  private List<FileEntry> fileEntries;
+  private FileFingerprinter cachedFingerprinter;
+
+  /**
+   * Creates the files.
+   *
+   * @throws IOException if a file can't be created
+   */
+  @Setup
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("file-fingerprinter-benchmark");
+    fileEntries = new ArrayList<>();
+    for (int i = 0; i < files; i++) {
+      Path file = tempDir.resolve("Episode %06d.mkv".formatted(i));
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+        // sparse, so creating them is cheap, but distinct
+        randomAccessFile.setLength(fileSizeMb * 1024L * 1024);
+        randomAccessFile.writeInt(i);
+      }
+      fileEntries.add(FileEntry.of(file));
+    }
+    cachedFingerprinter = FileFingerprinter.inMemory();
+    fileEntries.forEach(cachedFingerprinter::fingerprint);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(tempDir, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  /**
+   * Every file read and hashed.
+   *
+   * @return last fingerprint
+   */
+  @Benchmark
+  public String uncached() {
+    FileFingerprinter fileFingerprinter = FileFingerprinter.inMemory();
+    String fingerprint = null;
+    for (FileEntry fileEntry : fileEntries) {
+      fingerprint = fileFingerprinter.fingerprint(fileEntry);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Every file already fingerprinted, the common case after the first run.
+   *
+   * @return last fingerprint
+   */
+  @Benchmark
+  public String cached() {
+    String fingerprint = null;
+    for (FileEntry fileEntry : fileEntries) {
+      fingerprint = cachedFingerprinter.fingerprint(fileEntry);
+    }
+    return fingerprint;
+  }
+}
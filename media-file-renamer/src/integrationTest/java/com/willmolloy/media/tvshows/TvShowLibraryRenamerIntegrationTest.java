@@ -0,0 +1,109 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth8.assertThat;
+
+import com.google.common.base.Strings;
+import com.google.common.io.Resources;
+import com.google.common.truth.StreamSubject;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TvShowLibraryRenamerIntegrationTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryRenamerIntegrationTest {
+
+  private Path testDataDirectory;
+  private Path fakeMkvFile;
+
+  @BeforeEach
+  void setUp() throws URISyntaxException, IOException {
+    testDataDirectory = Path.of(this.getClass().getSimpleName());
+    fakeMkvFile = Path.of(Resources.getResource("fake.mkv").toURI());
+    tearDown();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(testDataDirectory.toFile());
+  }
+
+  @Test
+  void everyShowInLibrary() throws IOException {
+    // Given
+    Path breakingBad = testDataDirectory.resolve("Breaking Bad (2008)");
+    Path cosmos = testDataDirectory.resolve("Cosmos (2014)");
+    Files.createDirectories(breakingBad);
+    Files.createDirectories(cosmos);
+
+    Path breakingBadSeason1 = fakeSeason(breakingBad, 1, 3);
+    Path cosmosSeason1 = fakeSeason(cosmos, 1, 2);
+
+    // When
+    runApp(testDataDirectory);
+
+    // Then
+    assertThatTestDataDirectory()
+        .containsExactly(
+            breakingBadSeason1.resolve("Breaking Bad S01E01 Pilot.mkv"),
+            breakingBadSeason1.resolve("Breaking Bad S01E02 Cat's in the Bag....mkv"),
+            breakingBadSeason1.resolve("Breaking Bad S01E03 ...And the Bag's in the River.mkv"),
+            cosmosSeason1.resolve("Cosmos S01E01 Standing Up in the Milky Way.mkv"),
+            cosmosSeason1.resolve("Cosmos S01E02 Some of the Things that Molecules Do.mkv"));
+  }
+
+  @Test
+  void failedShowDoesNotStopOtherShows() throws IOException {
+    // Given
+    Path breakingBad = testDataDirectory.resolve("Breaking Bad (2008)");
+    Path broken = testDataDirectory.resolve("Breaking Bad (2009)");
+    Files.createDirectories(breakingBad);
+    Files.createDirectories(broken);
+
+    Path breakingBadSeason1 = fakeSeason(breakingBad, 1, 2);
+    Path brokenSeason = broken.resolve("Not A Season");
+    Files.createDirectories(brokenSeason);
+    Files.copy(fakeMkvFile, brokenSeason.resolve("Ep 01.mkv"));
+
+    // When
+    runApp(testDataDirectory);
+
+    // Then
+    assertThatTestDataDirectory()
+        .containsExactly(
+            breakingBadSeason1.resolve("Breaking Bad S01E01 Pilot.mkv"),
+            breakingBadSeason1.resolve("Breaking Bad S01E02 Cat's in the Bag....mkv"),
+            brokenSeason.resolve("Ep 01.mkv"));
+  }
+
+  private Path fakeSeason(Path showRoot, int seasonNum, int numEpisodes) throws IOException {
+    Path season = showRoot.resolve("Season %s".formatted(padLength2(seasonNum)));
+    Files.createDirectories(season);
+
+    for (int episodeNum = 1; episodeNum <= numEpisodes; episodeNum++) {
+      Files.copy(fakeMkvFile, season.resolve("Ep %s.mkv".formatted(padLength2(episodeNum))));
+    }
+
+    return season;
+  }
+
+  private String padLength2(int i) {
+    return Strings.padStart(String.valueOf(i), 2, '0');
+  }
+
+  private StreamSubject assertThatTestDataDirectory() throws IOException {
+    return assertThat(Files.walk(testDataDirectory).filter(Files::isRegularFile));
+  }
+
+  private void runApp(Path libraryDir) {
+    TvShowLibraryRenamer.main(libraryDir.toString(), "false", "2");
+  }
+}
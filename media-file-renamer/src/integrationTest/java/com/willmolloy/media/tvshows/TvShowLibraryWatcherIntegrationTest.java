@@ -0,0 +1,160 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.rename.RenameExecutor;
+import com.willmolloy.media.rename.RenameJournal;
+import com.willmolloy.media.rename.RenamePlanner;
+import com.willmolloy.media.tvshows.enricher.TvShowEnricher;
+import com.willmolloy.media.tvshows.parser.EpisodeIndex;
+import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TvShowLibraryWatcherIntegrationTest.
+ *
+ * <p>Uses the real {@link java.nio.file.WatchService} and waits on the wall clock (its events are
+ * delivered asynchronously, e.g. polled every few seconds on macOS), so it's an integration test.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryWatcherIntegrationTest {
+
+  private static final Duration DEBOUNCE = Duration.ofMillis(200);
+
+  @TempDir Path tempDir;
+
+  private final List<Integer> lookedUpSeasons = new CopyOnWriteArrayList<>();
+  private Path libraryDir;
+  private Path season1;
+  private Path season2;
+  private TvShowLibraryWatcher watcher;
+  private CompletableFuture<Void> running;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    libraryDir = Files.createDirectories(tempDir.resolve("library"));
+    Path showDir = Files.createDirectories(libraryDir.resolve("Show (2000)"));
+    season1 = Files.createDirectories(showDir.resolve("Season 01"));
+    season2 = Files.createDirectories(showDir.resolve("Season 02"));
+    Files.writeString(season1.resolve("Ep 01.mkv"), "1");
+    Files.writeString(season2.resolve("Ep 01.mkv"), "1");
+
+    SeasonFingerprints seasonFingerprints =
+        SeasonFingerprints.load(tempDir.resolve("season-fingerprints.json"), new JsonHelper());
+    TvShowRenamer tvShowRenamer =
+        new TvShowRenamer(
+            new TvShowParser(),
+            new TvShowEnricher(
+                (showName, showYear, season) -> {
+                  lookedUpSeasons.add(season);
+                  return Map.of(1, "One", 2, "Two");
+                }),
+            seasonFingerprints,
+            EpisodeIndex.disabled(),
+            new RenamePlanner(),
+            new RenameExecutor(
+                new RenameJournal(tempDir.resolve("journals"), new JsonHelper())),
+            EpisodeFileNameTemplate.compile(EpisodeFileNameTemplate.DEFAULT));
+    watcher =
+        new TvShowLibraryWatcher(
+            new TvShowParser(), tvShowRenamer, seasonFingerprints, libraryDir, DEBOUNCE);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    watcher.close();
+    if (running != null) {
+      running.join();
+    }
+  }
+
+  @Test
+  void renamesEverySeasonOnStartUp() throws InterruptedException {
+    // When
+    start();
+
+    // Then
+    awaitFiles(season1, "Show S01E01 One.mkv");
+    awaitFiles(season2, "Show S02E01 One.mkv");
+  }
+
+  @Test
+  void renamesOnlyChangedSeason() throws IOException, InterruptedException {
+    // Given
+    start();
+    awaitFiles(season2, "Show S02E01 One.mkv");
+    awaitFiles(season1, "Show S01E01 One.mkv");
+    Thread.sleep(DEBOUNCE.multipliedBy(3).toMillis());
+    lookedUpSeasons.clear();
+
+    // When
+    Files.writeString(season2.resolve("Show S02E02.mkv"), "2");
+
+    // Then
+    awaitFiles(season2, "Show S02E01 One.mkv", "Show S02E02 Two.mkv");
+    Thread.sleep(DEBOUNCE.multipliedBy(3).toMillis());
+    assertThat(lookedUpSeasons).containsExactly(2);
+  }
+
+  @Test
+  void registersNewShows() throws IOException, InterruptedException {
+    // Given
+    start();
+    awaitFiles(season1, "Show S01E01 One.mkv");
+
+    // When
+    Path newSeason = Files.createDirectories(libraryDir.resolve("New Show (2010)/Season 01"));
+    Files.writeString(newSeason.resolve("Ep 01.mkv"), "1");
+
+    // Then
+    awaitFiles(newSeason, "New Show S01E01 One.mkv");
+  }
+
+  private void start() {
+    running =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                watcher.run(false);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+  }
+
+  private void awaitFiles(Path dir, String... fileNames) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    List<String> actual = List.of();
+    while (System.nanoTime() < deadline) {
+      actual = list(dir);
+      if (actual.equals(List.of(fileNames))) {
+        return;
+      }
+      Thread.sleep(50);
+    }
+    assertThat(actual).isEqualTo(List.of(fileNames));
+  }
+
+  private List<String> list(Path dir) {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package com.willmolloy.media.movies;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.willmolloy.media.movies.parser.Movie;
+import com.willmolloy.media.movies.parser.MovieParser;
+import com.willmolloy.media.movies.repository.MovieDetails;
+import com.willmolloy.media.movies.repository.MovieRepository;
+import com.willmolloy.media.movies.repository.themoviedb.TheMovieDatabase;
+import com.willmolloy.media.rename.Move;
+import com.willmolloy.media.rename.RenameExecutor;
+import com.willmolloy.media.rename.RenameJournal;
+import com.willmolloy.media.rename.RenamePlan;
+import com.willmolloy.media.rename.RenamePlanner;
+import com.willmolloy.media.util.Env;
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileNames;
+import com.willmolloy.media.util.HttpHelper;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.PersistentCache;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Starting point for renaming every movie in a library, i.e. {@code <library>/Title (Year)/*.mkv}
+ * to {@code Title (Year).mkv} (or {@code Title (Year) - pt1.mkv} etc. if split into parts).
+ *
+ * <p>A movie with several video files is only renamed if each file is marked with its own part
+ * number (e.g. {@code cd1}, {@code pt1}, {@code part1}). Otherwise they're more likely a sample
+ * clip or another copy than parts, so the directory is skipped.
+ *
+ * <p>Built to do a whole library (tens of thousands of movies) in one run. Movies are parsed and
+ * looked up concurrently, sharing one {@link MovieRepository} (so one HTTP client and cache). Their
+ * renames are then planned and carried out together, as one journal, rather than one per movie. A
+ * failure in one movie is reported and the remaining movies carry on.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class MovieRenamer {
+
+  private static final Logger log = LogManager.getLogger();
+
+  // e.g. 'movie.cd1', 'Movie - pt 2', 'movie_part3', the last one counts ('Part 2 cd1' is part 1)
+  private static final Pattern PART_PATTERN =
+      Pattern.compile(
+          "(?i)(?:^|[ ._-])(?:cd|pt|part|disc|disk)[ ._-]?(\\d{1,2})(?=[ ._-]|$)");
+
+  private final MovieParser movieParser;
+  private final MovieRepository movieRepository;
+  private final RenamePlanner renamePlanner;
+  private final RenameExecutor renameExecutor;
+
+  MovieRenamer(
+      MovieParser movieParser,
+      MovieRepository movieRepository,
+      RenamePlanner renamePlanner,
+      RenameExecutor renameExecutor) {
+    this.movieParser = checkNotNull(movieParser);
+    this.movieRepository = checkNotNull(movieRepository);
+    this.renamePlanner = checkNotNull(renamePlanner);
+    this.renameExecutor = checkNotNull(renameExecutor);
+  }
+
+  /**
+   * Renames every movie under a library directory.
+   *
+   * @param libraryDir path to library directory
+   * @param dryRun if true, only log the renames
+   * @param parallelism max number of movies looked up at once
+   * @return results for each movie, in movie directory order
+   * @throws InterruptedException if interrupted while waiting for the movies to finish
+   * @throws IOException if a rename fails
+   */
+  List<MovieResult> run(Path libraryDir, boolean dryRun, int parallelism)
+      throws InterruptedException, IOException {
+    checkArgument(parallelism > 0, "parallelism (%s) <= 0", parallelism);
+    List<Path> movieDirs = movieParser.findMovieDirs(libraryDir);
+
+    List<MovieResult> results = new ArrayList<>(movieDirs.size());
+    List<Move> moves = new ArrayList<>();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, new ThreadFactoryBuilder().setNameFormat("movie-%d").build());
+    try {
+      List<Future<List<Move>>> futures = new ArrayList<>(movieDirs.size());
+      for (Path movieDir : movieDirs) {
+        futures.add(executor.submit(() -> moves(movieDir)));
+      }
+
+      for (int i = 0; i < movieDirs.size(); i++) {
+        Path movieDir = movieDirs.get(i);
+        try {
+          List<Move> movieMoves = futures.get(i).get();
+          moves.addAll(movieMoves);
+          results.add(MovieResult.success(movieDir, movieMoves.size()));
+        } catch (ExecutionException e) {
+          log.error("Error processing movie: %s".formatted(movieDir), e.getCause());
+          results.add(MovieResult.failure(movieDir, e.getCause()));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // each movie's moves stay within its own directory, so can't collide with another movie's
+    RenamePlan plan = renamePlanner.plan(moves);
+    for (Move move : plan.moves()) {
+      log.info("Renaming: {} -> {}", move.source(), move.target());
+    }
+    if (!dryRun && !plan.isEmpty()) {
+      renameExecutor.execute(libraryDir.getFileName().toString(), plan);
+    }
+    logSummary(results, dryRun);
+    return results;
+  }
+
+  /**
+   * Plans the renames of a single movie.
+   *
+   * @param movieDir path to movie directory
+   * @return moves, excluding files already named correctly
+   * @throws IllegalArgumentException if the moves collide
+   */
+  private List<Move> moves(Path movieDir) {
+    Movie movie = movieParser.parse(movieDir);
+    MovieDetails details = movieRepository.getMovie(movie.title(), movie.year());
+
+    Map<FileEntry, OptionalInt> partNums = new LinkedHashMap<>();
+    if (movie.files().size() == 1) {
+      partNums.put(movie.files().get(0), OptionalInt.empty());
+    } else {
+      Set<Integer> seen = new HashSet<>();
+      for (FileEntry file : movie.files()) {
+        OptionalInt partNum = partNum(file.fileName());
+        if (partNum.isEmpty() || !seen.add(partNum.getAsInt())) {
+          log.warn(
+              "Skipping {}, video files aren't each marked with their own part (e.g. cd1): {}",
+              movieDir,
+              movie.files().stream().map(FileEntry::fileName).toList());
+          return List.of();
+        }
+        partNums.put(file, partNum);
+      }
+    }
+
+    List<Move> moves = new ArrayList<>();
+    partNums.forEach(
+        (file, partNum) -> {
+          String newFileName = fileName(details, partNum, file.fileName());
+          if (!newFileName.equals(file.fileName())) {
+            moves.add(new Move(file.path(), file.path().resolveSibling(newFileName)));
+          }
+        });
+    // planned now, so a collision fails this movie only rather than the whole library
+    renamePlanner.plan(moves);
+    return moves;
+  }
+
+  /**
+   * Extracts the part number a file is marked with.
+   *
+   * @param fileName file name
+   * @return part number, or empty if not marked
+   */
+  static OptionalInt partNum(String fileName) {
+    int extension = fileName.lastIndexOf('.');
+    String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+    Matcher matcher = PART_PATTERN.matcher(baseName);
+    OptionalInt partNum = OptionalInt.empty();
+    while (matcher.find()) {
+      partNum = OptionalInt.of(Integer.parseInt(matcher.group(1)));
+    }
+    return partNum;
+  }
+
+  /**
+   * Builds the file name of a movie file.
+   *
+   * @param movie movie details
+   * @param partNum part number, or empty if the movie is a single file
+   * @param currentFileName current file name (for the extension)
+   * @return file name
+   */
+  static String fileName(MovieDetails movie, OptionalInt partNum, String currentFileName) {
+    StringBuilder fileName = new StringBuilder();
+    FileNames.appendWithoutIllegalPathChars(fileName, movie.title());
+    fileName.append(" (").append(movie.year()).append(')');
+    partNum.ifPresent(part -> fileName.append(" - pt").append(part));
+    return fileName.append(currentFileName.substring(currentFileName.lastIndexOf('.'))).toString();
+  }
+
+  private void logSummary(List<MovieResult> results, boolean dryRun) {
+    List<MovieResult> failures = results.stream().filter(MovieResult::failed).toList();
+    int renameCount = results.stream().mapToInt(MovieResult::renameCount).sum();
+
+    log.info(
+        "Processed {} movie(s): {} succeeded, {} failed. Renamed {} file(s)",
+        results.size(),
+        results.size() - failures.size(),
+        failures.size(),
+        renameCount);
+    for (MovieResult failure : failures) {
+      log.warn("Failed: {} - {}", failure.movieDir(), failure.error());
+    }
+
+    if (dryRun) {
+      log.info("Dry run. Please check the above output");
+    }
+  }
+
+  /**
+   * Result of processing a single movie.
+   *
+   * @param movieDir path to movie directory
+   * @param renameCount number of files renamed (0 if failed)
+   * @param error error message if failed, otherwise null
+   */
+  record MovieResult(Path movieDir, int renameCount, String error) {
+    static MovieResult success(Path movieDir, int renameCount) {
+      return new MovieResult(movieDir, renameCount, null);
+    }
+
+    static MovieResult failure(Path movieDir, Throwable error) {
+      return new MovieResult(movieDir, 0, String.valueOf(error));
+    }
+
+    boolean failed() {
+      return error != null;
+    }
+  }
+
+  public static void main(String... args) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      checkArgument(args.length == 3, "Expected 3 args");
+      Path libraryDir = Path.of(args[0]);
+      boolean dryRun = Boolean.parseBoolean(args[1]);
+      int parallelism = Integer.parseInt(args[2]);
+
+      String movieDbApiKey = System.getenv("THE_MOVIE_DB_API_KEY");
+      checkNotNull(movieDbApiKey, "THE_MOVIE_DB_API_KEY not set");
+      JsonHelper jsonHelper = new JsonHelper();
+      // a cache file of its own, so movies and TV shows can be renamed at the same time
+      try (PersistentCache persistentCache =
+          new PersistentCache(Env.cacheDir().resolve("themoviedb-movies.cache"), jsonHelper)) {
+        // one parser, repository and http client shared by every movie
+        MovieRenamer app =
+            new MovieRenamer(
+                new MovieParser(),
+                new TheMovieDatabase(
+                    movieDbApiKey,
+                    new HttpHelper(jsonHelper, Env.httpSettings()),
+                    persistentCache),
+                new RenamePlanner(),
+                new RenameExecutor(
+                    new RenameJournal(
+                        Env.cacheDir().resolve("journals"), jsonHelper, Env.journalRetention()),
+                    Env.intEnv("MEDIA_FILE_RENAMER_RENAME_CONCURRENCY", 4),
+                    Env.concurrencyByStoreName(
+                        System.getenv("MEDIA_FILE_RENAMER_RENAME_CONCURRENCY_BY_STORE"))));
+
+        log.info(
+            "Running - libraryDir={}, dryRun={}, parallelism={}", libraryDir, dryRun, parallelism);
+        app.run(libraryDir, dryRun, parallelism);
+        app.renameExecutor.logStats();
+      }
+    } catch (Throwable e) {
+      log.fatal("Fatal error", e);
+    } finally {
+      log.info("Elapsed: {}", stopwatch.elapsed());
+      Env.exportMetrics();
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.willmolloy.media.movies.parser;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.willmolloy.media.util.FileEntry;
+import java.util.List;
+import org.apache.logging.log4j.util.Strings;
+
+/**
+ * Parsed movie.
+ *
+ * @param title title
+ * @param year year (release date)
+ * @param directory movie directory
+ * @param files movie files (video), sorted, more than one if the movie is split into parts
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record Movie(String title, int year, FileEntry directory, List<FileEntry> files) {
+  public Movie {
+    checkArgument(Strings.isNotBlank(title), "blank title");
+    checkArgument(year > 0, "year (%s) <= 0", year);
+    // checked against the attributes read by the parser, rather than hitting the disk again
+    checkArgument(directory.isDirectory(), "directory (%s) is not a directory", directory);
+    checkArgument(!files.isEmpty(), "empty files list");
+    files.forEach(
+        file -> checkArgument(file.isRegularFile(), "file (%s) is not a regular file", file));
+  }
+}
@@ -0,0 +1,94 @@
+package com.willmolloy.media.movies.parser;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileNames;
+import com.willmolloy.media.util.Metrics;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Responsible for parsing movie directory into Java object.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class MovieParser {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final Pattern MOVIE_DIR_PATTERN = FileNames.NAME_AND_YEAR_PATTERN;
+  private static final Metrics.Timer PARSE_TIMER =
+      Metrics.timer("movie_parse_seconds", "Time parsing a movie directory");
+
+  /**
+   * Parse a {@link Movie}.
+   *
+   * @param movieDir path to movie directory
+   * @return {@link Movie}
+   */
+  public Movie parse(Path movieDir) {
+    return PARSE_TIMER.time(() -> parseMovie(movieDir));
+  }
+
+  private Movie parseMovie(Path movieDir) {
+    log.debug("Parsing directory: {}", movieDir);
+    FileEntry directory = FileEntry.of(movieDir);
+    checkArgument(directory.isDirectory(), "%s is not a directory", movieDir);
+    String movieDirName = directory.fileName();
+    Matcher movieDirMatcher = MOVIE_DIR_PATTERN.matcher(movieDirName);
+    checkArgument(
+        movieDirMatcher.matches(),
+        "Directory %s doesn't match: %s",
+        movieDirName,
+        MOVIE_DIR_PATTERN);
+
+    // extras etc. in sub directories are left alone
+    List<FileEntry> files =
+        FileEntry.list(movieDir).stream()
+            .filter(FileEntry::isRegularFile)
+            .filter(file -> FileNames.isVideoFile(file.fileName()))
+            .sorted(Comparator.comparing(FileEntry::path))
+            .toList();
+    Movie movie =
+        new Movie(
+            movieDirMatcher.group(1), Integer.parseInt(movieDirMatcher.group(2)), directory, files);
+    log.debug("Parsed movie: {}", movie);
+    return movie;
+  }
+
+  /**
+   * Find the movie directories directly under a library directory.
+   *
+   * <p>Directories not named like a movie (see {@link #MOVIE_DIR_PATTERN}) are skipped.
+   *
+   * @param libraryDir path to library directory
+   * @return paths to movie directories, sorted
+   */
+  public List<Path> findMovieDirs(Path libraryDir) {
+    log.info("Searching library directory: {}", libraryDir);
+    checkArgument(Files.isDirectory(libraryDir), "%s is not a directory", libraryDir);
+    List<Path> movieDirs =
+        FileEntry.list(libraryDir).stream()
+            .filter(FileEntry::isDirectory)
+            .map(FileEntry::path)
+            .filter(
+                dir -> {
+                  if (MOVIE_DIR_PATTERN.matcher(dir.getFileName().toString()).matches()) {
+                    return true;
+                  }
+                  log.warn("Skipping directory {}, doesn't match: {}", dir, MOVIE_DIR_PATTERN);
+                  return false;
+                })
+            .sorted()
+            .toList();
+    log.info("Detected {} movie(s)", movieDirs.size());
+    return movieDirs;
+  }
+}
@@ -0,0 +1,21 @@
+package com.willmolloy.media.movies.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.apache.logging.log4j.util.Strings;
+
+/**
+ * Movie details, as the repository knows it.
+ *
+ * @param id repository id
+ * @param title title
+ * @param year year (release date)
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record MovieDetails(int id, String title, int year) {
+  public MovieDetails {
+    checkArgument(id > 0, "id (%s) <= 0", id);
+    checkArgument(Strings.isNotBlank(title), "blank title");
+    checkArgument(year > 0, "year (%s) <= 0", year);
+  }
+}
@@ -0,0 +1,18 @@
+package com.willmolloy.media.movies.repository;
+
+/**
+ * Abstraction to get movie data.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public interface MovieRepository {
+
+  /**
+   * Get a movie's details.
+   *
+   * @param title title
+   * @param year year (release date)
+   * @return {@link MovieDetails}
+   */
+  MovieDetails getMovie(String title, int year);
+}
@@ -0,0 +1,141 @@
+package com.willmolloy.media.movies.repository.themoviedb;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Verify.verify;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.willmolloy.media.movies.repository.MovieDetails;
+import com.willmolloy.media.movies.repository.MovieRepository;
+import com.willmolloy.media.util.HttpHelper;
+import com.willmolloy.media.util.Metrics;
+import com.willmolloy.media.util.PersistentCache;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Strings;
+
+/**
+ * Client for calling The Movie Database API (for movie info).
+ *
+ * <p>Built to be shared by every movie in a run: lookups go through the given (shared) {@link
+ * HttpHelper}, so are pooled and rate limited together, and are cached on disk so a rerun over the
+ * same library sends no requests.
+ *
+ * <p>Thread safe.
+ *
+ * @see <a href=https://developers.themoviedb.org>https://developers.themoviedb.org</a>
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class TheMovieDatabase implements MovieRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String DEFAULT_BASE_URL = "https://api.themoviedb.org/3";
+
+  private static final Duration MOVIE_TTL = Duration.ofDays(30);
+  private static final Metrics.Counter CACHED_COUNTER =
+      Metrics.counter("movie_lookups_total", "Movie lookups, by result", "result", "cached");
+  private static final Metrics.Counter SEARCHED_COUNTER =
+      Metrics.counter("movie_lookups_total", "Movie lookups, by result", "result", "searched");
+
+  private final String baseUrl;
+  private final String apiKey;
+  private final HttpHelper httpHelper;
+  private final PersistentCache persistentCache;
+
+  public TheMovieDatabase(String apiKey, HttpHelper httpHelper, PersistentCache persistentCache) {
+    this(DEFAULT_BASE_URL, apiKey, httpHelper, persistentCache);
+  }
+
+  TheMovieDatabase(
+      String baseUrl, String apiKey, HttpHelper httpHelper, PersistentCache persistentCache) {
+    this.baseUrl = checkNotNull(baseUrl);
+    this.apiKey = checkNotNull(apiKey);
+    this.httpHelper = checkNotNull(httpHelper);
+    this.persistentCache = checkNotNull(persistentCache);
+  }
+
+  @Override
+  public MovieDetails getMovie(String title, int year) {
+    log.debug("getMovie(title={}, year={})", title, year);
+    return getMovieCache.getUnchecked(new GetMovieCacheKey(title, year));
+  }
+
+  // concurrent lookups of the same movie (e.g. duplicate directories) share one request
+  private final LoadingCache<GetMovieCacheKey, MovieDetails> getMovieCache =
+      CacheBuilder.newBuilder()
+          .build(CacheLoader.from(key -> loadMovie(key.title(), key.year())));
+
+  private MovieDetails loadMovie(String title, int year) {
+    String cacheKey =
+        "movie/%s/%s".formatted(URLEncoder.encode(title, StandardCharsets.UTF_8), year);
+    Optional<MovieDetails> cached = persistentCache.get(cacheKey, MovieDetails.class);
+    if (cached.isPresent()) {
+      log.debug("Using cached movie: {}", cacheKey);
+      CACHED_COUNTER.increment();
+      return cached.get();
+    }
+    MovieDetails movie = searchMovie(title, year);
+    SEARCHED_COUNTER.increment();
+    persistentCache.put(cacheKey, movie, MOVIE_TTL);
+    return movie;
+  }
+
+  private MovieDetails searchMovie(String title, int year) {
+    String url =
+        "%s/search/movie?api_key=%s&query=%s&year=%s"
+            .formatted(baseUrl, apiKey, URLEncoder.encode(title, StandardCharsets.UTF_8), year);
+    MovieSearchResponse response = httpHelper.get(url, MovieSearchResponse.class);
+
+    // the year filter matches any release date (e.g. a re-release), prefer the ones first released
+    // that year
+    List<MovieSearchResponse.Result> searchResults =
+        response.results().stream().filter(result -> result.releaseYear().isPresent()).toList();
+    verify(!searchResults.isEmpty(), "No search results for: %s (%s)", title, year);
+    Optional<MovieSearchResponse.Result> sameYear =
+        searchResults.stream().filter(result -> result.releaseYear().get() == year).findFirst();
+    if (sameYear.isEmpty()) {
+      log.warn(
+          "No search results released in {}, taking the first one: {}", year, searchResults);
+    }
+    MovieSearchResponse.Result searchResult = sameYear.orElse(searchResults.get(0));
+
+    log.info(
+        "Using data for movie: {}. Released: {}. Overview: {}",
+        searchResult.title(),
+        searchResult.release_date(),
+        searchResult.overview());
+    return new MovieDetails(
+        searchResult.id(), searchResult.title(), searchResult.releaseYear().get());
+  }
+
+  private record GetMovieCacheKey(String title, int year) {}
+
+  // https://developers.themoviedb.org/3/search/search-movies
+  record MovieSearchResponse(List<Result> results) {
+    MovieSearchResponse {
+      checkNotNull(results, "null results list");
+    }
+
+    // release_date is empty rather than null if unknown, so is kept as a string
+    record Result(int id, String title, String release_date, String overview) {
+      Result {
+        checkArgument(id > 0, "id (%s) <= 0", id);
+        checkArgument(Strings.isNotBlank(title), "blank title");
+      }
+
+      Optional<Integer> releaseYear() {
+        return release_date != null && release_date.length() >= 4
+            ? Optional.of(Integer.parseInt(release_date.substring(0, 4)))
+            : Optional.empty();
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Single file move (rename).
+ *
+ * @param source path to move from
+ * @param target path to move to
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record Move(Path source, Path target) {
+  public Move {
+    checkNotNull(source, "null source");
+    checkNotNull(target, "null target");
+  }
+
+  /**
+   * Carries out the move, as a single atomic rename.
+   *
+   * <p>The target is checked again right before moving, an atomic move replaces an existing target
+   * (on POSIX) and one may have appeared since the move was planned.
+   *
+   * @throws FileAlreadyExistsException if the target exists as another file
+   * @throws IOException if the move fails
+   */
+  void run() throws IOException {
+    if (targetExistsAsOtherFile()) {
+      throw new FileAlreadyExistsException(
+          source.toString(), target.toString(), "target already exists");
+    }
+    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Whether the target exists as a file other than the source, e.g. not a case only rename on a
+   * case insensitive file system.
+   */
+  boolean targetExistsAsOtherFile() throws IOException {
+    return Files.exists(target, LinkOption.NOFOLLOW_LINKS) && !Files.isSameFile(source, target);
+  }
+
+  Move reversed() {
+    return new Move(target, source);
+  }
+}
@@ -0,0 +1,250 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.willmolloy.media.util.Metrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Responsible for carrying out a {@link RenamePlan}.
+ *
+ * <p>The plan is journalled first (see {@link RenameJournal}), then each batch is run in order with
+ * atomic moves. If a move fails, the moves already done are undone before the error is rethrown, so
+ * a failure doesn't leave things half renamed. If the process dies instead, the journal can be
+ * rolled back.
+ *
+ * <p>The moves within a batch are independent, so they're run concurrently. Each {@link FileStore}
+ * gets its own limit (shared by every plan run by this executor), since on network storage each
+ * move is a metadata round trip and the store is the bottleneck, not this process.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class RenameExecutor {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int DEFAULT_CONCURRENCY_PER_STORE = 4;
+
+  private final RenameJournal renameJournal;
+  private final int defaultConcurrencyPerStore;
+  private final Map<String, Integer> concurrencyByStoreName;
+  private final ConcurrentMap<FileStore, Store> stores = new ConcurrentHashMap<>();
+
+  public RenameExecutor(RenameJournal renameJournal) {
+    this(renameJournal, DEFAULT_CONCURRENCY_PER_STORE, Map.of());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param renameJournal {@link RenameJournal}
+   * @param defaultConcurrencyPerStore max number of concurrent moves on a single {@link FileStore}
+   * @param concurrencyByStoreName overrides of {@code defaultConcurrencyPerStore}, by {@link
+   *     FileStore#name()}
+   */
+  public RenameExecutor(
+      RenameJournal renameJournal,
+      int defaultConcurrencyPerStore,
+      Map<String, Integer> concurrencyByStoreName) {
+    checkArgument(
+        defaultConcurrencyPerStore > 0,
+        "defaultConcurrencyPerStore (%s) <= 0",
+        defaultConcurrencyPerStore);
+    concurrencyByStoreName.forEach(
+        (name, concurrency) ->
+            checkArgument(concurrency > 0, "concurrency for %s (%s) <= 0", name, concurrency));
+    this.renameJournal = checkNotNull(renameJournal);
+    this.defaultConcurrencyPerStore = defaultConcurrencyPerStore;
+    this.concurrencyByStoreName = Map.copyOf(concurrencyByStoreName);
+  }
+
+  /**
+   * Carries out a plan.
+   *
+   * @param name name of what's being renamed (e.g. show directory name)
+   * @param plan {@link RenamePlan}
+   * @return path to the journal file, for rolling back later
+   * @throws IOException if a move fails (after undoing the moves already done)
+   */
+  public Path execute(String name, RenamePlan plan) throws IOException {
+    try (RenameJournal.Progress progress = renameJournal.begin(name, plan)) {
+      // by step index, so they can be undone in reverse order
+      NavigableMap<Integer, Move> done = new ConcurrentSkipListMap<>();
+      Map<Path, Store> storesByDir = new HashMap<>();
+      int stepIndex = 0;
+      try {
+        for (List<Move> batch : plan.batches()) {
+          List<Future<?>> futures = new ArrayList<>(batch.size());
+          for (Move move : batch) {
+            int step = stepIndex++;
+            Store store = storesByDir.computeIfAbsent(move.source().getParent(), this::store);
+            futures.add(
+                store.executor.submit(
+                    () -> {
+                      long start = System.nanoTime();
+                      move.run();
+                      store.recordMove(start, System.nanoTime());
+                      progress.done(step);
+                      done.put(step, move);
+                      return null;
+                    }));
+          }
+          awaitBatch(futures);
+        }
+        return progress.journalFile();
+      } catch (IOException | RuntimeException e) {
+        log.error("Rename failed, undoing {} move(s)", done.size(), e);
+        undo(done, progress, e);
+        throw e;
+      }
+    }
+  }
+
+  /** Logs the throughput and latency of the moves run so far, per {@link FileStore}. */
+  public void logStats() {
+    stores.forEach(
+        (fileStore, store) -> {
+          long moves = store.moveCount.sum();
+          if (moves == 0) {
+            return;
+          }
+          // wall clock, so plans run concurrently on the same store aren't counted twice
+          Duration window =
+              Duration.ofNanos(store.lastMoveEndNanos.get() - store.firstMoveStartNanos.get());
+          log.info(
+              "Renames on {} (concurrency {}): {} move(s) in {} ({} moves/s), latency mean {}ms"
+                  + " max {}ms",
+              fileStore,
+              store.concurrency,
+              moves,
+              window,
+              "%.1f".formatted(moves / Math.max(window.toNanos() / 1e9, 1e-9)),
+              "%.2f".formatted(store.latencyNanos.sum() / 1e6 / moves),
+              "%.2f".formatted(store.maxLatencyNanos.get() / 1e6));
+        });
+  }
+
+  // waits for every move, even after a failure, so nothing is still moving while undoing
+  private void awaitBatch(List<Future<?>> futures) throws IOException {
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      Throwables.throwIfInstanceOf(failure, IOException.class);
+      Throwables.throwIfUnchecked(failure);
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  private void undo(
+      NavigableMap<Integer, Move> done, RenameJournal.Progress progress, Exception cause) {
+    done.descendingMap()
+        .forEach(
+            (step, move) -> {
+              Move undo = move.reversed();
+              try {
+                undo.run();
+                progress.undone(step);
+              } catch (IOException | RuntimeException e) {
+                // carry on undoing the rest, whatever's left can be rolled back from the journal
+                log.error(
+                    "Error undoing move: %s -> %s".formatted(undo.source(), undo.target()), e);
+                cause.addSuppressed(e);
+              }
+            });
+  }
+
+  private Store store(Path dir) {
+    try {
+      return stores.computeIfAbsent(Files.getFileStore(dir), this::newStore);
+    } catch (IOException e) {
+      String msg = "Error finding file store: %s".formatted(dir);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  private Store newStore(FileStore fileStore) {
+    int concurrency =
+        concurrencyByStoreName.getOrDefault(fileStore.name(), defaultConcurrencyPerStore);
+    log.debug("Renaming on {} with concurrency {}", fileStore, concurrency);
+    return new Store(
+        concurrency,
+        Metrics.timer(
+            "rename_move_seconds", "Time moving a file, by file store", "store", fileStore.name()),
+        Executors.newFixedThreadPool(
+            concurrency,
+            new ThreadFactoryBuilder()
+                .setNameFormat("rename-%s-%%d".formatted(fileStore.name()))
+                .setDaemon(true)
+                .build()));
+  }
+
+  /** Executor and stats for a single {@link FileStore}. */
+  private static final class Store {
+
+    private final int concurrency;
+    private final Metrics.Timer moveTimer;
+    private final ExecutorService executor;
+    private final LongAdder moveCount = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Long::max, 0);
+    // the window moves ran in, across every plan
+    private final LongAccumulator firstMoveStartNanos =
+        new LongAccumulator(Long::min, Long.MAX_VALUE);
+    private final LongAccumulator lastMoveEndNanos =
+        new LongAccumulator(Long::max, Long.MIN_VALUE);
+
+    private Store(int concurrency, Metrics.Timer moveTimer, ExecutorService executor) {
+      this.concurrency = concurrency;
+      this.moveTimer = moveTimer;
+      this.executor = executor;
+    }
+
+    private void recordMove(long startNanos, long endNanos) {
+      long nanos = endNanos - startNanos;
+      firstMoveStartNanos.accumulate(startNanos);
+      lastMoveEndNanos.accumulate(endNanos);
+      moveCount.increment();
+      latencyNanos.add(nanos);
+      maxLatencyNanos.accumulate(nanos);
+      moveTimer.record(nanos);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.StateFiles;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Write-ahead journal of renames.
+ *
+ * <p>Every step of a {@link RenamePlan} is written (and synced) to a journal file before anything
+ * is moved, then each step is recorded as it's done. Journals are kept afterwards, so a run can be
+ * rolled back whether it completed, failed or crashed halfway.
+ *
+ * <p>Journals last written to longer ago than the retention period are deleted (with their
+ * progress) when the next journal is written, so they don't build up forever.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class RenameJournal {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String DONE = "done";
+  private static final String UNDONE = "undone";
+
+  private static final DateTimeFormatter FILE_NAME_TIMESTAMP =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS").withZone(ZoneOffset.UTC);
+  private static final String JOURNAL_SUFFIX = ".json";
+  private static final String PROGRESS_SUFFIX = ".progress";
+  private static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+
+  private final Path journalDir;
+  private final JsonHelper jsonHelper;
+  private final Duration retention;
+  private final Clock clock;
+  private final AtomicBoolean pruned = new AtomicBoolean();
+
+  public RenameJournal(Path journalDir, JsonHelper jsonHelper) {
+    this(journalDir, jsonHelper, DEFAULT_RETENTION);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param journalDir directory to write journals to
+   * @param jsonHelper {@link JsonHelper}
+   * @param retention how long journals are kept for, after they were last written to
+   */
+  public RenameJournal(Path journalDir, JsonHelper jsonHelper, Duration retention) {
+    this(journalDir, jsonHelper, retention, Clock.systemUTC());
+  }
+
+  RenameJournal(Path journalDir, JsonHelper jsonHelper, Duration retention, Clock clock) {
+    this.journalDir = checkNotNull(journalDir);
+    this.jsonHelper = checkNotNull(jsonHelper);
+    this.retention = checkNotNull(retention);
+    this.clock = checkNotNull(clock);
+  }
+
+  /**
+   * Writes the journal for a plan, before it's carried out.
+   *
+   * @param name name of what's being renamed (e.g. show directory name), included in the file name
+   * @param plan {@link RenamePlan}
+   * @return {@link Progress} to record each step as it's done
+   */
+  Progress begin(String name, RenamePlan plan) {
+    // once per run, rather than on start up, so an old journal can still be rolled back
+    if (pruned.compareAndSet(false, true)) {
+      deleteExpired();
+    }
+
+    List<Step> steps =
+        plan.batches().stream()
+            .flatMap(List::stream)
+            .map(move -> new Step(move.source().toString(), move.target().toString()))
+            .toList();
+    byte[] json = jsonHelper.serialise(new Journal(steps)).getBytes(StandardCharsets.UTF_8);
+    Path journalFile =
+        journalDir.resolve(
+            "%s %s%s".formatted(FILE_NAME_TIMESTAMP.format(clock.instant()), name, JOURNAL_SUFFIX));
+    try {
+      StateFiles.write(
+          journalFile,
+          tempFile -> {
+            try (FileChannel channel =
+                FileChannel.open(
+                    tempFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+              write(channel, json);
+              // must be on disk before the first move
+              channel.force(true);
+            }
+          });
+      log.info("Wrote rename journal: {}", journalFile);
+      return new Progress(journalFile);
+    } catch (IOException e) {
+      String msg = "Error writing rename journal: %s".formatted(journalFile);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Rolls back the renames recorded in a journal file, in reverse order.
+   *
+   * <p>Steps recorded as done are moved back, steps recorded as rolled back are skipped. Steps
+   * without a record (e.g. the process died between the move and recording it) are moved back if
+   * their target exists and their source doesn't. So it's safe to run after a crash, or more than
+   * once.
+   *
+   * @param journalFile path to journal file
+   * @return number of files moved back
+   * @throws IOException if a move fails
+   */
+  public int rollback(Path journalFile) throws IOException {
+    log.info("Rolling back rename journal: {}", journalFile);
+    Journal journal = jsonHelper.deserialise(Files.readString(journalFile), Journal.class);
+
+    int rolledBack = 0;
+    try (Progress progress = new Progress(journalFile)) {
+      Map<Integer, String> recorded = progress.read();
+      for (int i = journal.steps().size() - 1; i >= 0; i--) {
+        String state = recorded.get(i);
+        if (UNDONE.equals(state)) {
+          continue;
+        }
+
+        Step step = journal.steps().get(i);
+        Path source = Path.of(step.source());
+        Path target = Path.of(step.target());
+        boolean targetExists = Files.exists(target, LinkOption.NOFOLLOW_LINKS);
+        boolean sourceExists = Files.exists(source, LinkOption.NOFOLLOW_LINKS);
+        if (state == null && !(targetExists && !sourceExists)) {
+          // never done
+          continue;
+        }
+        if (!targetExists || sourceExists) {
+          log.warn("Not rolling back {} -> {}, files changed since", source, target);
+          continue;
+        }
+
+        log.info("Rolling back: {} -> {}", target, source);
+        new Move(target, source).run();
+        progress.undone(i);
+        rolledBack++;
+      }
+    }
+
+    log.info("Rolled back {} file(s)", rolledBack);
+    return rolledBack;
+  }
+
+  private void deleteExpired() {
+    if (!Files.isDirectory(journalDir)) {
+      return;
+    }
+    Instant expiry = clock.instant().minus(retention);
+    Map<String, Instant> lastWritten = new HashMap<>();
+    for (FileEntry entry : FileEntry.list(journalDir)) {
+      String journalName =
+          entry.fileName().endsWith(PROGRESS_SUFFIX)
+              ? entry.fileName().substring(0, entry.fileName().length() - PROGRESS_SUFFIX.length())
+              : entry.fileName();
+      if (entry.isRegularFile() && journalName.endsWith(JOURNAL_SUFFIX)) {
+        lastWritten.merge(
+            journalName,
+            entry.attributes().lastModifiedTime().toInstant(),
+            BinaryOperator.maxBy(Comparator.naturalOrder()));
+      }
+    }
+
+    int deleted = 0;
+    for (Map.Entry<String, Instant> journal : lastWritten.entrySet()) {
+      if (journal.getValue().isBefore(expiry)) {
+        Path journalFile = journalDir.resolve(journal.getKey());
+        try {
+          Files.deleteIfExists(journalFile.resolveSibling(journal.getKey() + PROGRESS_SUFFIX));
+          Files.deleteIfExists(journalFile);
+          deleted++;
+        } catch (IOException e) {
+          // not worth failing the run over, it's retried next run
+          log.warn("Error deleting expired rename journal: %s".formatted(journalFile), e);
+        }
+      }
+    }
+    if (deleted > 0) {
+      log.info("Deleted {} rename journal(s) older than {}", deleted, retention);
+    }
+  }
+
+  private static void write(FileChannel channel, byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Records which steps of a journal are done (or rolled back), one line per step appended to a
+   * file alongside the journal.
+   *
+   * <p>Not synced per step, that would cost a disk flush per rename. Records survive the process
+   * dying, steps whose record was lost otherwise are inferred from what's on disk.
+   *
+   * <p>Thread safe.
+   */
+  static final class Progress implements Closeable {
+
+    private final Path journalFile;
+    private final Path progressFile;
+    private FileChannel channel;
+
+    private Progress(Path journalFile) {
+      this.journalFile = journalFile;
+      this.progressFile =
+          journalFile.resolveSibling(journalFile.getFileName() + PROGRESS_SUFFIX);
+    }
+
+    Path journalFile() {
+      return journalFile;
+    }
+
+    /**
+     * Records a step as done.
+     *
+     * @param step index of the step, in journal order
+     */
+    void done(int step) {
+      record(step, DONE);
+    }
+
+    /**
+     * Records a step as rolled back.
+     *
+     * @param step index of the step, in journal order
+     */
+    void undone(int step) {
+      record(step, UNDONE);
+    }
+
+    private synchronized void record(int step, String state) {
+      try {
+        if (channel == null) {
+          channel =
+              FileChannel.open(
+                  progressFile,
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.WRITE,
+                  StandardOpenOption.APPEND);
+        }
+        write(channel, "%s %s%n".formatted(state, step).getBytes(StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        String msg = "Error writing rename progress: %s".formatted(progressFile);
+        log.error(msg, e);
+        throw new UncheckedIOException(msg, e);
+      }
+    }
+
+    private Map<Integer, String> read() throws IOException {
+      Map<Integer, String> recorded = new HashMap<>();
+      if (Files.exists(progressFile)) {
+        for (String line : Files.readAllLines(progressFile)) {
+          String[] parts = line.split(" ");
+          // a torn last line (process died mid write) is skipped
+          if (parts.length == 2 && !parts[1].isEmpty()) {
+            recorded.put(Integer.parseInt(parts[1]), parts[0]);
+          }
+        }
+      }
+      return recorded;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+  }
+
+  private record Journal(List<Step> steps) {
+    Journal {
+      checkNotNull(steps, "null steps list");
+    }
+  }
+
+  private record Step(String source, String target) {
+    Step {
+      checkNotNull(source, "null source");
+      checkNotNull(target, "null target");
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+/**
+ * Planned renames, see {@link RenamePlanner}.
+ *
+ * @param moves the requested moves, excluding no-ops
+ * @param batches the steps carrying out {@code moves}, batches must run in order but the steps
+ *     within a batch are independent of each other
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record RenamePlan(List<Move> moves, List<List<Move>> batches) {
+  public RenamePlan {
+    checkNotNull(moves, "null moves list");
+    checkNotNull(batches, "null batches list");
+  }
+
+  public boolean isEmpty() {
+    return moves.isEmpty();
+  }
+
+  public int stepCount() {
+    return batches.stream().mapToInt(List::size).sum();
+  }
+}
@@ -0,0 +1,102 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Responsible for planning a set of renames up front, before anything is moved.
+ *
+ * <p>Rejects collisions (two files renamed to the same path, or a file renamed over one that isn't
+ * being renamed). Moves onto a path that another move is vacating (chains, or swap cycles like
+ * {@code a -> b, b -> a}) are done via a temporary name:
+ *
+ * <ol>
+ *   <li>move the sources of those moves to temporary names
+ *   <li>do every other move
+ *   <li>move the temporary names to their targets
+ * </ol>
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class RenamePlanner {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /**
+   * Plans the given moves.
+   *
+   * @param requested moves to carry out
+   * @return {@link RenamePlan}
+   * @throws IllegalArgumentException if the moves collide
+   */
+  public RenamePlan plan(Collection<Move> requested) {
+    List<Move> moves =
+        requested.stream().filter(move -> !move.source().equals(move.target())).toList();
+
+    Set<Path> sources = new HashSet<>();
+    Map<Path, Move> movesByTarget = new HashMap<>();
+    for (Move move : moves) {
+      checkArgument(sources.add(move.source()), "%s is renamed more than once", move.source());
+      Move existing = movesByTarget.putIfAbsent(move.target(), move);
+      checkArgument(
+          existing == null,
+          "Rename collision: %s and %s are both renamed to %s",
+          existing == null ? null : existing.source(),
+          move.source(),
+          move.target());
+    }
+
+    // a unique temporary name per plan, so a crashed run can't get in the way
+    String tempTag = UUID.randomUUID().toString().substring(0, 8);
+    List<Move> toTemp = new ArrayList<>();
+    List<Move> direct = new ArrayList<>();
+    List<Move> fromTemp = new ArrayList<>();
+    for (Move move : moves) {
+      if (sources.contains(move.target())) {
+        Path temp =
+            move.source()
+                .resolveSibling(".%s.%s.tmp".formatted(move.source().getFileName(), tempTag));
+        toTemp.add(new Move(move.source(), temp));
+        fromTemp.add(new Move(temp, move.target()));
+      } else {
+        checkArgument(
+            !existsAsOtherFile(move),
+            "Rename collision: %s is renamed to %s which already exists",
+            move.source(),
+            move.target());
+        direct.add(move);
+      }
+    }
+    if (!toTemp.isEmpty()) {
+      log.debug("Renaming {} file(s) via a temporary name", toTemp.size());
+    }
+
+    List<List<Move>> batches =
+        Stream.of(toTemp, direct, fromTemp).filter(batch -> !batch.isEmpty()).toList();
+    return new RenamePlan(moves, batches);
+  }
+
+  private boolean existsAsOtherFile(Move move) {
+    try {
+      return move.targetExistsAsOtherFile();
+    } catch (IOException e) {
+      String msg = "Error checking rename target: %s".formatted(move.target());
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+}
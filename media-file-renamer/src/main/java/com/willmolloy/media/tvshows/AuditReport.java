@@ -0,0 +1,162 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.JsonHelper;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Report of a library audit (see {@link TvShowLibraryAuditor}), written as findings come in rather
+ * than held in memory. As a JSON array if the file ends in {@code .json}, otherwise as CSV.
+ *
+ * <p>Flushed after each show, so a report can be followed while the audit runs (and is usable up
+ * to the last show if it dies).
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class AuditReport implements Closeable {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final List<String> CSV_HEADER =
+      List.of("type", "showName", "showYear", "seasonNum", "episodeNum", "file", "detail");
+
+  private final Path file;
+  private final JsonHelper jsonHelper;
+  private final boolean json;
+  private final BufferedWriter writer;
+  private int findingCount;
+
+  /**
+   * Opens a report, replacing the file if it exists.
+   *
+   * @param file report file
+   * @param jsonHelper {@link JsonHelper}
+   */
+  AuditReport(Path file, JsonHelper jsonHelper) {
+    this.file = checkNotNull(file);
+    this.jsonHelper = checkNotNull(jsonHelper);
+    this.json = file.getFileName().toString().endsWith(".json");
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+      writer.write(json ? "[" : csvLine(CSV_HEADER.stream()));
+    } catch (IOException e) {
+      String msg = "Error opening audit report: %s".formatted(file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Writes the findings of a show.
+   *
+   * @param findings findings
+   */
+  synchronized void write(List<Finding> findings) {
+    try {
+      for (Finding finding : findings) {
+        if (json) {
+          writer.write(findingCount == 0 ? "\n" : ",\n");
+          writer.write(jsonHelper.serialise(finding));
+        } else {
+          writer.write(
+              csvLine(
+                  Stream.of(
+                      finding.type(),
+                      finding.showName(),
+                      finding.showYear(),
+                      finding.seasonNum(),
+                      finding.episodeNum(),
+                      finding.file(),
+                      finding.detail())));
+        }
+        findingCount++;
+      }
+      writer.flush();
+    } catch (IOException e) {
+      String msg = "Error writing audit report: %s".formatted(file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  synchronized int findingCount() {
+    return findingCount;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try (writer) {
+      if (json) {
+        writer.write("\n]\n");
+      }
+    }
+    log.info("Wrote {} finding(s) to: {}", findingCount, file);
+  }
+
+  private static String csvLine(Stream<?> values) {
+    return values
+            .map(value -> value == null ? "" : csvValue(value.toString()))
+            .collect(Collectors.joining(","))
+        + "\n";
+  }
+
+  // quoted only if needed, see RFC 4180
+  private static String csvValue(String value) {
+    if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  /** Kind of {@link Finding}. */
+  enum FindingType {
+    /** More than one file is the same episode, i.e. they'd be renamed to the same file. */
+    DUPLICATE,
+    /** An episode (known to the repository) has no file. */
+    GAP,
+    /** A file is an episode the repository doesn't know of. */
+    UNMATCHED,
+    /** The show couldn't be audited, e.g. its directory isn't laid out as expected. */
+    ERROR
+  }
+
+  /**
+   * Something wrong with the library.
+   *
+   * @param type type
+   * @param showName show name (show directory name if it couldn't be parsed)
+   * @param showYear show year (null if it couldn't be parsed)
+   * @param seasonNum season number (null for show level findings)
+   * @param episodeNum episode number (null for show or season level findings)
+   * @param file path to the file the finding is about (null for gaps)
+   * @param detail description
+   */
+  record Finding(
+      FindingType type,
+      String showName,
+      Integer showYear,
+      Integer seasonNum,
+      Integer episodeNum,
+      String file,
+      String detail) {
+    Finding {
+      checkNotNull(type, "null type");
+      checkNotNull(showName, "null showName");
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+
+/**
+ * Builds the new file name of an episode, as per an {@link EpisodeFileNameTemplate}.
+ *
+ * <p>Called once per episode, so it's built into a reused {@link StringBuilder} rather than via
+ * {@link String#formatted} and regex replacement, which create several intermediate strings each
+ * time. Nothing is allocated unless the buffer has to grow.
+ *
+ * <p>Not thread safe, use one per thread (e.g. per show).
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EpisodeFileNameBuilder {
+
+  private final EpisodeFileNameTemplate template;
+  private final StringBuilder fileName = new StringBuilder(64);
+  private final Fields fields = new Fields();
+
+  EpisodeFileNameBuilder(EpisodeFileNameTemplate template) {
+    this.template = checkNotNull(template);
+  }
+
+  /**
+   * Builds the new file name of an episode.
+   *
+   * @param showName show name
+   * @param showYear show year
+   * @param seasonNum season number
+   * @param episodeNum episode number
+   * @param episodeName episode name, if known
+   * @param currentFileName current file name (its extension is kept)
+   * @return new file name, only valid until the next call
+   */
+  CharSequence build(
+      String showName,
+      int showYear,
+      int seasonNum,
+      int episodeNum,
+      Optional<String> episodeName,
+      String currentFileName) {
+    fields.showName = showName;
+    fields.showYear = showYear;
+    fields.seasonNum = seasonNum;
+    fields.episodeNum = episodeNum;
+    fields.episodeName = episodeName;
+    fields.currentFileName = currentFileName;
+    fileName.setLength(0);
+    template.appendTo(fileName, fields);
+    return fileName;
+  }
+
+  /**
+   * Whether the last built file name equals the given one, without creating a string.
+   *
+   * @param currentFileName current file name
+   * @return true if equal
+   */
+  boolean matches(String currentFileName) {
+    return currentFileName.contentEquals(fileName);
+  }
+
+  /** Values of the episode being named, reused between calls rather than allocated per episode. */
+  static final class Fields {
+    private String showName;
+    private int showYear;
+    private int seasonNum;
+    private int episodeNum;
+    private Optional<String> episodeName;
+    private String currentFileName;
+
+    String showName() {
+      return showName;
+    }
+
+    int showYear() {
+      return showYear;
+    }
+
+    int seasonNum() {
+      return seasonNum;
+    }
+
+    int episodeNum() {
+      return episodeNum;
+    }
+
+    Optional<String> episodeName() {
+      return episodeName;
+    }
+
+    String currentFileName() {
+      return currentFileName;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.FileNames;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Template for the new file name of an episode, e.g. {@link #DEFAULT}.
+ *
+ * <p>Placeholders:
+ *
+ * <ul>
+ *   <li>{@code {show}} show name
+ *   <li>{@code {year}} show year
+ *   <li>{@code {season}} season number
+ *   <li>{@code {episode}} episode number
+ *   <li>{@code {title}} episode name (illegal path characters removed), may not be known
+ *   <li>{@code {ext}} current file extension, including the dot
+ * </ul>
+ *
+ * <p>Numbers can be zero padded to a width, e.g. {@code {season:02}}. Text in square brackets is
+ * only included if every placeholder in it is known, e.g. {@code [ - {title}]}.
+ *
+ * <p>Compiled once into a list of segments, so formatting a file name is just appending each
+ * segment in turn, no parsing or regex work.
+ *
+ * <p>Immutable and thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+final class EpisodeFileNameTemplate {
+
+  /** The original naming, e.g. {@code Show S01E02 Episode Name.mkv}. */
+  static final String DEFAULT = "{show} S{season:02}E{episode:02}[ {title}]{ext}";
+
+  private final String template;
+  private final Segment[] segments;
+
+  private EpisodeFileNameTemplate(String template, Segment[] segments) {
+    this.template = template;
+    this.segments = segments;
+  }
+
+  /**
+   * Compiles a template.
+   *
+   * @param template template, see class docs for the syntax
+   * @return compiled template
+   * @throws IllegalArgumentException if the template is invalid
+   */
+  static EpisodeFileNameTemplate compile(String template) {
+    checkNotNull(template, "null template");
+    List<Segment> segments = new ArrayList<>();
+    // segments of the open optional group, null if not in one
+    List<Segment> group = null;
+    boolean hasEpisode = false;
+    boolean hasExt = false;
+    StringBuilder literal = new StringBuilder();
+
+    for (int i = 0; i < template.length(); i++) {
+      char c = template.charAt(i);
+      if (c == '{') {
+        int end = template.indexOf('}', i);
+        int nextOpen = template.indexOf('{', i + 1);
+        checkArgument(
+            end > i && (nextOpen < 0 || nextOpen > end), "Unclosed '{' at %s: %s", i, template);
+        addLiteral(literal, group != null ? group : segments);
+        String placeholder = template.substring(i + 1, end);
+        hasEpisode |= placeholder.equals("episode") || placeholder.startsWith("episode:");
+        hasExt |= placeholder.equals("ext");
+        (group != null ? group : segments).add(placeholder(placeholder, template));
+        i = end;
+      } else if (c == '[') {
+        checkArgument(group == null, "Nested '[' at %s: %s", i, template);
+        addLiteral(literal, segments);
+        group = new ArrayList<>();
+      } else if (c == ']') {
+        checkArgument(group != null, "Unopened ']' at %s: %s", i, template);
+        addLiteral(literal, group);
+        segments.add(new OptionalGroup(group.toArray(Segment[]::new)));
+        group = null;
+      } else {
+        checkArgument(c != '}', "Unopened '}' at %s: %s", i, template);
+        checkArgument(
+            !FileNames.isIllegalPathChar(c),
+            "Illegal path character '%s' at %s: %s",
+            c,
+            i,
+            template);
+        literal.append(c);
+      }
+    }
+    checkArgument(group == null, "Unclosed '[': %s", template);
+    addLiteral(literal, segments);
+    checkArgument(hasEpisode, "No {episode}, every episode would be named the same: %s", template);
+    checkArgument(hasExt, "No {ext}, files would lose their extension: %s", template);
+    return new EpisodeFileNameTemplate(template, segments.toArray(Segment[]::new));
+  }
+
+  /**
+   * Appends the file name of an episode.
+   *
+   * @param fileName file name to append to
+   * @param episode episode to name
+   */
+  void appendTo(StringBuilder fileName, EpisodeFileNameBuilder.Fields episode) {
+    for (Segment segment : segments) {
+      segment.appendTo(fileName, episode);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+
+  private static void addLiteral(StringBuilder literal, List<Segment> segments) {
+    if (!literal.isEmpty()) {
+      segments.add(new Literal(literal.toString()));
+      literal.setLength(0);
+    }
+  }
+
+  private static Segment placeholder(String placeholder, String template) {
+    int colon = placeholder.indexOf(':');
+    String name = colon < 0 ? placeholder : placeholder.substring(0, colon);
+    int width = colon < 0 ? 0 : width(name, placeholder.substring(colon + 1), template);
+    return switch (name) {
+      case "show" -> (fileName, episode) -> {
+        fileName.append(episode.showName());
+        return true;
+      };
+      case "year" -> (fileName, episode) -> appendNumber(fileName, episode.showYear(), width);
+      case "season" -> (fileName, episode) -> appendNumber(fileName, episode.seasonNum(), width);
+      case "episode" -> (fileName, episode) -> appendNumber(fileName, episode.episodeNum(), width);
+      case "title" -> (fileName, episode) -> {
+        if (episode.episodeName().isEmpty()) {
+          return false;
+        }
+        FileNames.appendWithoutIllegalPathChars(fileName, episode.episodeName().get());
+        return true;
+      };
+      case "ext" -> (fileName, episode) -> {
+        String current = episode.currentFileName();
+        fileName.append(current, current.lastIndexOf('.'), current.length());
+        return true;
+      };
+      default -> throw new IllegalArgumentException(
+          "Unknown placeholder {%s}: %s".formatted(placeholder, template));
+    };
+  }
+
+  private static int width(String name, String format, String template) {
+    checkArgument(
+        name.equals("year") || name.equals("season") || name.equals("episode"),
+        "Can only format numbers {%s:%s}: %s",
+        name,
+        format,
+        template);
+    checkArgument(
+        format.matches("0[1-9]"),
+        "Invalid format {%s:%s}, expected e.g. {%s:02}: %s",
+        name,
+        format,
+        name,
+        template);
+    return format.charAt(1) - '0';
+  }
+
+  private static boolean appendNumber(StringBuilder fileName, int i, int padTo) {
+    for (int limit = 10, digits = 1; digits < padTo; limit *= 10, digits++) {
+      if (i < limit) {
+        fileName.append('0');
+      }
+    }
+    fileName.append(i);
+    return true;
+  }
+
+  /** Writes part of the file name. */
+  @FunctionalInterface
+  private interface Segment {
+
+    /**
+     * Appends this segment.
+     *
+     * @param fileName file name to append to
+     * @param episode episode to name
+     * @return false if a value was missing (so nothing was appended)
+     */
+    boolean appendTo(StringBuilder fileName, EpisodeFileNameBuilder.Fields episode);
+  }
+
+  private record Literal(String text) implements Segment {
+    @Override
+    public boolean appendTo(StringBuilder fileName, EpisodeFileNameBuilder.Fields episode) {
+      fileName.append(text);
+      return true;
+    }
+  }
+
+  private record OptionalGroup(Segment[] segments) implements Segment {
+    @Override
+    public boolean appendTo(StringBuilder fileName, EpisodeFileNameBuilder.Fields episode) {
+      int start = fileName.length();
+      for (Segment segment : segments) {
+        if (!segment.appendTo(fileName, episode)) {
+          // drop the whole group
+          fileName.setLength(start);
+          return true;
+        }
+      }
+      return true;
+    }
+  }
+}
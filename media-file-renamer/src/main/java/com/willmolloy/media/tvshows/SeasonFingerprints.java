@@ -0,0 +1,126 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.StateFiles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fingerprints (file names, sizes and modified times) of season directories as of their last
+ * successful rename, so unchanged seasons can be skipped.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+final class SeasonFingerprints {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final Path file;
+  private final JsonHelper jsonHelper;
+  private final Map<String, String> fingerprints;
+
+  private SeasonFingerprints(Path file, JsonHelper jsonHelper, Map<String, String> fingerprints) {
+    this.file = checkNotNull(file);
+    this.jsonHelper = checkNotNull(jsonHelper);
+    this.fingerprints = new ConcurrentHashMap<>(fingerprints);
+  }
+
+  /**
+   * Loads the fingerprints saved to a file (if it exists).
+   *
+   * @param file state file
+   * @param jsonHelper {@link JsonHelper}
+   * @return {@link SeasonFingerprints}
+   */
+  static SeasonFingerprints load(Path file, JsonHelper jsonHelper) {
+    Map<String, String> seasons =
+        StateFiles.readJson(file, jsonHelper, State.class, "season fingerprints")
+            .map(State::seasons)
+            .orElse(Map.of());
+    log.debug("Loaded {} season fingerprint(s) from {}", seasons.size(), file);
+    return new SeasonFingerprints(file, jsonHelper, seasons);
+  }
+
+  /**
+   * Whether the season directory changed since it was last recorded.
+   *
+   * @param seasonDir path to season directory
+   * @return true if changed or never recorded
+   */
+  boolean hasChanged(Path seasonDir) {
+    return hasChanged(seasonDir, FileEntry.list(seasonDir));
+  }
+
+  /**
+   * Whether the season directory changed since it was last recorded, given its entries (e.g. as
+   * already listed for parsing).
+   *
+   * @param seasonDir path to season directory
+   * @param entries entries of the season directory
+   * @return true if changed or never recorded
+   */
+  boolean hasChanged(Path seasonDir, List<FileEntry> entries) {
+    String recorded = fingerprints.get(key(seasonDir));
+    boolean changed = recorded == null || !recorded.equals(fingerprint(entries));
+    if (!changed) {
+      log.debug("Season unchanged since last run: {}", seasonDir);
+    }
+    return changed;
+  }
+
+  /**
+   * Records the current fingerprint of the season directory.
+   *
+   * @param seasonDir path to season directory
+   */
+  void record(Path seasonDir) {
+    fingerprints.put(key(seasonDir), fingerprint(FileEntry.list(seasonDir)));
+  }
+
+  /** Saves the fingerprints, replacing the file atomically. */
+  synchronized void save() {
+    StateFiles.writeJson(
+        file, jsonHelper, new State(Map.copyOf(fingerprints)), "season fingerprints");
+    log.debug("Saved {} season fingerprint(s) to {}", fingerprints.size(), file);
+  }
+
+  private String key(Path seasonDir) {
+    return seasonDir.toAbsolutePath().normalize().toString();
+  }
+
+  private String fingerprint(List<FileEntry> entries) {
+    List<FileEntry> files =
+        entries.stream()
+            .filter(FileEntry::isRegularFile)
+            .sorted(Comparator.comparing(FileEntry::fileName))
+            .toList();
+
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (FileEntry entry : files) {
+      hasher.putInt(entry.fileName().length());
+      hasher.putString(entry.fileName(), StandardCharsets.UTF_8);
+      hasher.putLong(entry.attributes().size());
+      hasher.putLong(entry.attributes().lastModifiedTime().toMillis());
+    }
+    return hasher.hash().toString();
+  }
+
+  private record State(Map<String, String> seasons) {
+    State {
+      checkNotNull(seasons, "null seasons map");
+    }
+  }
+}
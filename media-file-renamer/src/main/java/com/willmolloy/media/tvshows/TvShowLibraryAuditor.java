@@ -0,0 +1,223 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.willmolloy.media.tvshows.AuditReport.Finding;
+import com.willmolloy.media.tvshows.AuditReport.FindingType;
+import com.willmolloy.media.tvshows.enricher.EnrichedTvShow;
+import com.willmolloy.media.tvshows.enricher.TvShowEnricher;
+import com.willmolloy.media.tvshows.parser.TvShow;
+import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.tvshows.repository.CoalescingTvShowRepository;
+import com.willmolloy.media.util.Env;
+import com.willmolloy.media.util.JsonHelper;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Starting point for auditing every TV show in a library, without renaming anything.
+ *
+ * <p>Reports (see {@link AuditReport}) files that are the same episode as another file, episodes
+ * without a file and files the repository has no episode for.
+ *
+ * <p>Shows are audited in parallel, each show's findings are written once it's done and then
+ * dropped. So memory is bounded by the shows in flight, not the size of the library.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryAuditor {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final TvShowParser tvShowParser;
+  private final TvShowEnricher tvShowEnricher;
+
+  TvShowLibraryAuditor(TvShowParser tvShowParser, TvShowEnricher tvShowEnricher) {
+    this.tvShowParser = checkNotNull(tvShowParser);
+    this.tvShowEnricher = checkNotNull(tvShowEnricher);
+  }
+
+  /**
+   * Audits every show under a library directory.
+   *
+   * @param libraryDir path to library directory
+   * @param report {@link AuditReport} to write the findings to
+   * @param parallelism max number of shows audited at once
+   * @throws InterruptedException if interrupted while waiting for the shows to finish
+   */
+  void run(Path libraryDir, AuditReport report, int parallelism) throws InterruptedException {
+    checkArgument(parallelism > 0, "parallelism (%s) <= 0", parallelism);
+    List<Path> showDirs = tvShowParser.findShowDirs(libraryDir);
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, new ThreadFactoryBuilder().setNameFormat("audit-%d").build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(showDirs.size());
+      for (Path showDir : showDirs) {
+        // written as each show finishes (in any order), so they're not held until the end
+        futures.add(executor.submit(() -> report.write(audit(showDir))));
+      }
+      for (int i = 0; i < showDirs.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          // the report couldn't be written, no point carrying on
+          throw new IllegalStateException(
+              "Error auditing show: %s".formatted(showDirs.get(i)), e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    log.info("Audited {} show(s), {} finding(s)", showDirs.size(), report.findingCount());
+  }
+
+  /**
+   * Audits a single show.
+   *
+   * @param showDir path to show directory
+   * @return findings
+   */
+  List<Finding> audit(Path showDir) {
+    EnrichedTvShow tvShow;
+    try {
+      tvShow = tvShowEnricher.enrich(tvShowParser.parse(showDir));
+    } catch (RuntimeException e) {
+      log.error("Error auditing show: %s".formatted(showDir), e);
+      return List.of(
+          new Finding(
+              FindingType.ERROR,
+              showDir.getFileName().toString(),
+              null,
+              null,
+              null,
+              showDir.toString(),
+              String.valueOf(e)));
+    }
+
+    List<Finding> findings = new ArrayList<>();
+    for (EnrichedTvShow.EnrichedSeason season : tvShow.seasons()) {
+      // keyed by the episode each file is named as, including the files the parser skipped because
+      // another file had their number
+      SortedMap<Integer, List<TvShow.Episode>> episodesByNum = new TreeMap<>();
+      List<TvShow.Episode> files =
+          Stream.concat(season.episodes().stream(), season.skipped().stream())
+              .sorted(Comparator.comparing(episode -> episode.file().path()))
+              .toList();
+      for (TvShow.Episode episode : files) {
+        int episodeNum =
+            TvShowParser.episodeNumInFileName(
+                    episode.file().fileName(), season.seasonNum(), files.size())
+                .orElse(episode.episodeNum());
+        episodesByNum.computeIfAbsent(episodeNum, k -> new ArrayList<>()).add(episode);
+      }
+
+      Map<Integer, String> episodeNames = season.episodeNames();
+      episodesByNum.forEach(
+          (episodeNum, episodes) -> {
+            for (TvShow.Episode episode : episodes) {
+              if (episodes.size() > 1) {
+                findings.add(
+                    finding(
+                        FindingType.DUPLICATE,
+                        tvShow,
+                        season,
+                        episodeNum,
+                        episode,
+                        "%s files are episode %s".formatted(episodes.size(), episodeNum)));
+              }
+              if (!episodeNames.containsKey(episodeNum)) {
+                findings.add(
+                    finding(
+                        FindingType.UNMATCHED,
+                        tvShow,
+                        season,
+                        episodeNum,
+                        episode,
+                        "No episode %s found".formatted(episodeNum)));
+              }
+            }
+          });
+      new TreeMap<>(episodeNames)
+          .forEach(
+              (episodeNum, episodeName) -> {
+                if (!episodesByNum.containsKey(episodeNum)) {
+                  findings.add(
+                      finding(
+                          FindingType.GAP,
+                          tvShow,
+                          season,
+                          episodeNum,
+                          null,
+                          "No file for episode %s (%s)".formatted(episodeNum, episodeName)));
+                }
+              });
+    }
+    log.info("Audited {}: {} finding(s)", showDir, findings.size());
+    return findings;
+  }
+
+  private static Finding finding(
+      FindingType type,
+      EnrichedTvShow tvShow,
+      EnrichedTvShow.EnrichedSeason season,
+      int episodeNum,
+      TvShow.Episode episode,
+      String detail) {
+    return new Finding(
+        type,
+        tvShow.showName(),
+        tvShow.showYear(),
+        season.seasonNum(),
+        episodeNum,
+        episode != null ? episode.file().toString() : null,
+        detail);
+  }
+
+  public static void main(String... args) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      checkArgument(args.length == 3, "Expected 3 args");
+      Path libraryDir = Path.of(args[0]);
+      Path reportFile = Path.of(args[1]);
+      int parallelism = Integer.parseInt(args[2]);
+
+      CoalescingTvShowRepository tvShowRepository = TvShowRenamer.constructRepository();
+      TvShowLibraryAuditor app =
+          new TvShowLibraryAuditor(
+              TvShowRenamer.constructParser(TvShowRenamer.loadEpisodeIndex()),
+              new TvShowEnricher(tvShowRepository));
+
+      log.info(
+          "Running - libraryDir={}, reportFile={}, parallelism={}",
+          libraryDir,
+          reportFile,
+          parallelism);
+      try (AuditReport report = new AuditReport(reportFile, new JsonHelper())) {
+        app.run(libraryDir, report, parallelism);
+      }
+      TvShowRenamer.logRepositoryStats(tvShowRepository);
+    } catch (Throwable e) {
+      log.fatal("Fatal error", e);
+    } finally {
+      log.info("Elapsed: {}", stopwatch.elapsed());
+      Env.exportMetrics();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.willmolloy.media.tvshows.parser.EpisodeIndex;
+import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.tvshows.repository.CoalescingTvShowRepository;
+import com.willmolloy.media.util.Env;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Starting point for renaming every TV show in a library.
+ *
+ * <p>Each show is still processed in isolation (see {@link TvShowRenamer}), a failure in one show
+ * is reported and the remaining shows carry on.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryRenamer {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final TvShowParser tvShowParser;
+  private final TvShowRenamer tvShowRenamer;
+
+  TvShowLibraryRenamer(TvShowParser tvShowParser, TvShowRenamer tvShowRenamer) {
+    this.tvShowParser = checkNotNull(tvShowParser);
+    this.tvShowRenamer = checkNotNull(tvShowRenamer);
+  }
+
+  /**
+   * Renames every show under a library directory.
+   *
+   * @param libraryDir path to library directory
+   * @param dryRun if true, only log the renames
+   * @param parallelism max number of shows processed at once
+   * @param incremental if true, skip seasons unchanged since their last (non dry) run
+   * @return results for each show, in show directory order
+   * @throws InterruptedException if interrupted while waiting for the shows to finish
+   */
+  List<ShowResult> run(Path libraryDir, boolean dryRun, int parallelism, boolean incremental)
+      throws InterruptedException {
+    checkArgument(parallelism > 0, "parallelism (%s) <= 0", parallelism);
+    List<Path> showDirs = tvShowParser.findShowDirs(libraryDir);
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, new ThreadFactoryBuilder().setNameFormat("show-%d").build());
+    try {
+      List<Future<Integer>> futures = new ArrayList<>(showDirs.size());
+      for (Path showDir : showDirs) {
+        futures.add(executor.submit(() -> tvShowRenamer.run(showDir, dryRun, incremental)));
+      }
+
+      List<ShowResult> results = new ArrayList<>(showDirs.size());
+      for (int i = 0; i < showDirs.size(); i++) {
+        Path showDir = showDirs.get(i);
+        try {
+          results.add(ShowResult.success(showDir, futures.get(i).get()));
+        } catch (ExecutionException e) {
+          log.error("Error processing show: %s".formatted(showDir), e.getCause());
+          results.add(ShowResult.failure(showDir, e.getCause()));
+        }
+      }
+      logSummary(results, dryRun);
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void logSummary(List<ShowResult> results, boolean dryRun) {
+    List<ShowResult> failures = results.stream().filter(ShowResult::failed).toList();
+    int renameCount = results.stream().mapToInt(ShowResult::renameCount).sum();
+
+    log.info(
+        "Processed {} show(s): {} succeeded, {} failed. Renamed {} file(s)",
+        results.size(),
+        results.size() - failures.size(),
+        failures.size(),
+        renameCount);
+    for (ShowResult failure : failures) {
+      log.warn("Failed: {} - {}", failure.showDir(), failure.error());
+    }
+
+    if (dryRun) {
+      log.info("Dry run. Please check the above output");
+    }
+  }
+
+  /**
+   * Result of processing a single show.
+   *
+   * @param showDir path to show directory
+   * @param renameCount number of files renamed (0 if failed)
+   * @param error error message if failed, otherwise null
+   */
+  record ShowResult(Path showDir, int renameCount, String error) {
+    static ShowResult success(Path showDir, int renameCount) {
+      return new ShowResult(showDir, renameCount, null);
+    }
+
+    static ShowResult failure(Path showDir, Throwable error) {
+      return new ShowResult(showDir, 0, String.valueOf(error));
+    }
+
+    boolean failed() {
+      return error != null;
+    }
+  }
+
+  public static void main(String... args) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      checkArgument(args.length >= 3, "Expected at least 3 args");
+      Path libraryDir = Path.of(args[0]);
+      boolean dryRun = Boolean.parseBoolean(args[1]);
+      int parallelism = Integer.parseInt(args[2]);
+      boolean incremental = TvShowRenamer.parseFlags(args, 3).contains("--incremental");
+
+      // one parser, enricher and http client shared by every show
+      CoalescingTvShowRepository tvShowRepository = TvShowRenamer.constructRepository();
+      SeasonFingerprints seasonFingerprints = TvShowRenamer.loadSeasonFingerprints();
+      TvShowRenamer tvShowRenamer = TvShowRenamer.construct(tvShowRepository, seasonFingerprints);
+      TvShowLibraryRenamer app =
+          new TvShowLibraryRenamer(
+              TvShowRenamer.constructParser(EpisodeIndex.disabled()), tvShowRenamer);
+
+      log.info(
+          "Running - libraryDir={}, dryRun={}, parallelism={}, incremental={}",
+          libraryDir,
+          dryRun,
+          parallelism,
+          incremental);
+      try {
+        app.run(libraryDir, dryRun, parallelism, incremental);
+      } finally {
+        seasonFingerprints.save();
+      }
+      TvShowRenamer.logRepositoryStats(tvShowRepository);
+      tvShowRenamer.logRenameStats();
+    } catch (Throwable e) {
+      log.fatal("Fatal error", e);
+    } finally {
+      log.info("Elapsed: {}", stopwatch.elapsed());
+      Env.exportMetrics();
+    }
+  }
+}
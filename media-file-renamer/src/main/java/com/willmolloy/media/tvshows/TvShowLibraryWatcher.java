@@ -0,0 +1,274 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.willmolloy.media.tvshows.parser.EpisodeIndex;
+import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.tvshows.repository.CoalescingTvShowRepository;
+import com.willmolloy.media.util.Env;
+import com.willmolloy.media.util.MetricsEndpoint;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Starting point for watching a TV show library and renaming seasons as they change.
+ *
+ * <p>The library, show and season directories are registered with a {@link WatchService} (it isn't
+ * recursive). Events are debounced per season directory, a season is only renamed once it has been
+ * quiet for the debounce period. So a burst of events (e.g. a download writing a file) results in
+ * one rename once it finishes.
+ *
+ * <p>Only the affected seasons are parsed, looked up and renamed, and only if their fingerprint
+ * changed (see {@link SeasonFingerprints}). This also stops the events raised by our own renames
+ * from triggering another rename.
+ *
+ * <p>State is one watch key per registered directory plus at most one pending entry per season
+ * directory, so memory is bounded by the size of the library rather than the number of events.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryWatcher implements Closeable {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int LIBRARY_DEPTH = 0;
+  private static final int SHOW_DEPTH = 1;
+  private static final int SEASON_DEPTH = 2;
+
+  private final TvShowParser tvShowParser;
+  private final TvShowRenamer tvShowRenamer;
+  private final SeasonFingerprints seasonFingerprints;
+  private final Path libraryDir;
+  private final long debounceNanos;
+  private final WatchService watchService;
+
+  // only accessed by the thread calling run
+  private final Map<WatchKey, WatchedDir> watchedDirs = new HashMap<>();
+  private final Map<Path, Long> pendingSeasons = new HashMap<>();
+
+  TvShowLibraryWatcher(
+      TvShowParser tvShowParser,
+      TvShowRenamer tvShowRenamer,
+      SeasonFingerprints seasonFingerprints,
+      Path libraryDir,
+      Duration debounce)
+      throws IOException {
+    this.tvShowParser = checkNotNull(tvShowParser);
+    this.tvShowRenamer = checkNotNull(tvShowRenamer);
+    this.seasonFingerprints = checkNotNull(seasonFingerprints);
+    this.libraryDir = libraryDir.toAbsolutePath().normalize();
+    checkArgument(Files.isDirectory(this.libraryDir), "%s is not a directory", libraryDir);
+    checkArgument(!debounce.isNegative(), "negative debounce");
+    this.debounceNanos = debounce.toNanos();
+    this.watchService = this.libraryDir.getFileSystem().newWatchService();
+  }
+
+  /**
+   * Watches the library until {@link #close()}d or interrupted.
+   *
+   * <p>Every season is checked on start up, to catch changes made while not watching.
+   *
+   * @param dryRun if true, only log the renames
+   * @throws InterruptedException if interrupted while waiting for events
+   */
+  void run(boolean dryRun) throws InterruptedException {
+    checkState(register(libraryDir, LIBRARY_DEPTH), "Error watching library: %s", libraryDir);
+    for (Path showDir : tvShowParser.findShowDirs(libraryDir)) {
+      registerShow(showDir, System.nanoTime());
+    }
+    log.info("Watching {} directories under: {}", watchedDirs.size(), libraryDir);
+
+    try {
+      while (true) {
+        WatchKey key = pendingSeasons.isEmpty() ? watchService.take() : poll();
+        long now = System.nanoTime();
+        if (key != null) {
+          handle(key, now);
+        }
+        renameDueSeasons(dryRun, now);
+      }
+    } catch (ClosedWatchServiceException e) {
+      log.info("Stopped watching: {}", libraryDir);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  private WatchKey poll() throws InterruptedException {
+    long nextDeadline = pendingSeasons.values().stream().mapToLong(Long::longValue).min().orElse(0);
+    return watchService.poll(Math.max(0, nextDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  private void handle(WatchKey key, long now) {
+    WatchedDir watchedDir = watchedDirs.get(key);
+    Path dir = watchedDir.dir();
+    int depth = watchedDir.depth();
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        // events were lost, assume everything under the directory changed
+        log.warn("Events overflowed, rescanning: {}", dir);
+        if (depth == SEASON_DEPTH) {
+          debounce(dir, now);
+        } else {
+          rescan(dir, depth, now);
+        }
+        continue;
+      }
+
+      Path child = dir.resolve((Path) event.context());
+      if (depth == SEASON_DEPTH) {
+        debounce(dir, now);
+      } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+        if (depth == SHOW_DEPTH) {
+          registerSeason(child, now);
+        } else if (tvShowParser.isShowDir(child)) {
+          registerShow(child, now);
+        }
+      }
+    }
+
+    if (!key.reset()) {
+      // directory deleted (or no longer accessible)
+      log.debug("No longer watching: {}", dir);
+      watchedDirs.remove(key);
+      pendingSeasons.remove(dir);
+    }
+  }
+
+  private void rescan(Path dir, int depth, long now) {
+    if (depth == SHOW_DEPTH) {
+      registerShow(dir, now);
+    } else {
+      tvShowParser.findShowDirs(dir).forEach(showDir -> registerShow(showDir, now));
+    }
+  }
+
+  private void registerShow(Path showDir, long now) {
+    if (!register(showDir, SHOW_DEPTH)) {
+      return;
+    }
+    try (Stream<Path> children = Files.list(showDir)) {
+      children.filter(Files::isDirectory).forEach(seasonDir -> registerSeason(seasonDir, now));
+    } catch (IOException e) {
+      // e.g. deleted before it could be listed, it'll be picked up again if it comes back
+      log.warn("Error listing show: %s".formatted(showDir), e);
+    }
+  }
+
+  private void registerSeason(Path seasonDir, long now) {
+    if (register(seasonDir, SEASON_DEPTH)) {
+      debounce(seasonDir, now);
+    }
+  }
+
+  private boolean register(Path dir, int depth) {
+    try {
+      // registering an already registered directory returns the same key
+      WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      watchedDirs.put(key, new WatchedDir(dir, depth));
+      return true;
+    } catch (IOException e) {
+      // e.g. deleted straight after being created, don't stop watching everything else
+      log.warn("Error watching directory: %s".formatted(dir), e);
+      return false;
+    }
+  }
+
+  private void debounce(Path seasonDir, long now) {
+    // restarting the wait on every event, so a season is only renamed once it goes quiet
+    pendingSeasons.put(seasonDir, now + debounceNanos);
+  }
+
+  private void renameDueSeasons(boolean dryRun, long now) {
+    Map<Path, Set<Path>> dueSeasonsByShow = new TreeMap<>();
+    for (Iterator<Map.Entry<Path, Long>> it = pendingSeasons.entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<Path, Long> pending = it.next();
+      if (pending.getValue() - now <= 0) {
+        it.remove();
+        Path seasonDir = pending.getKey();
+        if (Files.isDirectory(seasonDir)) {
+          dueSeasonsByShow
+              .computeIfAbsent(seasonDir.getParent(), showDir -> new TreeSet<>())
+              .add(seasonDir);
+        }
+      }
+    }
+    if (dueSeasonsByShow.isEmpty()) {
+      return;
+    }
+
+    dueSeasonsByShow.forEach(
+        (showDir, seasonDirs) -> {
+          try {
+            tvShowRenamer.runChangedSeasons(showDir, dryRun, seasonDirs);
+          } catch (Exception e) {
+            // keep watching, the season is retried next time it changes
+            log.error("Error processing show: %s".formatted(showDir), e);
+          }
+        });
+    if (!dryRun) {
+      seasonFingerprints.save();
+    }
+  }
+
+  private record WatchedDir(Path dir, int depth) {}
+
+  public static void main(String... args) {
+    try {
+      checkArgument(args.length == 2, "Expected 2 args");
+      Path libraryDir = Path.of(args[0]);
+      boolean dryRun = Boolean.parseBoolean(args[1]);
+      Duration debounce =
+          Duration.ofSeconds(Env.intEnv("MEDIA_FILE_RENAMER_WATCH_DEBOUNCE_SECONDS", 30));
+
+      CoalescingTvShowRepository tvShowRepository = TvShowRenamer.constructRepository();
+      SeasonFingerprints seasonFingerprints = TvShowRenamer.loadSeasonFingerprints();
+      TvShowParser tvShowParser = TvShowRenamer.constructParser(EpisodeIndex.disabled());
+      Optional<MetricsEndpoint> metricsEndpoint = Env.startMetricsEndpoint();
+      try (TvShowLibraryWatcher app =
+          new TvShowLibraryWatcher(
+              tvShowParser,
+              TvShowRenamer.construct(tvShowRepository, seasonFingerprints),
+              seasonFingerprints,
+              libraryDir,
+              debounce)) {
+        log.info(
+            "Running - libraryDir={}, dryRun={}, debounce={}", libraryDir, dryRun, debounce);
+        app.run(dryRun);
+      } finally {
+        metricsEndpoint.ifPresent(MetricsEndpoint::close);
+      }
+    } catch (Throwable e) {
+      log.fatal("Fatal error", e);
+    }
+  }
+}
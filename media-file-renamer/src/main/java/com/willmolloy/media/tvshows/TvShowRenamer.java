@@ -3,18 +3,39 @@ package com.willmolloy.media.tvshows;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
-import com.google.common.base.Strings;
+import com.willmolloy.media.rename.Move;
+import com.willmolloy.media.rename.RenameExecutor;
+import com.willmolloy.media.rename.RenameJournal;
+import com.willmolloy.media.rename.RenamePlan;
+import com.willmolloy.media.rename.RenamePlanner;
 import com.willmolloy.media.tvshows.enricher.EnrichedTvShow;
 import com.willmolloy.media.tvshows.enricher.TvShowEnricher;
+import com.willmolloy.media.tvshows.parser.EpisodeIndex;
+import com.willmolloy.media.tvshows.parser.TvShow;
 import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.tvshows.repository.CoalescingTvShowRepository;
+import com.willmolloy.media.tvshows.repository.HedgingTvShowRepository;
+import com.willmolloy.media.tvshows.repository.MemoryCachingTvShowRepository;
+import com.willmolloy.media.tvshows.repository.MeteredTvShowRepository;
+import com.willmolloy.media.tvshows.repository.TvShowRepository;
+import com.willmolloy.media.tvshows.repository.offline.LocalTvShowRepository;
+import com.willmolloy.media.tvshows.repository.offline.OfflineTvShowRepository;
 import com.willmolloy.media.tvshows.repository.themoviedb.TheMovieDatabase;
+import com.willmolloy.media.util.Env;
+import com.willmolloy.media.util.FileFingerprinter;
 import com.willmolloy.media.util.HttpHelper;
 import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.PersistentCache;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.regex.Pattern;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -27,89 +48,318 @@ class TvShowRenamer {
 
   private static final Logger log = LogManager.getLogger();
 
-  private static final Pattern ILLEGAL_PATH_CHARS = Pattern.compile("[\\\\/:*?\"<>|]");
+  private static final String INCREMENTAL_FLAG = "--incremental";
+  private static final String ROLLBACK_FLAG = "--rollback";
 
   private final TvShowParser tvShowParser;
   private final TvShowEnricher tvShowEnricher;
+  private final SeasonFingerprints seasonFingerprints;
+  private final EpisodeIndex episodeIndex;
+  private final RenamePlanner renamePlanner;
+  private final RenameExecutor renameExecutor;
+  private final EpisodeFileNameTemplate fileNameTemplate;
 
-  TvShowRenamer(TvShowParser tvShowParser, TvShowEnricher tvShowEnricher) {
+  TvShowRenamer(
+      TvShowParser tvShowParser,
+      TvShowEnricher tvShowEnricher,
+      SeasonFingerprints seasonFingerprints,
+      EpisodeIndex episodeIndex,
+      RenamePlanner renamePlanner,
+      RenameExecutor renameExecutor,
+      EpisodeFileNameTemplate fileNameTemplate) {
     this.tvShowParser = checkNotNull(tvShowParser);
     this.tvShowEnricher = checkNotNull(tvShowEnricher);
+    this.seasonFingerprints = checkNotNull(seasonFingerprints);
+    this.episodeIndex = checkNotNull(episodeIndex);
+    this.renamePlanner = checkNotNull(renamePlanner);
+    this.renameExecutor = checkNotNull(renameExecutor);
+    this.fileNameTemplate = checkNotNull(fileNameTemplate);
   }
 
-  private void run(Path showDir, boolean dryRun) throws IOException {
-    EnrichedTvShow tvShow = tvShowEnricher.enrich(tvShowParser.parse(showDir));
-    int renameCount = 0;
+  /**
+   * Renames the episodes of a single TV show.
+   *
+   * @param showDir path to show directory
+   * @param dryRun if true, only log the renames
+   * @param incremental if true, skip seasons unchanged since their last (non dry) run
+   * @return number of files renamed (or that would be renamed if {@code dryRun})
+   * @throws IOException if a rename fails
+   */
+  int run(Path showDir, boolean dryRun, boolean incremental) throws IOException {
+    return run(
+        showDir,
+        dryRun,
+        incremental ? seasonFingerprints::hasChanged : (seasonDir, entries) -> true);
+  }
+
+  /**
+   * Renames the episodes of the given seasons of a single TV show, if they changed since their last
+   * (non dry) run.
+   *
+   * @param showDir path to show directory
+   * @param dryRun if true, only log the renames
+   * @param seasonDirs paths to season directories (within {@code showDir}) to rename
+   * @return number of files renamed (or that would be renamed if {@code dryRun})
+   * @throws IOException if a rename fails
+   */
+  int runChangedSeasons(Path showDir, boolean dryRun, Set<Path> seasonDirs) throws IOException {
+    return run(
+        showDir,
+        dryRun,
+        (seasonDir, entries) ->
+            seasonDirs.contains(seasonDir) && seasonFingerprints.hasChanged(seasonDir, entries));
+  }
+
+  private int run(Path showDir, boolean dryRun, TvShowParser.SeasonFilter seasonFilter)
+      throws IOException {
+    Optional<TvShow> parsed = tvShowParser.parse(showDir, seasonFilter);
+    if (parsed.isEmpty()) {
+      log.info("No changes since last run: {}", showDir);
+      return 0;
+    }
+
+    EnrichedTvShow tvShow = tvShowEnricher.enrich(parsed.get());
 
+    // plan every rename up front, so collisions are found before anything is moved
+    List<Move> moves = new ArrayList<>();
+    List<IdentifiedEpisode> identifiedEpisodes = new ArrayList<>();
+    EpisodeFileNameBuilder fileNameBuilder = new EpisodeFileNameBuilder(fileNameTemplate);
     for (EnrichedTvShow.EnrichedSeason season : tvShow.seasons()) {
       log.info("Processing season {} ({} episodes)", season.seasonNum(), season.episodes().size());
 
-      for (EnrichedTvShow.EnrichedEpisode episode : season.episodes()) {
-        String fileName = episode.file().getFileName().toString();
-        String fileSuffix = fileName.substring(fileName.lastIndexOf("."));
-
-        String newFileName =
-            "%s S%sE%s%s%s"
-                .formatted(
-                    tvShow.showName(),
-                    padLength2(season.seasonNum()),
-                    padLength2(episode.episodeNum()),
-                    ILLEGAL_PATH_CHARS
-                        .matcher(episode.episodeName().map(s -> " %s".formatted(s)).orElse(""))
-                        .replaceAll(""),
-                    fileSuffix);
-        Path newPath = episode.file().resolveSibling(newFileName);
-
-        if (!episode.file().equals(newPath)) {
-          log.info("Renaming: {} -> {}", episode.file(), newPath);
-          renameCount++;
-          if (!dryRun) {
-            Files.move(episode.file(), newPath);
-          }
+      for (TvShow.Episode episode : season.episodes()) {
+        String fileName = episode.file().fileName();
+        CharSequence newFileName =
+            fileNameBuilder.build(
+                tvShow.showName(),
+                tvShow.showYear(),
+                season.seasonNum(),
+                episode.episodeNum(),
+                season.episodeName(episode),
+                fileName);
+        Path file = episode.file().path();
+        Path newFile = file;
+        // most files are already named correctly after the first run, skip them cheaply (without
+        // creating a string or path)
+        if (!fileNameBuilder.matches(fileName)) {
+          newFile = file.resolveSibling(newFileName.toString());
+          moves.add(new Move(file, newFile));
         }
+        identifiedEpisodes.add(
+            new IdentifiedEpisode(season.seasonNum(), episode.episodeNum(), newFile));
+      }
+    }
+
+    RenamePlan plan = renamePlanner.plan(moves);
+    for (Move move : plan.moves()) {
+      log.info("Renaming: {} -> {}", move.source(), move.target());
+    }
+
+    if (!dryRun) {
+      if (!plan.isEmpty()) {
+        renameExecutor.execute(showDir.getFileName().toString(), plan);
       }
+      for (EnrichedTvShow.EnrichedSeason season : tvShow.seasons()) {
+        // so it can be skipped next time, if nothing changes
+        seasonFingerprints.record(season.directory().path());
+      }
+      // so they keep their numbers, even if renamed to something without one
+      for (IdentifiedEpisode episode : identifiedEpisodes) {
+        episodeIndex.record(
+            tvShow.showName(),
+            tvShow.showYear(),
+            episode.seasonNum(),
+            episode.episodeNum(),
+            episode.file());
+      }
+      episodeIndex.save();
     }
 
+    int renameCount = plan.moves().size();
     log.info("Renamed {} file(s)", renameCount);
 
     if (dryRun) {
       log.info("Dry run. Please check the above output");
     }
+    return renameCount;
   }
 
-  private String padLength2(int i) {
-    return Strings.padStart(String.valueOf(i), 2, '0');
+  private record IdentifiedEpisode(int seasonNum, int episodeNum, Path file) {}
+
+  /** Logs the throughput and latency of the renames done so far, per file store. */
+  void logRenameStats() {
+    renameExecutor.logStats();
   }
 
   public static void main(String... args) {
     Stopwatch stopwatch = Stopwatch.createStarted();
     try {
-      checkArgument(args.length == 2, "Expected 2 args");
+      if (args.length > 0 && args[0].equals(ROLLBACK_FLAG)) {
+        checkArgument(args.length == 2, "Expected %s <journal file>", ROLLBACK_FLAG);
+        renameJournal().rollback(Path.of(args[1]));
+        return;
+      }
+
+      checkArgument(args.length >= 2, "Expected at least 2 args");
       // Process 1 show at a time rather than all shows. Some shows require manual intervention
       // (e.g. joint episodes) which can't really be automated. So reprocessing all shows would mess
       // up the data.
       Path showDir = Path.of(args[0]);
       boolean dryRun = Boolean.parseBoolean(args[1]);
+      boolean incremental = parseFlags(args, 2).contains(INCREMENTAL_FLAG);
 
-      TvShowRenamer app = construct();
+      CoalescingTvShowRepository tvShowRepository = constructRepository();
+      SeasonFingerprints seasonFingerprints = loadSeasonFingerprints();
+      TvShowRenamer app = construct(tvShowRepository, seasonFingerprints);
 
-      log.info("Running - showDir={}, dryRun={}", showDir, dryRun);
-      app.run(showDir, dryRun);
+      log.info(
+          "Running - showDir={}, dryRun={}, incremental={}", showDir, dryRun, incremental);
+      try {
+        app.run(showDir, dryRun, incremental);
+      } finally {
+        seasonFingerprints.save();
+      }
+      logRepositoryStats(tvShowRepository);
+      app.logRenameStats();
     } catch (Throwable e) {
       log.fatal("Fatal error", e);
     } finally {
       log.info("Elapsed: {}", stopwatch.elapsed());
+      Env.exportMetrics();
     }
   }
 
-  private static TvShowRenamer construct() {
-    String movieDbApiKey = System.getenv("THE_MOVIE_DB_API_KEY");
-    checkNotNull(movieDbApiKey, "THE_MOVIE_DB_API_KEY not set");
+  static CoalescingTvShowRepository constructRepository() {
+    String providerNames = System.getenv("MEDIA_FILE_RENAMER_PROVIDERS");
+    if (providerNames == null) {
+      // no network at all if there's an offline index, e.g. for large backfills
+      providerNames =
+          System.getenv("MEDIA_FILE_RENAMER_OFFLINE_INDEX") != null ? "offline" : "themoviedb";
+    }
+    List<HedgingTvShowRepository.Provider> providers =
+        Splitter.on(',').trimResults().omitEmptyStrings().splitToList(providerNames).stream()
+            .map(name -> new HedgingTvShowRepository.Provider(name, constructProvider(name)))
+            .toList();
+    checkArgument(!providers.isEmpty(), "No providers: %s", providerNames);
+    if (providers.size() == 1 && providers.get(0).name().equals("offline")) {
+      // already memory mapped, not worth caching again
+      return new CoalescingTvShowRepository(providers.get(0).repository());
+    }
+
+    TvShowRepository repository =
+        providers.size() == 1
+            ? providers.get(0).repository()
+            : new HedgingTvShowRepository(
+                providers,
+                Duration.ofMillis(Env.intEnv("MEDIA_FILE_RENAMER_HEDGE_INITIAL_DELAY_MS", 1000)),
+                Env.intEnv("MEDIA_FILE_RENAMER_HEDGE_MAX_THREADS", 16));
+    return new CoalescingTvShowRepository(
+        new MemoryCachingTvShowRepository(
+            repository, Env.intEnv("MEDIA_FILE_RENAMER_MEMORY_CACHE_MB", 64) * 1024L * 1024));
+  }
+
+  private static TvShowRepository constructProvider(String name) {
+    return switch (name) {
+      case "themoviedb" -> constructTheMovieDatabase();
+      case "local" -> new MeteredTvShowRepository(
+          new LocalTvShowRepository(
+              Path.of(requiredEnv("MEDIA_FILE_RENAMER_LOCAL_DIR")), new JsonHelper()),
+          "local");
+      case "offline" -> new MeteredTvShowRepository(
+          new OfflineTvShowRepository(Path.of(requiredEnv("MEDIA_FILE_RENAMER_OFFLINE_INDEX"))),
+          "offline");
+      default -> throw new IllegalArgumentException("Unknown provider: %s".formatted(name));
+    };
+  }
+
+  private static TvShowRepository constructTheMovieDatabase() {
+    String movieDbApiKey = requiredEnv("THE_MOVIE_DB_API_KEY");
+    JsonHelper jsonHelper = new JsonHelper();
+    PersistentCache persistentCache =
+        new PersistentCache(Env.cacheDir().resolve("themoviedb.cache"), jsonHelper);
+    HttpHelper httpHelper = new HttpHelper(jsonHelper, Env.httpSettings());
     TheMovieDatabase theMovieDatabase =
-        new TheMovieDatabase(movieDbApiKey, new HttpHelper(new JsonHelper()));
+        new TheMovieDatabase(movieDbApiKey, httpHelper, persistentCache);
+    // no disk tier in front, The Movie Database caches seasons (and show ids) on disk itself
+    return new MeteredTvShowRepository(theMovieDatabase, "themoviedb");
+  }
+
+  private static String requiredEnv(String name) {
+    return checkNotNull(System.getenv(name), "%s not set", name);
+  }
+
+  static SeasonFingerprints loadSeasonFingerprints() {
+    return SeasonFingerprints.load(
+        Env.cacheDir().resolve("season-fingerprints.json"), new JsonHelper());
+  }
+
+  static EpisodeIndex loadEpisodeIndex() {
+    // opt in, the first run reads (a little of) every file in the library
+    if (!Boolean.parseBoolean(System.getenv("MEDIA_FILE_RENAMER_CONTENT_INDEX"))) {
+      return EpisodeIndex.disabled();
+    }
+    JsonHelper jsonHelper = new JsonHelper();
+    return EpisodeIndex.load(
+        Env.cacheDir().resolve("episode-index.json"),
+        jsonHelper,
+        FileFingerprinter.load(Env.cacheDir().resolve("file-fingerprints.json"), jsonHelper));
+  }
+
+  static TvShowParser constructParser(EpisodeIndex episodeIndex) {
+    return new TvShowParser(Env.intEnv("MEDIA_FILE_RENAMER_PARSE_PARALLELISM", 8), episodeIndex);
+  }
+
+  static TvShowRenamer construct(
+      TvShowRepository tvShowRepository, SeasonFingerprints seasonFingerprints) {
+    EpisodeIndex episodeIndex = loadEpisodeIndex();
+    TvShowParser tvShowParser = constructParser(episodeIndex);
+    TvShowEnricher tvShowEnricher = new TvShowEnricher(tvShowRepository);
+    return new TvShowRenamer(
+        tvShowParser,
+        tvShowEnricher,
+        seasonFingerprints,
+        episodeIndex,
+        new RenamePlanner(),
+        new RenameExecutor(
+            renameJournal(),
+            Env.intEnv("MEDIA_FILE_RENAMER_RENAME_CONCURRENCY", 4),
+            Env.concurrencyByStoreName(
+                System.getenv("MEDIA_FILE_RENAMER_RENAME_CONCURRENCY_BY_STORE"))),
+        fileNameTemplate());
+  }
+
+  static EpisodeFileNameTemplate fileNameTemplate() {
+    String template =
+        Optional.ofNullable(System.getenv("MEDIA_FILE_RENAMER_NAMING_TEMPLATE"))
+            .orElse(EpisodeFileNameTemplate.DEFAULT);
+    // compiled once up front, so an invalid template fails before anything is renamed
+    EpisodeFileNameTemplate compiled = EpisodeFileNameTemplate.compile(template);
+    log.info("Naming episodes like: {}", compiled);
+    return compiled;
+  }
+
+  static RenameJournal renameJournal() {
+    return new RenameJournal(
+        Env.cacheDir().resolve("journals"), new JsonHelper(), Env.journalRetention());
+  }
+
+  /**
+   * Parses the optional flags following the positional args.
+   *
+   * @param args program args
+   * @param from index of the first flag
+   * @return flags
+   */
+  static Set<String> parseFlags(String[] args, int from) {
+    Set<String> flags = new HashSet<>();
+    for (int i = from; i < args.length; i++) {
+      checkArgument(args[i].equals(INCREMENTAL_FLAG), "Unknown flag: %s", args[i]);
+      flags.add(args[i]);
+    }
+    return flags;
+  }
 
-    TvShowParser tvShowParser = new TvShowParser();
-    TvShowEnricher tvShowEnricher = new TvShowEnricher(theMovieDatabase);
-    return new TvShowRenamer(tvShowParser, tvShowEnricher);
+  static void logRepositoryStats(CoalescingTvShowRepository tvShowRepository) {
+    tvShowRepository.logStats();
   }
 }
@@ -3,55 +3,75 @@ package com.willmolloy.media.tvshows.enricher;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import com.willmolloy.media.tvshows.parser.TvShow;
+import com.willmolloy.media.util.FileEntry;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import org.apache.logging.log4j.util.Strings;
 
 /**
  * TV show with data enriched.
  *
- * @param showName show name
- * @param showYear show year (first air date)
- * @param seasons seasons
+ * <p>Wraps the parsed {@link TvShow} rather than copying it, the enriched data sits alongside.
+ *
+ * @param tvShow parsed TV show
+ * @param seasons enriched seasons, in the same order as {@code tvShow.seasons()}
  * @author <a href=https://willmolloy.com>Will Molloy</a>
  */
-// TODO duplicate with TvShow class. Anyway to inherit code from another record?
-public record EnrichedTvShow(String showName, int showYear, List<EnrichedSeason> seasons) {
+public record EnrichedTvShow(TvShow tvShow, List<EnrichedSeason> seasons) {
   public EnrichedTvShow {
-    checkArgument(Strings.isNotBlank(showName), "blank showName");
-    checkArgument(showYear > 0, "showYear (%s) <= 0", showYear);
-    checkArgument(!seasons.isEmpty(), "empty seasons list");
+    checkNotNull(tvShow, "null tvShow");
+    checkArgument(
+        seasons.size() == tvShow.seasons().size(),
+        "seasons (%s) != parsed seasons (%s)",
+        seasons.size(),
+        tvShow.seasons().size());
+  }
+
+  public String showName() {
+    return tvShow.showName();
+  }
+
+  public int showYear() {
+    return tvShow.showYear();
   }
 
   /**
    * Enriched TV show season.
    *
-   * @param seasonNum season number
-   * @param directory path to season directory
-   * @param episodes episodes
+   * @param season parsed season
+   * @param episodeNames episode names by episode number (may not include every episode)
    */
-  public record EnrichedSeason(int seasonNum, Path directory, List<EnrichedEpisode> episodes) {
+  public record EnrichedSeason(TvShow.Season season, Map<Integer, String> episodeNames) {
     public EnrichedSeason {
-      checkArgument(seasonNum >= 0, "seasonNum (%s) < 0", seasonNum);
-      checkArgument(Files.isDirectory(directory), "directory (%s) is not a directory", directory);
-      checkArgument(!episodes.isEmpty(), "empty episodes list");
+      checkNotNull(season, "null season");
+      checkNotNull(episodeNames, "null episodeNames map");
     }
-  }
 
-  /**
-   * Enriched TV show episode.
-   *
-   * @param episodeNum episode number
-   * @param file path to episode file (video)
-   * @param episodeName episode name
-   */
-  public record EnrichedEpisode(int episodeNum, Path file, Optional<String> episodeName) {
-    public EnrichedEpisode {
-      checkArgument(episodeNum > 0, "episodeNum (%s) <= 0", episodeNum);
-      checkArgument(Files.isRegularFile(file), "file (%s) is not a regular file", file);
-      checkNotNull(episodeName, "null episodeName optional");
+    public int seasonNum() {
+      return season.seasonNum();
+    }
+
+    public FileEntry directory() {
+      return season.directory();
+    }
+
+    public List<TvShow.Episode> episodes() {
+      return season.episodes();
+    }
+
+    public List<TvShow.Episode> skipped() {
+      return season.skipped();
+    }
+
+    /**
+     * Name of an episode in this season.
+     *
+     * @param episode episode
+     * @return episode name, empty if not found
+     */
+    public Optional<String> episodeName(TvShow.Episode episode) {
+      return Optional.ofNullable(episodeNames.get(episode.episodeNum()));
     }
   }
 }
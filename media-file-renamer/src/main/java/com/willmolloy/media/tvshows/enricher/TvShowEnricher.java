@@ -1,12 +1,13 @@
 package com.willmolloy.media.tvshows.enricher;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 
 import com.willmolloy.media.tvshows.parser.TvShow;
 import com.willmolloy.media.tvshows.repository.TvShowRepository;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -34,28 +35,31 @@ public class TvShowEnricher {
   public EnrichedTvShow enrich(TvShow tvShow) {
     log.info("Enriching data for show: {} ({})", tvShow.showName(), tvShow.showYear());
 
-    List<EnrichedTvShow.EnrichedSeason> seasons = enrichSeasons(tvShow);
-    EnrichedTvShow enrichedTvShow =
-        new EnrichedTvShow(tvShow.showName(), tvShow.showYear(), seasons);
+    EnrichedTvShow enrichedTvShow = new EnrichedTvShow(tvShow, enrichSeasons(tvShow));
 
     log.debug("Enriched TV show: {}", enrichedTvShow);
     return enrichedTvShow;
   }
 
   private List<EnrichedTvShow.EnrichedSeason> enrichSeasons(TvShow tvShow) {
+    // every season is looked up at once, so the repository can batch the requests
+    Set<Integer> seasonNums =
+        tvShow.seasons().stream().map(TvShow.Season::seasonNum).collect(toUnmodifiableSet());
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+        tvShowRepository.getEpisodeNamesBySeason(tvShow.showName(), tvShow.showYear(), seasonNums);
+
     return tvShow.seasons().stream()
         .map(
-            season -> {
-              List<EnrichedTvShow.EnrichedEpisode> episodes = enrichEpisodes(tvShow, season);
-              return new EnrichedTvShow.EnrichedSeason(
-                  season.seasonNum(), season.directory(), episodes);
-            })
+            season ->
+                new EnrichedTvShow.EnrichedSeason(
+                    season,
+                    checkEpisodes(tvShow, season, episodeNamesBySeason.get(season.seasonNum()))))
         .toList();
   }
 
-  private List<EnrichedTvShow.EnrichedEpisode> enrichEpisodes(TvShow tvShow, TvShow.Season season) {
-    Map<Integer, String> episodeNames =
-        tvShowRepository.getEpisodeNames(tvShow.showName(), tvShow.showYear(), season.seasonNum());
+  private Map<Integer, String> checkEpisodes(
+      TvShow tvShow, TvShow.Season season, Map<Integer, String> episodeNames) {
+    checkNotNull(episodeNames, "No lookup for season %s", season.seasonNum());
     if (episodeNames.size() != season.episodes().size()) {
       log.warn(
           "{} found {} episodes for {} ({}) Season {} but parser parsed {} episodes",
@@ -67,23 +71,18 @@ public class TvShowEnricher {
           season.episodes().size());
     }
 
-    return season.episodes().stream()
-        .map(
-            episode -> {
-              Optional<String> episodeName =
-                  Optional.ofNullable(episodeNames.get(episode.episodeNum()));
-              if (episodeName.isEmpty()) {
-                log.warn(
-                    "{} did not find episode name for {} ({}) Season {} Episode {}",
-                    tvShowRepository.getClass().getSimpleName(),
-                    tvShow.showName(),
-                    tvShow.showYear(),
-                    season.seasonNum(),
-                    episode.episodeNum());
-              }
-              return new EnrichedTvShow.EnrichedEpisode(
-                  episode.episodeNum(), episode.file(), episodeName);
-            })
-        .toList();
+    for (TvShow.Episode episode : season.episodes()) {
+      if (!episodeNames.containsKey(episode.episodeNum())) {
+        log.warn(
+            "{} did not find episode name for {} ({}) Season {} Episode {}",
+            tvShowRepository.getClass().getSimpleName(),
+            tvShow.showName(),
+            tvShow.showYear(),
+            season.seasonNum(),
+            episode.episodeNum());
+      }
+    }
+    // kept as is, rather than copied into a list of enriched episodes
+    return episodeNames;
   }
 }
@@ -0,0 +1,167 @@
+package com.willmolloy.media.tvshows.parser;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileFingerprinter;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.StateFiles;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Index of episode files by content, so a file identified once keeps its episode number even if
+ * renamed to something without one (e.g. by a naming template without {@code {episode}}).
+ *
+ * <p>Files are identified by their {@link FileFingerprinter} fingerprint, so an unchanged file is
+ * only ever read once.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public final class EpisodeIndex {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final Path file;
+  private final JsonHelper jsonHelper;
+  private final FileFingerprinter fileFingerprinter;
+  private final Map<String, Identity> identitiesByHash;
+  // show and season keys with at least one identity, files elsewhere can't match so aren't read
+  private final Set<String> indexedSeasons = ConcurrentHashMap.newKeySet();
+
+  private EpisodeIndex(
+      Path file,
+      JsonHelper jsonHelper,
+      FileFingerprinter fileFingerprinter,
+      Map<String, Identity> identitiesByHash) {
+    this.file = file;
+    this.jsonHelper = jsonHelper;
+    this.fileFingerprinter = fileFingerprinter;
+    this.identitiesByHash = new ConcurrentHashMap<>(identitiesByHash);
+    identitiesByHash.values().forEach(identity -> indexedSeasons.add(identity.seasonKey()));
+  }
+
+  /**
+   * Index which identifies nothing and records nothing, for when it isn't wanted (first runs read
+   * every file).
+   *
+   * @return {@link EpisodeIndex}
+   */
+  public static EpisodeIndex disabled() {
+    return new EpisodeIndex(null, null, null, Map.of());
+  }
+
+  /**
+   * Loads the index saved to a file (if it exists).
+   *
+   * @param file state file
+   * @param jsonHelper {@link JsonHelper}
+   * @param fileFingerprinter {@link FileFingerprinter} identifying the files
+   * @return {@link EpisodeIndex}
+   */
+  public static EpisodeIndex load(
+      Path file, JsonHelper jsonHelper, FileFingerprinter fileFingerprinter) {
+    checkNotNull(file);
+    checkNotNull(jsonHelper);
+    checkNotNull(fileFingerprinter);
+    Map<String, Identity> identitiesByHash =
+        StateFiles.readJson(file, jsonHelper, State.class, "episode index")
+            .map(State::identitiesByHash)
+            .orElse(Map.of());
+    log.debug("Loaded {} episode identities from {}", identitiesByHash.size(), file);
+    return new EpisodeIndex(file, jsonHelper, fileFingerprinter, identitiesByHash);
+  }
+
+  /**
+   * Looks up the episode number the file was identified as.
+   *
+   * @param showName show name
+   * @param showYear show year
+   * @param seasonNum season the file is in
+   * @param episodeFile episode file
+   * @return episode number, or empty if not identified as an episode of this season
+   */
+  OptionalInt episodeNum(String showName, int showYear, int seasonNum, FileEntry episodeFile) {
+    if (file == null || !indexedSeasons.contains(seasonKey(showName, showYear, seasonNum))) {
+      return OptionalInt.empty();
+    }
+    Identity identity = identitiesByHash.get(fileFingerprinter.fingerprint(episodeFile));
+    if (identity == null
+        || !identity.showName().equals(showName)
+        || identity.showYear() != showYear
+        || identity.seasonNum() != seasonNum) {
+      return OptionalInt.empty();
+    }
+    return OptionalInt.of(identity.episodeNum());
+  }
+
+  /**
+   * Records the episode a file was identified as.
+   *
+   * @param showName show name
+   * @param showYear show year
+   * @param seasonNum season number
+   * @param episodeNum episode number
+   * @param episodeFile path to episode file (as of now, i.e. after it was renamed)
+   */
+  public void record(
+      String showName, int showYear, int seasonNum, int episodeNum, Path episodeFile) {
+    if (file == null) {
+      return;
+    }
+    Identity identity = new Identity(showName, showYear, seasonNum, episodeNum);
+    identitiesByHash.put(fileFingerprinter.fingerprint(FileEntry.of(episodeFile)), identity);
+    indexedSeasons.add(identity.seasonKey());
+  }
+
+  /**
+   * Saves the index (and the fingerprints of files seen this run or in the index), replacing the
+   * file atomically.
+   */
+  public synchronized void save() {
+    if (file == null) {
+      return;
+    }
+    Map<String, Identity> identities = Map.copyOf(identitiesByHash);
+    StateFiles.writeJson(file, jsonHelper, new State(identities), "episode index");
+    log.debug("Saved {} episode identities to {}", identities.size(), file);
+    fileFingerprinter.save(identities.keySet());
+  }
+
+  private static String seasonKey(String showName, int showYear, int seasonNum) {
+    return "%s (%s) Season %s".formatted(showName, showYear, seasonNum);
+  }
+
+  /**
+   * What an episode file was identified as.
+   *
+   * @param showName show name
+   * @param showYear show year
+   * @param seasonNum season number
+   * @param episodeNum episode number
+   */
+  record Identity(String showName, int showYear, int seasonNum, int episodeNum) {
+    Identity {
+      checkNotNull(showName, "null showName");
+      checkArgument(episodeNum > 0, "episodeNum (%s) <= 0", episodeNum);
+    }
+
+    String seasonKey() {
+      return EpisodeIndex.seasonKey(showName, showYear, seasonNum);
+    }
+  }
+
+  private record State(Map<String, Identity> identitiesByHash) {
+    State {
+      checkNotNull(identitiesByHash, "null identitiesByHash map");
+    }
+  }
+}
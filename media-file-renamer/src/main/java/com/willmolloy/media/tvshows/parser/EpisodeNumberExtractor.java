@@ -0,0 +1,80 @@
+package com.willmolloy.media.tvshows.parser;
+
+import java.util.OptionalInt;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts episode numbers from file names, e.g. {@code S01E02}, {@code 1x02}, {@code Ep 2},
+ * {@code Ep 102} (episode 102) or {@code 102} (season 1 episode 2).
+ *
+ * <p>Every naming is an alternative of one precompiled pattern, so a file name is scanned once
+ * rather than once per naming.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+final class EpisodeNumberExtractor {
+
+  // alternatives in order of how much they're trusted, each with its own named groups
+  // after Ep etc. the number is the episode, however many digits. A bare number is 3 digits, a
+  // season and episode (e.g. 102), and must stand alone so it doesn't match 720p or x264
+  private static final Pattern EPISODE_PATTERN =
+      Pattern.compile(
+          "(?<![A-Za-z0-9])(?:"
+              + "[Ss](?<sxeSeason>\\d{1,2})[ ._-]?[Ee](?<sxeEpisode>\\d{1,3})(?![0-9])"
+              + "|(?<xSeason>\\d{1,2})[Xx](?<xEpisode>\\d{1,3})(?![0-9])"
+              + "|(?:[Ee]pisode|[Ee]p|[Ee])[ ._-]?"
+              + "(?<epEpisode>\\d{1,3})(?![0-9])"
+              + "|(?<bareSeason>\\d)(?<bareEpisode>\\d{2})(?![0-9A-Za-z])"
+              + ")");
+
+  // season (null if not named) and episode groups, by rank
+  private static final String[][] GROUPS = {
+    {"sxeSeason", "sxeEpisode"},
+    {"xSeason", "xEpisode"},
+    {null, "epEpisode"},
+    {"bareSeason", "bareEpisode"}
+  };
+  private static final int BARE_RANK = GROUPS.length - 1;
+
+  // a season this long has 3 digit episodes, so e.g. 101 may as well be episode 101 as 1
+  private static final int MAX_BARE_EPISODE_COUNT = 99;
+
+  private EpisodeNumberExtractor() {}
+
+  /**
+   * Extracts the episode number from a file name.
+   *
+   * <p>Numbers naming a different season than the file is in are ignored. So are bare numbers
+   * (e.g. {@code 102}) in seasons of 100 or more episodes, they're ambiguous.
+   *
+   * @param fileName file name
+   * @param seasonNum season the file is in
+   * @param episodeCount number of episode files in the season
+   * @return episode number, or empty if the file name doesn't contain one
+   */
+  static OptionalInt extract(String fileName, int seasonNum, int episodeCount) {
+    Matcher matcher = EPISODE_PATTERN.matcher(fileName);
+    int bestRank = GROUPS.length;
+    int bestEpisodeNum = 0;
+    while (matcher.find()) {
+      for (int rank = 0; rank < bestRank; rank++) {
+        String episode = matcher.group(GROUPS[rank][1]);
+        if (episode == null) {
+          continue;
+        }
+        if (rank == BARE_RANK && episodeCount > MAX_BARE_EPISODE_COUNT) {
+          break;
+        }
+        String season = GROUPS[rank][0] != null ? matcher.group(GROUPS[rank][0]) : null;
+        int episodeNum = Integer.parseInt(episode);
+        if ((season == null || Integer.parseInt(season) == seasonNum) && episodeNum > 0) {
+          bestRank = rank;
+          bestEpisodeNum = episodeNum;
+        }
+        break;
+      }
+    }
+    return bestRank < GROUPS.length ? OptionalInt.of(bestEpisodeNum) : OptionalInt.empty();
+  }
+}
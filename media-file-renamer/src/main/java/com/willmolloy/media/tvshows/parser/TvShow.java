@@ -1,9 +1,9 @@
 package com.willmolloy.media.tvshows.parser;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import com.willmolloy.media.util.FileEntry;
 import java.util.List;
 import org.apache.logging.log4j.util.Strings;
 
@@ -26,14 +26,23 @@ public record TvShow(String showName, int showYear, List<Season> seasons) {
    * TV show season.
    *
    * @param seasonNum season number
-   * @param directory path to season directory
+   * @param directory season directory
    * @param episodes episodes
+   * @param skipped files whose episode number is already taken by another file (e.g. copies),
+   *     left as they are
    */
-  public record Season(int seasonNum, Path directory, List<Episode> episodes) {
+  public record Season(
+      int seasonNum, FileEntry directory, List<Episode> episodes, List<Episode> skipped) {
     public Season {
       checkArgument(seasonNum >= 0, "seasonNum (%s) < 0", seasonNum);
-      checkArgument(Files.isDirectory(directory), "directory (%s) is not a directory", directory);
+      // checked against the attributes read by the parser, rather than hitting the disk again
+      checkArgument(directory.isDirectory(), "directory (%s) is not a directory", directory);
       checkArgument(!episodes.isEmpty(), "empty episodes list");
+      checkNotNull(skipped, "null skipped list");
+    }
+
+    public Season(int seasonNum, FileEntry directory, List<Episode> episodes) {
+      this(seasonNum, directory, episodes, List.of());
     }
   }
 
@@ -41,12 +50,12 @@ public record TvShow(String showName, int showYear, List<Season> seasons) {
    * TV show episode.
    *
    * @param episodeNum episode number
-   * @param file path to episode file (video)
+   * @param file episode file (video)
    */
-  public record Episode(int episodeNum, Path file) {
+  public record Episode(int episodeNum, FileEntry file) {
     public Episode {
       checkArgument(episodeNum > 0, "episodeNum (%s) <= 0", episodeNum);
-      checkArgument(Files.isRegularFile(file), "file (%s) is not a regular file", file);
+      checkArgument(file.isRegularFile(), "file (%s) is not a regular file", file);
     }
   }
 }
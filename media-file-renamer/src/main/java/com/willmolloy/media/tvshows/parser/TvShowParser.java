@@ -1,16 +1,24 @@
 package com.willmolloy.media.tvshows.parser;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.io.IOException;
-import java.io.UncheckedIOException;
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileNames;
+import com.willmolloy.media.util.Metrics;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -23,9 +31,33 @@ public class TvShowParser {
 
   private static final Logger log = LogManager.getLogger();
 
-  private static final Pattern SHOW_DIR_PATTERN = Pattern.compile("(.+?) [(](\\d{4})[)]");
+  private static final Pattern SHOW_DIR_PATTERN = FileNames.NAME_AND_YEAR_PATTERN;
   private static final Pattern SEASON_DIR_PATTERN = Pattern.compile("Season (\\d{2})");
-  private static final Set<String> VIDEO_FILE_EXTENSIONS = Set.of(".mp4", ".mkv", ".avi");
+  private static final Metrics.Timer PARSE_TIMER =
+      Metrics.timer("tvshow_parse_seconds", "Time parsing a show directory");
+
+  private final ForkJoinPool pool;
+  private final EpisodeIndex episodeIndex;
+
+  public TvShowParser() {
+    this(8, EpisodeIndex.disabled());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxConcurrentSeasonListings max number of season directories listed at once
+   * @param episodeIndex {@link EpisodeIndex} of previously identified episode files
+   */
+  public TvShowParser(int maxConcurrentSeasonListings, EpisodeIndex episodeIndex) {
+    checkArgument(
+        maxConcurrentSeasonListings > 0,
+        "maxConcurrentSeasonListings (%s) <= 0",
+        maxConcurrentSeasonListings);
+    // worker threads are daemons, so don't need shutting down
+    this.pool = new ForkJoinPool(maxConcurrentSeasonListings);
+    this.episodeIndex = checkNotNull(episodeIndex);
+  }
 
   /**
    * Parse a {@link TvShow}.
@@ -34,6 +66,25 @@ public class TvShowParser {
    * @return {@link TvShow}
    */
   public TvShow parse(Path showDir) {
+    return parse(showDir, (seasonDir, entries) -> true)
+        .orElseThrow(() -> new IllegalArgumentException("empty seasons list"));
+  }
+
+  /**
+   * Parse a {@link TvShow}, only including the seasons accepted by the given filter.
+   *
+   * <p>Excluded seasons aren't parsed at all. The filter is applied to each season concurrently, as
+   * its directory is listed.
+   *
+   * @param showDir path to show directory
+   * @param seasonFilter whether to include a season directory
+   * @return {@link TvShow}, or empty if every season was excluded
+   */
+  public Optional<TvShow> parse(Path showDir, SeasonFilter seasonFilter) {
+    return PARSE_TIMER.time(() -> parseShow(showDir, seasonFilter));
+  }
+
+  private Optional<TvShow> parseShow(Path showDir, SeasonFilter seasonFilter) {
     log.info("Parsing directory: {}", showDir);
     checkArgument(Files.isDirectory(showDir), "%s is not a directory", showDir);
     String showDirName = showDir.getFileName().toString();
@@ -43,68 +94,196 @@ public class TvShowParser {
 
     String showName = showDirMatcher.group(1);
     int showYear = Integer.parseInt(showDirMatcher.group(2));
-    List<TvShow.Season> seasons = parseSeasons(showDir);
+    Optional<List<TvShow.Season>> seasons =
+        parseSeasons(showName, showYear, showDir, seasonFilter);
+    if (seasons.isEmpty()) {
+      log.info("Every season excluded, skipping show: {}", showDir);
+      return Optional.empty();
+    }
 
-    TvShow tvShow = new TvShow(showName, showYear, seasons);
+    TvShow tvShow = new TvShow(showName, showYear, seasons.get());
     log.debug("Parsed TV show: {}", tvShow);
-    return tvShow;
+    return Optional.of(tvShow);
+  }
+
+  /**
+   * Find the TV show directories directly under a library directory.
+   *
+   * <p>Directories not named like a show (see {@link #SHOW_DIR_PATTERN}) are skipped.
+   *
+   * @param libraryDir path to library directory
+   * @return paths to show directories, sorted
+   */
+  public List<Path> findShowDirs(Path libraryDir) {
+    log.info("Searching library directory: {}", libraryDir);
+    checkArgument(Files.isDirectory(libraryDir), "%s is not a directory", libraryDir);
+    List<Path> showDirs =
+        FileEntry.list(libraryDir).stream()
+            .filter(FileEntry::isDirectory)
+            .map(FileEntry::path)
+            .filter(
+                dir -> {
+                  if (isShowDir(dir)) {
+                    return true;
+                  }
+                  log.warn("Skipping directory {}, doesn't match: {}", dir, SHOW_DIR_PATTERN);
+                  return false;
+                })
+            .sorted()
+            .toList();
+    log.info("Detected {} show(s)", showDirs.size());
+    return showDirs;
+  }
+
+  /**
+   * Whether the directory is named like a TV show directory.
+   *
+   * @param dir path to directory
+   * @return true if named like {@code <Show Name> (<Show Year>)}
+   */
+  public boolean isShowDir(Path dir) {
+    return SHOW_DIR_PATTERN.matcher(dir.getFileName().toString()).matches();
   }
 
-  private List<TvShow.Season> parseSeasons(Path showDir) {
-    try {
-      List<Path> seasonDirs = Files.list(showDir).filter(Files::isDirectory).toList();
-      log.info("Detected {} season(s)", seasonDirs.size());
-
-      return seasonDirs.stream()
-          .map(
-              seasonDir -> {
-                String seasonDirName = seasonDir.getFileName().toString();
-                Matcher seasonDirMatcher = SEASON_DIR_PATTERN.matcher(seasonDirName);
-                checkArgument(
-                    seasonDirMatcher.matches(),
-                    "Directory %s doesnt match: %s",
-                    seasonDirName,
-                    SEASON_DIR_PATTERN);
-
-                int seasonNum = Integer.parseInt(seasonDirMatcher.group(1));
-
-                List<TvShow.Episode> episodes = parseEpisodes(seasonDir);
-                log.info("Detected season {} with {} episode(s)", seasonNum, episodes.size());
-
-                return new TvShow.Season(seasonNum, seasonDir, episodes);
-              })
-          .toList();
-    } catch (IOException e) {
-      String msg = "Error parsing seasons for show: %s".formatted(showDir);
-      log.error(msg, e);
-      throw new UncheckedIOException(msg, e);
+  /**
+   * The episode number a file is named as (e.g. {@code S01E02}), regardless of the number it's
+   * parsed as. They differ if another file is named as the same episode.
+   *
+   * @param fileName episode file name
+   * @param seasonNum season the file is in
+   * @param episodeCount number of episode files in the season
+   * @return episode number, or empty if the file name doesn't contain one
+   */
+  public static OptionalInt episodeNumInFileName(
+      String fileName, int seasonNum, int episodeCount) {
+    return EpisodeNumberExtractor.extract(fileName, seasonNum, episodeCount);
+  }
+
+  private Optional<List<TvShow.Season>> parseSeasons(
+      String showName, int showYear, Path showDir, SeasonFilter seasonFilter) {
+    List<FileEntry> allSeasonDirs =
+        FileEntry.list(showDir).stream()
+            .filter(FileEntry::isDirectory)
+            .sorted(Comparator.comparing(FileEntry::path))
+            .toList();
+    log.info("Detected {} season(s)", allSeasonDirs.size());
+
+    // list (and filter) the seasons concurrently, so a slow (e.g. network) mount costs the slowest
+    // season directory rather than the sum of them all. Each is listed once, the filter (e.g. a
+    // fingerprint of the listing) and the episodes share it
+    List<ForkJoinTask<Optional<TvShow.Season>>> tasks =
+        allSeasonDirs.stream()
+            .map(
+                seasonDir ->
+                    pool.submit(
+                        () -> {
+                          List<FileEntry> entries = FileEntry.list(seasonDir.path());
+                          if (!seasonFilter.include(seasonDir.path(), entries)) {
+                            return Optional.<TvShow.Season>empty();
+                          }
+                          return Optional.of(parseSeason(showName, showYear, seasonDir, entries));
+                        }))
+            .toList();
+    List<TvShow.Season> seasons =
+        tasks.stream().map(ForkJoinTask::join).flatMap(Optional::stream).toList();
+    if (seasons.size() < allSeasonDirs.size()) {
+      log.info("Excluded {} season(s)", allSeasonDirs.size() - seasons.size());
+      if (seasons.isEmpty()) {
+        return Optional.empty();
+      }
     }
+    return Optional.of(seasons);
   }
 
-  private List<TvShow.Episode> parseEpisodes(Path seasonDir) {
-    try {
-      List<Path> episodeFiles =
-          Files.list(seasonDir)
-              .filter(Files::isRegularFile)
-              .filter(
-                  file ->
-                      VIDEO_FILE_EXTENSIONS.stream()
-                          .anyMatch(extension -> file.getFileName().toString().endsWith(extension)))
-              .sorted()
-              .toList();
-
-      // assumed 'episodeFiles' are contiguous in sorted order starting with the first episode
-      // They'll need to name it like 'Episode 09' otherwise 'Episode 10' comes before 'Episode 9'
-      // TODO more complex logic to handle that?? I.e. extract episodeNum from file name.
-      //  For episodes it can be named many ways, like 101, 102 or Ep 1, Ep 2. Too much conditions.
-      //  The whole point is to rename them automatically. Not make the user name it certain way.
-      return IntStream.rangeClosed(1, episodeFiles.size())
-          .mapToObj(episodeNum -> new TvShow.Episode(episodeNum, episodeFiles.get(episodeNum - 1)))
-          .toList();
-    } catch (IOException e) {
-      String msg = "Error parsing episodes for season: %s".formatted(seasonDir);
-      log.error(msg, e);
-      throw new UncheckedIOException(msg, e);
+  private TvShow.Season parseSeason(
+      String showName, int showYear, FileEntry seasonDir, List<FileEntry> entries) {
+    String seasonDirName = seasonDir.fileName();
+    Matcher seasonDirMatcher = SEASON_DIR_PATTERN.matcher(seasonDirName);
+    checkArgument(
+        seasonDirMatcher.matches(),
+        "Directory %s doesnt match: %s",
+        seasonDirName,
+        SEASON_DIR_PATTERN);
+
+    int seasonNum = Integer.parseInt(seasonDirMatcher.group(1));
+
+    List<TvShow.Episode> skipped = new ArrayList<>();
+    List<TvShow.Episode> episodes =
+        parseEpisodes(showName, showYear, seasonNum, entries, skipped);
+    log.info("Detected season {} with {} episode(s)", seasonNum, episodes.size());
+
+    return new TvShow.Season(seasonNum, seasonDir, episodes, List.copyOf(skipped));
+  }
+
+  private List<TvShow.Episode> parseEpisodes(
+      String showName,
+      int showYear,
+      int seasonNum,
+      List<FileEntry> entries,
+      List<TvShow.Episode> skipped) {
+    List<FileEntry> episodeFiles =
+        entries.stream()
+            .filter(FileEntry::isRegularFile)
+            .filter(file -> FileNames.isVideoFile(file.fileName()))
+            .sorted(Comparator.comparing(FileEntry::path))
+            .toList();
+
+    // numbered by file name (e.g. S01E02, 1x02, Ep 2, 102), else as previously identified by
+    // content, else the lowest free numbers in sorted order
+    // so a missing or extra file doesn't shift every episode after it
+    SortedMap<Integer, FileEntry> episodeFilesByNum = new TreeMap<>();
+    List<FileEntry> unnumberedFiles = new ArrayList<>();
+    for (FileEntry file : episodeFiles) {
+      OptionalInt episodeNum =
+          EpisodeNumberExtractor.extract(file.fileName(), seasonNum, episodeFiles.size());
+      if (episodeNum.isEmpty()) {
+        episodeNum = episodeIndex.episodeNum(showName, showYear, seasonNum, file);
+      }
+      if (episodeNum.isEmpty()) {
+        unnumberedFiles.add(file);
+        continue;
+      }
+      FileEntry existing = episodeFilesByNum.putIfAbsent(episodeNum.getAsInt(), file);
+      if (existing != null) {
+        // most likely a copy (e.g. "Ep 02 (copy).mkv"), numbering it would rename it over another
+        // episode, so it's left alone. The shorter name is kept, copies usually add to the name
+        FileEntry kept =
+            file.fileName().length() < existing.fileName().length() ? file : existing;
+        episodeFilesByNum.put(episodeNum.getAsInt(), kept);
+        skipped.add(new TvShow.Episode(episodeNum.getAsInt(), kept == file ? existing : file));
+        log.warn(
+            "Episode {} is both {} and {}, skipping {}",
+            episodeNum.getAsInt(),
+            existing,
+            file,
+            kept == file ? existing : file);
+      }
+    }
+    int episodeNum = 1;
+    for (FileEntry file : unnumberedFiles) {
+      while (episodeFilesByNum.containsKey(episodeNum)) {
+        episodeNum++;
+      }
+      episodeFilesByNum.put(episodeNum, file);
     }
+
+    return episodeFilesByNum.entrySet().stream()
+        .map(entry -> new TvShow.Episode(entry.getKey(), entry.getValue()))
+        .toList();
+  }
+
+  /** Whether to include a season directory. */
+  @FunctionalInterface
+  public interface SeasonFilter {
+
+    /**
+     * Whether to include a season directory.
+     *
+     * @param seasonDir path to season directory
+     * @param entries entries of the season directory, as listed for parsing (so it needn't be
+     *     listed again)
+     * @return true to parse the season
+     */
+    boolean include(Path seasonDir, List<FileEntry> entries);
   }
 }
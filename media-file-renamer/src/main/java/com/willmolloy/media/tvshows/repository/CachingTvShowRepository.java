@@ -0,0 +1,234 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.Metrics;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link TvShowRepository} decorator which caches the delegate's lookups, a single tier of a cache
+ * chain (e.g. memory -> remote).
+ *
+ * <p>Read through: a miss is looked up from the delegate (the next tier) and written back to this
+ * tier, so each tier fills from the one behind it. Hits, misses and their latencies are counted per
+ * tier. A miss's latency includes the tiers behind it, so the last tier's misses are the remote
+ * lookups. They're also recorded to {@link Metrics}, labelled by tier.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public abstract class CachingTvShowRepository implements TvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String LOOKUP_METRIC = "tvshow_cache_lookup_seconds";
+  private static final String LOOKUP_METRIC_HELP = "Time looking up a season, by cache tier";
+
+  private final TvShowRepository delegate;
+  private final String tierName;
+  private final Metrics.Timer hitTimer;
+  private final Metrics.Timer missTimer;
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder hitNanos = new LongAdder();
+  private final LongAdder missNanos = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param delegate next tier
+   * @param tierName name of this tier, for logging and metrics
+   */
+  protected CachingTvShowRepository(TvShowRepository delegate, String tierName) {
+    this.delegate = checkNotNull(delegate);
+    this.tierName = checkNotNull(tierName);
+    String tier = tierName.toLowerCase(Locale.ROOT);
+    this.hitTimer = lookupTimer(tier, "hit");
+    this.missTimer = lookupTimer(tier, "miss");
+  }
+
+  /**
+   * Gets the timer of a cache tier's lookups, for tiers not built on this class (e.g. a remote
+   * repository's own disk cache).
+   *
+   * @param tier tier label, e.g. {@code disk}
+   * @param result result label, {@code hit} or {@code miss}
+   * @return timer
+   */
+  public static Metrics.Timer lookupTimer(String tier, String result) {
+    return Metrics.timer(LOOKUP_METRIC, LOOKUP_METRIC_HELP, "tier", tier, "result", result);
+  }
+
+  @Override
+  public final Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    long start = System.nanoTime();
+    Key key = new Key(showName, showYear, season);
+    Optional<Map<Integer, String>> cached = get(key);
+    if (cached.isPresent()) {
+      long nanos = System.nanoTime() - start;
+      hitCount.increment();
+      hitNanos.add(nanos);
+      hitTimer.record(nanos);
+      return cached.get();
+    }
+
+    missCount.increment();
+    try {
+      Map<Integer, String> episodeNames = delegate.getEpisodeNames(showName, showYear, season);
+      put(key, episodeNames);
+      return episodeNames;
+    } finally {
+      long nanos = System.nanoTime() - start;
+      missNanos.add(nanos);
+      missTimer.record(nanos);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The seasons missing from this tier are looked up from the delegate together, so a remote
+   * tier can still fetch them in bulk.
+   */
+  @Override
+  public final Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    long start = System.nanoTime();
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason = new HashMap<>();
+    Set<Integer> missed = new HashSet<>();
+    for (int season : seasons) {
+      get(new Key(showName, showYear, season))
+          .ifPresentOrElse(
+              episodeNames -> episodeNamesBySeason.put(season, episodeNames),
+              () -> missed.add(season));
+    }
+    if (!episodeNamesBySeason.isEmpty()) {
+      long nanos = System.nanoTime() - start;
+      hitCount.add(episodeNamesBySeason.size());
+      hitNanos.add(nanos);
+      for (int i = 0; i < episodeNamesBySeason.size(); i++) {
+        hitTimer.record(nanos / episodeNamesBySeason.size());
+      }
+    }
+    if (missed.isEmpty()) {
+      return Map.copyOf(episodeNamesBySeason);
+    }
+
+    // every miss waits on the one delegate lookup, so each has its latency
+    long missStart = System.nanoTime();
+    missCount.add(missed.size());
+    try {
+      Map<Integer, Map<Integer, String>> looked =
+          delegate.getEpisodeNamesBySeason(showName, showYear, missed);
+      for (int season : missed) {
+        Map<Integer, String> episodeNames = checkNotNull(looked.get(season), "season %s", season);
+        put(new Key(showName, showYear, season), episodeNames);
+        episodeNamesBySeason.put(season, episodeNames);
+      }
+      return Map.copyOf(episodeNamesBySeason);
+    } finally {
+      long nanos = System.nanoTime() - missStart;
+      missNanos.add(nanos * missed.size());
+      for (int i = 0; i < missed.size(); i++) {
+        missTimer.record(nanos);
+      }
+    }
+  }
+
+  /**
+   * Gets a cached lookup.
+   *
+   * @param key lookup
+   * @return episode names, or empty if not cached
+   */
+  protected abstract Optional<Map<Integer, String>> get(Key key);
+
+  /**
+   * Caches a lookup.
+   *
+   * @param key lookup
+   * @param episodeNames episode names
+   */
+  protected abstract void put(Key key, Map<Integer, String> episodeNames);
+
+  /**
+   * Stats of this tier.
+   *
+   * @return stats of the lookups made so far
+   */
+  public Stats stats() {
+    long hits = hitCount.sum();
+    long misses = missCount.sum();
+    return new Stats(
+        hits,
+        misses,
+        Duration.ofNanos(hits == 0 ? 0 : hitNanos.sum() / hits),
+        Duration.ofNanos(misses == 0 ? 0 : missNanos.sum() / misses));
+  }
+
+  @Override
+  public void logStats() {
+    log.info("{} cache: {}", tierName, stats());
+    delegate.logStats();
+  }
+
+  /**
+   * Lookup cache key.
+   *
+   * @param showName show name
+   * @param showYear show year
+   * @param season season number
+   */
+  public record Key(String showName, int showYear, int season) {}
+
+  /**
+   * Cache tier stats.
+   *
+   * @param hits number of lookups found in this tier
+   * @param misses number of lookups passed on to the next tier
+   * @param meanHitLatency mean latency of a hit
+   * @param meanMissLatency mean latency of a miss (including the tiers behind this one)
+   */
+  public record Stats(long hits, long misses, Duration meanHitLatency, Duration meanMissLatency) {
+
+    /**
+     * Stats of a tier's lookup timers.
+     *
+     * @param hitTimer timer of the hits
+     * @param missTimer timer of the misses
+     * @return stats
+     */
+    public static Stats of(Metrics.Timer hitTimer, Metrics.Timer missTimer) {
+      long hits = hitTimer.count();
+      long misses = missTimer.count();
+      return new Stats(
+          hits,
+          misses,
+          Duration.ofNanos(hits == 0 ? 0 : hitTimer.sumNanos() / hits),
+          Duration.ofNanos(misses == 0 ? 0 : missTimer.sumNanos() / misses));
+    }
+
+    public double hitRate() {
+      return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+      return "%s hit(s), %s miss(es) (%.1f%% hit rate), mean latency %.3fms hit, %.3fms miss"
+          .formatted(
+              hits,
+              misses,
+              hitRate() * 100,
+              meanHitLatency.toNanos() / 1e6,
+              meanMissLatency.toNanos() / 1e6);
+    }
+  }
+}
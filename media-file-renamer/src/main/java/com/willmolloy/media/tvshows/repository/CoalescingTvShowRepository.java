@@ -0,0 +1,170 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.willmolloy.media.util.Metrics;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link TvShowRepository} decorator which coalesces concurrent duplicate lookups.
+ *
+ * <p>The first caller for a given show/season issues the lookup, concurrent callers for the same
+ * show/season wait for and share its result (or failure). Nothing is cached once the lookup
+ * completes.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class CoalescingTvShowRepository implements TvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final Metrics.Counter ISSUED_COUNTER =
+      Metrics.counter(
+          "tvshow_season_lookups_total",
+          "Season lookups, by whether coalesced",
+          "result",
+          "issued");
+  private static final Metrics.Counter COALESCED_COUNTER =
+      Metrics.counter(
+          "tvshow_season_lookups_total",
+          "Season lookups, by whether coalesced",
+          "result",
+          "coalesced");
+
+  private final TvShowRepository delegate;
+  private final ConcurrentMap<Key, CompletableFuture<Map<Integer, String>>> inFlight =
+      new ConcurrentHashMap<>();
+  private final AtomicLong issuedCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  public CoalescingTvShowRepository(TvShowRepository delegate) {
+    this.delegate = checkNotNull(delegate);
+  }
+
+  @Override
+  public Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    Key key = new Key(showName, showYear, season);
+    CompletableFuture<Map<Integer, String>> future = new CompletableFuture<>();
+    CompletableFuture<Map<Integer, String>> existing = inFlight.putIfAbsent(key, future);
+
+    if (existing != null) {
+      coalescedCount.incrementAndGet();
+      COALESCED_COUNTER.increment();
+      log.debug("Coalescing lookup: {}", key);
+      try {
+        return existing.join();
+      } catch (CompletionException e) {
+        Throwables.throwIfUnchecked(e.getCause());
+        throw e;
+      }
+    }
+
+    issuedCount.incrementAndGet();
+    ISSUED_COUNTER.increment();
+    try {
+      Map<Integer, String> episodeNames = delegate.getEpisodeNames(showName, showYear, season);
+      future.complete(episodeNames);
+      return episodeNames;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Seasons already being looked up are shared, the rest are issued to the delegate together.
+   */
+  @Override
+  public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    Map<Integer, CompletableFuture<Map<Integer, String>>> issued = new HashMap<>();
+    Map<Integer, CompletableFuture<Map<Integer, String>>> coalesced = new HashMap<>();
+    for (int season : seasons) {
+      Key key = new Key(showName, showYear, season);
+      CompletableFuture<Map<Integer, String>> future = new CompletableFuture<>();
+      CompletableFuture<Map<Integer, String>> existing = inFlight.putIfAbsent(key, future);
+      if (existing != null) {
+        coalescedCount.incrementAndGet();
+        COALESCED_COUNTER.increment();
+        log.debug("Coalescing lookup: {}", key);
+        coalesced.put(season, existing);
+      } else {
+        issuedCount.incrementAndGet();
+        ISSUED_COUNTER.increment();
+        issued.put(season, future);
+      }
+    }
+
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason = new HashMap<>();
+    if (!issued.isEmpty()) {
+      try {
+        Map<Integer, Map<Integer, String>> looked =
+            delegate.getEpisodeNamesBySeason(showName, showYear, issued.keySet());
+        issued.forEach(
+            (season, future) -> {
+              Map<Integer, String> episodeNames =
+                  checkNotNull(looked.get(season), "season %s", season);
+              future.complete(episodeNames);
+              episodeNamesBySeason.put(season, episodeNames);
+            });
+      } catch (RuntimeException | Error e) {
+        issued.values().forEach(future -> future.completeExceptionally(e));
+        throw e;
+      } finally {
+        issued.forEach(
+            (season, future) -> inFlight.remove(new Key(showName, showYear, season), future));
+      }
+    }
+
+    try {
+      coalesced.forEach((season, future) -> episodeNamesBySeason.put(season, future.join()));
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+    return Map.copyOf(episodeNamesBySeason);
+  }
+
+  /**
+   * Number of lookups issued to the delegate repository.
+   *
+   * @return issued count
+   */
+  public long issuedCount() {
+    return issuedCount.get();
+  }
+
+  /**
+   * Number of lookups which shared an in-flight lookup instead of issuing their own.
+   *
+   * @return coalesced count
+   */
+  public long coalescedCount() {
+    return coalescedCount.get();
+  }
+
+  @Override
+  public void logStats() {
+    log.info(
+        "Season lookups: {} issued, {} coalesced with an in-flight lookup",
+        issuedCount(),
+        coalescedCount());
+    delegate.logStats();
+  }
+
+  private record Key(String showName, int showYear, int season) {}
+}
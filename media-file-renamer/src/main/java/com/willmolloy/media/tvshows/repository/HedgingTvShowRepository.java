@@ -0,0 +1,340 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.willmolloy.media.util.Metrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link TvShowRepository} which asks several providers, in priority order, with hedged requests.
+ *
+ * <p>The first provider is asked straight away. The next is only asked if the previous hasn't
+ * answered within its p95 latency (so ~5% of lookups are hedged), or answered with an incomplete
+ * season (no episodes, or gaps in the episode numbers) or failed. The first complete answer wins.
+ * If none is complete, the answers are merged, earlier providers taking precedence.
+ *
+ * <p>The p95 is of each provider's recent successful lookups (season and multi season lookups kept
+ * apart), so the hedge delay follows each provider as it speeds up or slows down. Until a provider
+ * has enough of them, the initial delay is used. Lookups a provider answers from its own cache (see
+ * {@link TvShowRepository#isCached}) aren't counted, they'd pull the p95 down to the cache's.
+ *
+ * <p>Each provider has its own bounded pool of threads, so a provider that hangs only holds up its
+ * own lookups, not the hedges to the others. Once an answer wins, the lookups still waiting for a
+ * thread are cancelled. Those already running aren't interrupted (the providers may be mid write to
+ * a cache, interrupting a {@link java.nio.channels.FileChannel} closes it), they run to completion
+ * in the background and only their latency is kept.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class HedgingTvShowRepository implements TvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int LATENCY_WINDOW = 256;
+  private static final int MIN_LATENCY_SAMPLES = 20;
+  private static final double HEDGE_PERCENTILE = 0.95;
+  private static final int DEFAULT_MAX_THREADS = 16;
+
+  private final List<Provider> providers;
+  private final List<ProviderState> states;
+  private final Duration initialHedgeDelay;
+
+  HedgingTvShowRepository(List<Provider> providers, Duration initialHedgeDelay) {
+    this(providers, initialHedgeDelay, DEFAULT_MAX_THREADS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param providers providers, in priority order
+   * @param initialHedgeDelay hedge delay of a provider until its p95 latency is known
+   * @param maxThreads max number of lookups each provider makes at once, the rest wait
+   */
+  public HedgingTvShowRepository(
+      List<Provider> providers, Duration initialHedgeDelay, int maxThreads) {
+    checkArgument(!providers.isEmpty(), "empty providers list");
+    checkArgument(!initialHedgeDelay.isNegative(), "negative initialHedgeDelay");
+    checkArgument(maxThreads > 0, "maxThreads (%s) <= 0", maxThreads);
+    this.providers = List.copyOf(providers);
+    this.states =
+        this.providers.stream()
+            .map(provider -> new ProviderState(provider.name(), maxThreads))
+            .toList();
+    this.initialHedgeDelay = initialHedgeDelay;
+  }
+
+  @Override
+  public Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    return hedge(
+        state -> state.seasonLatencies,
+        repository -> repository.getEpisodeNames(showName, showYear, season),
+        repository -> repository.isCached(showName, showYear, Set.of(season)),
+        HedgingTvShowRepository::isComplete,
+        HedgingTvShowRepository::merge);
+  }
+
+  @Override
+  public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    return hedge(
+        state -> state.seasonsLatencies,
+        repository -> repository.getEpisodeNamesBySeason(showName, showYear, seasons),
+        repository -> repository.isCached(showName, showYear, seasons),
+        answer ->
+            seasons.stream()
+                .allMatch(season -> answer.containsKey(season) && isComplete(answer.get(season))),
+        answers -> {
+          Map<Integer, Map<Integer, String>> merged = new HashMap<>();
+          for (int season : seasons) {
+            merged.put(
+                season,
+                merge(
+                    answers.stream()
+                        .map(answer -> answer.getOrDefault(season, Map.of()))
+                        .toList()));
+          }
+          return Map.copyOf(merged);
+        });
+  }
+
+  private <T> T hedge(
+      Function<ProviderState, LatencyWindow> latencies,
+      Function<TvShowRepository, T> lookup,
+      Predicate<TvShowRepository> isCached,
+      Predicate<T> isComplete,
+      Function<List<T>, T> merge) {
+    BlockingQueue<Answer<T>> answers = new LinkedBlockingQueue<>();
+    List<Answer<T>> received = new ArrayList<>();
+    List<Future<?>> lookups = new ArrayList<>();
+    int asked = 0;
+    long hedgeAt = 0;
+    try {
+      while (received.size() < providers.size()) {
+        boolean allAnswered = asked == received.size();
+        if (asked < providers.size() && (allAnswered || System.nanoTime() >= hedgeAt)) {
+          // nothing left to wait for, or the last one asked is slow, ask the next
+          if (asked > 0) {
+            states.get(asked).recordHedge();
+          }
+          lookups.add(ask(asked, latencies, lookup, isCached, answers));
+          hedgeAt = System.nanoTime() + hedgeDelay(latencies.apply(states.get(asked))).toNanos();
+          asked++;
+          continue;
+        }
+
+        Answer<T> answer =
+            asked < providers.size()
+                ? answers.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS)
+                : answers.take();
+        if (answer == null) {
+          continue;
+        }
+        if (answer.error() == null && isComplete.test(answer.value())) {
+          states.get(answer.provider()).recordWin();
+          return answer.value();
+        }
+        if (answer.error() != null) {
+          log.warn(
+              "Lookup failed, provider: {} - {}",
+              providers.get(answer.provider()).name(),
+              String.valueOf(answer.error()));
+        } else {
+          log.debug("Incomplete answer, provider: {}", providers.get(answer.provider()).name());
+        }
+        received.add(answer);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for providers", e);
+    } finally {
+      // not interrupted, see class doc
+      lookups.forEach(future -> future.cancel(false));
+    }
+
+    // in priority order, not the order they answered in
+    received.sort(Comparator.comparingInt(Answer::provider));
+    List<T> values =
+        received.stream().filter(answer -> answer.error() == null).map(Answer::value).toList();
+    if (!values.isEmpty()) {
+      return merge.apply(values);
+    }
+    Throwable error = received.get(0).error();
+    received.stream().skip(1).forEach(answer -> error.addSuppressed(answer.error()));
+    // only unchecked errors are caught
+    Throwables.throwIfUnchecked(error);
+    throw new IllegalStateException(error);
+  }
+
+  private <T> Future<?> ask(
+      int provider,
+      Function<ProviderState, LatencyWindow> latencies,
+      Function<TvShowRepository, T> lookup,
+      Predicate<TvShowRepository> isCached,
+      BlockingQueue<Answer<T>> answers) {
+    ProviderState state = states.get(provider);
+    return state.executor.submit(
+        () -> {
+          TvShowRepository repository = providers.get(provider).repository();
+          long start = System.nanoTime();
+          try {
+            boolean cached = isCached.test(repository);
+            T value = lookup.apply(repository);
+            if (!cached) {
+              latencies.apply(state).record(System.nanoTime() - start);
+            }
+            answers.add(new Answer<>(provider, value, null));
+          } catch (RuntimeException | Error e) {
+            answers.add(new Answer<>(provider, null, e));
+          }
+        });
+  }
+
+  private Duration hedgeDelay(LatencyWindow latencies) {
+    return latencies.percentile(HEDGE_PERCENTILE).orElse(initialHedgeDelay);
+  }
+
+  /**
+   * Current hedge delay of a provider, i.e. how long a season lookup waits for it before asking the
+   * next provider.
+   *
+   * @param provider index of provider
+   * @return hedge delay
+   */
+  Duration hedgeDelay(int provider) {
+    return hedgeDelay(states.get(provider).seasonLatencies);
+  }
+
+  // every episode from 1 up, e.g. not a season with names of episodes 1, 2 and 4
+  private static boolean isComplete(Map<Integer, String> episodeNames) {
+    return !episodeNames.isEmpty()
+        && episodeNames.keySet().stream()
+            .allMatch(episode -> episode >= 1 && episode <= episodeNames.size());
+  }
+
+  private static Map<Integer, String> merge(List<Map<Integer, String>> answers) {
+    Map<Integer, String> merged = new HashMap<>();
+    answers.forEach(answer -> answer.forEach(merged::putIfAbsent));
+    return Map.copyOf(merged);
+  }
+
+  @Override
+  public void logStats() {
+    for (int i = 0; i < providers.size(); i++) {
+      ProviderState state = states.get(i);
+      log.info(
+          "Provider {}: hedge delay {}ms, asked as a hedge {} time(s), answered first {} time(s)",
+          providers.get(i).name(),
+          "%.3f".formatted(hedgeDelay(i).toNanos() / 1e6),
+          state.hedgeCount.get(),
+          state.winCount.get());
+      providers.get(i).repository().logStats();
+    }
+  }
+
+  /**
+   * A named provider.
+   *
+   * @param name name, e.g. {@code themoviedb}
+   * @param repository repository
+   */
+  public record Provider(String name, TvShowRepository repository) {
+    public Provider {
+      checkNotNull(name, "null name");
+      checkNotNull(repository, "null repository");
+    }
+  }
+
+  private record Answer<T>(int provider, T value, Throwable error) {}
+
+  private static final class ProviderState {
+    private final LatencyWindow seasonLatencies = new LatencyWindow();
+    private final LatencyWindow seasonsLatencies = new LatencyWindow();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong winCount = new AtomicLong();
+    private final Metrics.Counter hedgeCounter;
+    private final Metrics.Counter winCounter;
+    // worker threads are daemons, so don't need shutting down
+    private final ThreadPoolExecutor executor;
+
+    private ProviderState(String name, int maxThreads) {
+      this.executor =
+          new ThreadPoolExecutor(
+              maxThreads,
+              maxThreads,
+              1,
+              TimeUnit.MINUTES,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("provider-" + name + "-%d")
+                  .setDaemon(true)
+                  .build());
+      // idle threads time out, so the pool only grows to maxThreads under load
+      executor.allowCoreThreadTimeOut(true);
+      this.hedgeCounter =
+          Metrics.counter(
+              "tvshow_provider_hedges_total",
+              "Lookups a provider was asked as a hedge, by provider",
+              "provider",
+              name);
+      this.winCounter =
+          Metrics.counter(
+              "tvshow_provider_wins_total",
+              "Lookups a provider answered first (completely), by provider",
+              "provider",
+              name);
+    }
+
+    void recordHedge() {
+      hedgeCount.incrementAndGet();
+      hedgeCounter.increment();
+    }
+
+    void recordWin() {
+      winCount.incrementAndGet();
+      winCounter.increment();
+    }
+  }
+
+  // latencies of the most recent lookups, a ring buffer
+  private static final class LatencyWindow {
+    private final long[] nanos = new long[LATENCY_WINDOW];
+    private long count;
+
+    synchronized void record(long latencyNanos) {
+      nanos[(int) (count++ % LATENCY_WINDOW)] = latencyNanos;
+    }
+
+    synchronized Optional<Duration> percentile(double percentile) {
+      if (count < MIN_LATENCY_SAMPLES) {
+        return Optional.empty();
+      }
+      long[] sorted = Arrays.copyOf(nanos, (int) Math.min(count, LATENCY_WINDOW));
+      Arrays.sort(sorted);
+      return Optional.of(
+          Duration.ofNanos(sorted[(int) Math.ceil(percentile * sorted.length) - 1]));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * In memory {@link CachingTvShowRepository} tier, bounded by (approximate) size in bytes rather
+ * than entry count, since seasons vary a lot in size. Least recently used entries are evicted
+ * first.
+ *
+ * <p>Entries also expire a day after they're cached, the shortest time a remote tier caches a
+ * lookup for (a season still airing), so a long running process (e.g. the watcher) picks up new
+ * episodes rather than serving the first answer forever.
+ *
+ * <p>The logged size and bytes per entry can be used to size it, e.g. a 4,000 show library with ~5
+ * seasons per show at ~2KB per season needs ~40MB to never evict.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class MemoryCachingTvShowRepository extends CachingTvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  // rough JVM overheads (object headers, references, map entries, boxed keys)
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+  private static final int EPISODE_OVERHEAD_BYTES = 96;
+
+  private static final Duration EXPIRE_AFTER_WRITE = Duration.ofDays(1);
+
+  private final Cache<Key, Map<Integer, String>> cache;
+  private final LongAdder weightBytes = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param delegate next tier
+   * @param maxBytes max size of the cached lookups, in bytes (approximately)
+   */
+  public MemoryCachingTvShowRepository(TvShowRepository delegate, long maxBytes) {
+    this(delegate, maxBytes, EXPIRE_AFTER_WRITE, Ticker.systemTicker());
+  }
+
+  MemoryCachingTvShowRepository(
+      TvShowRepository delegate, long maxBytes, Duration expireAfterWrite, Ticker ticker) {
+    super(delegate, "Memory");
+    checkArgument(maxBytes > 0, "maxBytes (%s) <= 0", maxBytes);
+    this.cache =
+        CacheBuilder.newBuilder()
+            // one segment, otherwise the max weight is split between segments (so a season could be
+            // evicted while there's room), lookups are cheap next to the tiers behind anyway
+            .concurrencyLevel(1)
+            .maximumWeight(maxBytes)
+            .expireAfterWrite(expireAfterWrite)
+            .ticker(ticker)
+            .<Key, Map<Integer, String>>weigher((key, episodeNames) -> weigh(key, episodeNames))
+            .removalListener(
+                notification ->
+                    weightBytes.add(-weigh(notification.getKey(), notification.getValue())))
+            .recordStats()
+            .build();
+  }
+
+  @Override
+  protected Optional<Map<Integer, String>> get(Key key) {
+    return Optional.ofNullable(cache.getIfPresent(key));
+  }
+
+  @Override
+  protected void put(Key key, Map<Integer, String> episodeNames) {
+    weightBytes.add(weigh(key, episodeNames));
+    cache.put(key, episodeNames);
+  }
+
+  @Override
+  public void logStats() {
+    long size = cache.size();
+    long bytes = weightBytes.sum();
+    log.info(
+        "Memory cache: {} entries, ~{}KB (~{} bytes/entry), {} evicted or expired",
+        size,
+        bytes / 1024,
+        size == 0 ? 0 : bytes / size,
+        cache.stats().evictionCount());
+    super.logStats();
+  }
+
+  private static int weigh(Key key, Map<Integer, String> episodeNames) {
+    // strings are mostly latin-1, i.e. a byte per char
+    int bytes = ENTRY_OVERHEAD_BYTES + key.showName().length();
+    for (String episodeName : episodeNames.values()) {
+      bytes += EPISODE_OVERHEAD_BYTES + episodeName.length();
+    }
+    return bytes;
+  }
+}
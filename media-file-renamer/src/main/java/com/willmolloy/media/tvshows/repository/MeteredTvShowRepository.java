@@ -0,0 +1,84 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.willmolloy.media.util.Metrics;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link TvShowRepository} decorator which times the delegate's lookups, recorded to {@link
+ * Metrics} labelled by repository name and outcome.
+ *
+ * <p>For the repositories the cache tiers don't already time, i.e. the one at the end of the chain.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class MeteredTvShowRepository implements TvShowRepository {
+
+  private static final String METRIC = "tvshow_repository_lookup_seconds";
+  private static final String HELP = "Time looking up seasons, by repository, method and outcome";
+
+  private final TvShowRepository delegate;
+  private final Metrics.Timer seasonSuccessTimer;
+  private final Metrics.Timer seasonErrorTimer;
+  private final Metrics.Timer seasonsSuccessTimer;
+  private final Metrics.Timer seasonsErrorTimer;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate repository to time
+   * @param name name of the repository, e.g. {@code themoviedb}
+   */
+  public MeteredTvShowRepository(TvShowRepository delegate, String name) {
+    this.delegate = checkNotNull(delegate);
+    checkNotNull(name);
+    this.seasonSuccessTimer = timer(name, "season", "success");
+    this.seasonErrorTimer = timer(name, "season", "error");
+    this.seasonsSuccessTimer = timer(name, "seasons", "success");
+    this.seasonsErrorTimer = timer(name, "seasons", "error");
+  }
+
+  private static Metrics.Timer timer(String name, String method, String outcome) {
+    return Metrics.timer(METRIC, HELP, "repository", name, "method", method, "outcome", outcome);
+  }
+
+  @Override
+  public Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    long start = System.nanoTime();
+    try {
+      Map<Integer, String> episodeNames = delegate.getEpisodeNames(showName, showYear, season);
+      seasonSuccessTimer.recordSince(start);
+      return episodeNames;
+    } catch (RuntimeException | Error e) {
+      seasonErrorTimer.recordSince(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    long start = System.nanoTime();
+    try {
+      Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+          delegate.getEpisodeNamesBySeason(showName, showYear, seasons);
+      seasonsSuccessTimer.recordSince(start);
+      return episodeNamesBySeason;
+    } catch (RuntimeException | Error e) {
+      seasonsErrorTimer.recordSince(start);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isCached(String showName, int showYear, Set<Integer> seasons) {
+    return delegate.isCached(showName, showYear, seasons);
+  }
+
+  @Override
+  public void logStats() {
+    delegate.logStats();
+  }
+}
@@ -1,6 +1,10 @@
 package com.willmolloy.media.tvshows.repository;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Abstraction to get TV show data.
@@ -18,4 +22,41 @@ public interface TvShowRepository {
    * @return map of [episode number -> episode name]
    */
   Map<Integer, String> getEpisodeNames(String showName, int showYear, int season);
+
+  /**
+   * Get TV show episode names of several seasons at once.
+   *
+   * <p>By default each season is looked up in turn. Remote repositories should override this to
+   * fetch the seasons in as few requests as possible.
+   *
+   * @param showName show name
+   * @param showYear show year (first air date)
+   * @param seasons season numbers
+   * @return map of [season number -> [episode number -> episode name]], for every season given
+   */
+  default Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    return seasons.stream()
+        .collect(
+            toUnmodifiableMap(identity(), season -> getEpisodeNames(showName, showYear, season)));
+  }
+
+  /**
+   * Whether a lookup of the seasons would be answered from a cache the repository keeps itself,
+   * i.e. without going to its source (e.g. a remote API).
+   *
+   * <p>By default false. Repositories with a cache in front of a slow source should override this,
+   * so their cached and uncached lookups can be told apart (e.g. when timing them).
+   *
+   * @param showName show name
+   * @param showYear show year (first air date)
+   * @param seasons season numbers
+   * @return true if every season is cached
+   */
+  default boolean isCached(String showName, int showYear, Set<Integer> seasons) {
+    return false;
+  }
+
+  /** Logs stats of the lookups made so far (if any are kept), including those of any delegates. */
+  default void logStats() {}
 }
@@ -0,0 +1,55 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+
+/**
+ * Layout of an episode index file, shared by {@link EpisodeIndexImporter} and {@link
+ * OfflineTvShowRepository}.
+ *
+ * <p>All ints, big endian:
+ *
+ * <pre>
+ * header:   magic, version, show count, season count, episode count
+ * shows:    key offset, key length, year, first season, season count (sorted by key, year)
+ * seasons:  season number, first episode, episode count               (sorted per show)
+ * episodes: episode number, name offset, name length                  (sorted per season)
+ * strings:  UTF-8 bytes of the keys and episode names, offsets are relative to here
+ * </pre>
+ *
+ * <p>Fixed size records, so the tables can be binary searched in place once mapped, without
+ * reading the file into objects.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+final class EpisodeIndexFormat {
+
+  static final int MAGIC = 0x4D465249; // "MFRI"
+  static final int VERSION = 1;
+
+  static final int HEADER_BYTES = 5 * Integer.BYTES;
+  static final int SHOW_BYTES = 5 * Integer.BYTES;
+  static final int SEASON_BYTES = 3 * Integer.BYTES;
+  static final int EPISODE_BYTES = 3 * Integer.BYTES;
+
+  private EpisodeIndexFormat() {}
+
+  /**
+   * Key of a show name, so lookups don't depend on case, punctuation or accents (which often differ
+   * between directory names and metadata, e.g. {@code Law & Order: SVU} can't be a Windows
+   * directory name).
+   *
+   * @param showName show name
+   * @return UTF-8 bytes of the lower cased letters and digits of the name, without accents
+   */
+  static byte[] key(String showName) {
+    StringBuilder key = new StringBuilder(showName.length());
+    // decomposed, so accents are separate (non letter) code points which are dropped
+    Normalizer.normalize(showName, Normalizer.Form.NFKD)
+        .codePoints()
+        .filter(Character::isLetterOrDigit)
+        .map(Character::toLowerCase)
+        .forEach(key::appendCodePoint);
+    return key.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,206 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.StateFiles;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Builds an episode index file (see {@link EpisodeIndexFormat}) from a snapshot file (see {@link
+ * ShowSnapshot}), for {@link OfflineTvShowRepository}.
+ *
+ * <p>The whole snapshot is held in memory while importing, it's a one off offline job.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class EpisodeIndexImporter {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final Comparator<Show> SHOW_ORDER =
+      Comparator.<Show, byte[]>comparing(Show::key, Arrays::compareUnsigned)
+          .thenComparingInt(Show::year);
+
+  private final JsonHelper jsonHelper;
+
+  public EpisodeIndexImporter(JsonHelper jsonHelper) {
+    this.jsonHelper = checkNotNull(jsonHelper);
+  }
+
+  /**
+   * Imports a snapshot file, replacing the index file atomically.
+   *
+   * @param snapshotFile path to snapshot file, gzipped if it ends with {@code .gz}
+   * @param indexFile path to index file
+   * @return number of shows imported
+   */
+  public int importSnapshot(Path snapshotFile, Path indexFile) {
+    log.info("Importing {} into {}", snapshotFile, indexFile);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<Show> shows = readSnapshot(snapshotFile);
+    write(shows, indexFile);
+    log.info("Imported {} show(s) in {}", shows.size(), stopwatch.elapsed());
+    return shows.size();
+  }
+
+  private List<Show> readSnapshot(Path snapshotFile) {
+    List<Show> shows = new ArrayList<>();
+    try (InputStream in = open(snapshotFile);
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank()) {
+          ShowSnapshot snapshot = jsonHelper.deserialise(line, ShowSnapshot.class);
+          shows.add(
+              new Show(
+                  EpisodeIndexFormat.key(snapshot.name()),
+                  snapshot.name(),
+                  snapshot.year(),
+                  new TreeMap<>(snapshot.seasons())));
+        }
+      }
+    } catch (IOException e) {
+      String msg = "Error reading snapshot: %s".formatted(snapshotFile);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+
+    shows.sort(SHOW_ORDER);
+    List<Show> unique = new ArrayList<>(shows.size());
+    for (Show show : shows) {
+      if (!unique.isEmpty() && SHOW_ORDER.compare(unique.get(unique.size() - 1), show) == 0) {
+        // e.g. 'Show' and 'Show!', they can't be told apart by key
+        log.warn("Skipping duplicate show: {} ({})", show.name(), show.year());
+      } else {
+        unique.add(show);
+      }
+    }
+    return unique;
+  }
+
+  private InputStream open(Path snapshotFile) throws IOException {
+    InputStream in = Files.newInputStream(snapshotFile);
+    return snapshotFile.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in) : in;
+  }
+
+  private void write(List<Show> shows, Path indexFile) {
+    int seasonCount = shows.stream().mapToInt(show -> show.seasons().size()).sum();
+    int episodeCount =
+        shows.stream()
+            .flatMap(show -> show.seasons().values().stream())
+            .mapToInt(Map::size)
+            .sum();
+
+    try {
+      StateFiles.write(
+          indexFile,
+          tempFile -> {
+            try (DataOutputStream data =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+              writeIndex(data, shows, seasonCount, episodeCount);
+              // mapped as a single buffer (the count sticks at max value on overflow)
+              checkArgument(data.size() < Integer.MAX_VALUE, "Index exceeds 2GB: %s", indexFile);
+            }
+          });
+      log.info(
+          "Wrote {} show(s), {} season(s), {} episode(s) to {} ({} bytes)",
+          shows.size(),
+          seasonCount,
+          episodeCount,
+          indexFile,
+          Files.size(indexFile));
+    } catch (IOException e) {
+      String msg = "Error writing index: %s".formatted(indexFile);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  private static void writeIndex(
+      DataOutputStream data, List<Show> shows, int seasonCount, int episodeCount)
+      throws IOException {
+    data.writeInt(EpisodeIndexFormat.MAGIC);
+    data.writeInt(EpisodeIndexFormat.VERSION);
+    data.writeInt(shows.size());
+    data.writeInt(seasonCount);
+    data.writeInt(episodeCount);
+
+    // tables first, so the strings are written in the same order their offsets are assigned
+    List<byte[]> strings = new ArrayList<>();
+    long stringsLength = 0;
+    int season = 0;
+    for (Show show : shows) {
+      data.writeInt(Math.toIntExact(stringsLength));
+      data.writeInt(show.key().length);
+      data.writeInt(show.year());
+      data.writeInt(season);
+      data.writeInt(show.seasons().size());
+      season += show.seasons().size();
+      strings.add(show.key());
+      stringsLength += show.key().length;
+    }
+    int episode = 0;
+    for (Show show : shows) {
+      for (Map.Entry<Integer, Map<Integer, String>> entry : show.seasons().entrySet()) {
+        data.writeInt(entry.getKey());
+        data.writeInt(episode);
+        data.writeInt(entry.getValue().size());
+        episode += entry.getValue().size();
+      }
+    }
+    for (Show show : shows) {
+      for (Map<Integer, String> episodes : show.seasons().values()) {
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(episodes).entrySet()) {
+          byte[] name = entry.getValue().getBytes(StandardCharsets.UTF_8);
+          data.writeInt(entry.getKey());
+          data.writeInt(Math.toIntExact(stringsLength));
+          data.writeInt(name.length);
+          strings.add(name);
+          stringsLength += name.length;
+        }
+      }
+    }
+    for (byte[] string : strings) {
+      data.write(string);
+    }
+  }
+
+  private record Show(
+      byte[] key, String name, int year, TreeMap<Integer, Map<Integer, String>> seasons) {}
+
+  /**
+   * Imports a snapshot file, see {@link #importSnapshot}.
+   *
+   * @param args path to snapshot file and path to index file
+   */
+  public static void main(String... args) {
+    try {
+      checkArgument(args.length == 2, "Expected <snapshot file> <index file>");
+      new EpisodeIndexImporter(new JsonHelper()).importSnapshot(Path.of(args[0]), Path.of(args[1]));
+    } catch (Throwable e) {
+      log.fatal("Fatal error", e);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Verify.verify;
+
+import com.willmolloy.media.tvshows.repository.TvShowRepository;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link TvShowRepository} backed by a directory of hand maintained JSON files, one per show, e.g.
+ * for shows The Movie Database is missing episode names for.
+ *
+ * <p>Each file is named like the show directory ({@code <Show Name> (<Show Year>).json}) and holds
+ * a single {@link ShowSnapshot}. Files are read on first lookup of their show and kept.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class LocalTvShowRepository implements TvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final Path dir;
+  private final JsonHelper jsonHelper;
+  private final ConcurrentMap<String, Optional<ShowSnapshot>> snapshots =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param dir path to directory of show files
+   * @param jsonHelper {@link JsonHelper}
+   */
+  public LocalTvShowRepository(Path dir, JsonHelper jsonHelper) {
+    checkArgument(Files.isDirectory(dir), "%s is not a directory", dir);
+    this.dir = dir;
+    this.jsonHelper = checkNotNull(jsonHelper);
+  }
+
+  @Override
+  public Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    log.debug("getEpisodeNames(showName={}, showYear={}, season={})", showName, showYear, season);
+
+    String fileName = "%s (%s).json".formatted(showName, showYear);
+    Optional<ShowSnapshot> snapshot = snapshots.computeIfAbsent(fileName, this::read);
+    verify(snapshot.isPresent(), "No local file: %s", dir.resolve(fileName));
+    // missing episodes are warned about by the caller
+    return Map.copyOf(snapshot.get().seasons().getOrDefault(season, Map.of()));
+  }
+
+  private Optional<ShowSnapshot> read(String fileName) {
+    Path file = dir.resolve(fileName);
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    try {
+      ShowSnapshot snapshot = jsonHelper.deserialise(Files.readString(file), ShowSnapshot.class);
+      log.debug("Read local file: {}", file);
+      return Optional.of(snapshot);
+    } catch (IOException e) {
+      String msg = "Error reading local file: %s".formatted(file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+}
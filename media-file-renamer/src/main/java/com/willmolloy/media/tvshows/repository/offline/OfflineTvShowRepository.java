@@ -0,0 +1,148 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.base.Verify.verify;
+
+import com.willmolloy.media.tvshows.repository.TvShowRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link TvShowRepository} backed by a local episode index file, no network involved.
+ *
+ * <p>The index is built by {@link EpisodeIndexImporter} and memory mapped, so opening it is cheap
+ * regardless of size and only the pages touched by lookups are read. Shows are binary searched by
+ * name key (see {@link EpisodeIndexFormat#key}) and year.
+ *
+ * <p>Thread safe (the buffer is only read with absolute gets).
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class OfflineTvShowRepository implements TvShowRepository {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private final ByteBuffer index;
+  private final int showCount;
+  private final int showsStart;
+  private final int seasonsStart;
+  private final int episodesStart;
+  private final int stringsStart;
+
+  /**
+   * Opens an index file.
+   *
+   * @param indexFile path to index file
+   */
+  public OfflineTvShowRepository(Path indexFile) {
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      // stays mapped after the channel is closed
+      index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      String msg = "Error opening index: %s".formatted(indexFile);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+    verify(
+        index.capacity() >= EpisodeIndexFormat.HEADER_BYTES
+            && index.getInt(0) == EpisodeIndexFormat.MAGIC,
+        "Not an episode index: %s",
+        indexFile);
+    verify(
+        index.getInt(Integer.BYTES) == EpisodeIndexFormat.VERSION,
+        "Unsupported index version %s, please re-import: %s",
+        index.getInt(Integer.BYTES),
+        indexFile);
+    showCount = index.getInt(2 * Integer.BYTES);
+    int seasonCount = index.getInt(3 * Integer.BYTES);
+    int episodeCount = index.getInt(4 * Integer.BYTES);
+    showsStart = EpisodeIndexFormat.HEADER_BYTES;
+    seasonsStart = showsStart + showCount * EpisodeIndexFormat.SHOW_BYTES;
+    episodesStart = seasonsStart + seasonCount * EpisodeIndexFormat.SEASON_BYTES;
+    stringsStart = episodesStart + episodeCount * EpisodeIndexFormat.EPISODE_BYTES;
+    verify(stringsStart <= index.capacity(), "Truncated index: %s", indexFile);
+    log.info("Opened index of {} show(s): {}", showCount, indexFile);
+  }
+
+  @Override
+  public Map<Integer, String> getEpisodeNames(String showName, int showYear, int season) {
+    log.debug("getEpisodeNames(showName={}, showYear={}, season={})", showName, showYear, season);
+
+    int show = findShow(EpisodeIndexFormat.key(showName), showYear);
+    verify(show >= 0, "Not in index: %s (%s)", showName, showYear);
+
+    int showRecord = showsStart + show * EpisodeIndexFormat.SHOW_BYTES;
+    int firstSeason = index.getInt(showRecord + 3 * Integer.BYTES);
+    int seasonCount = index.getInt(showRecord + 4 * Integer.BYTES);
+    for (int i = firstSeason; i < firstSeason + seasonCount; i++) {
+      int seasonRecord = seasonsStart + i * EpisodeIndexFormat.SEASON_BYTES;
+      if (index.getInt(seasonRecord) == season) {
+        return episodeNames(
+            index.getInt(seasonRecord + Integer.BYTES),
+            index.getInt(seasonRecord + 2 * Integer.BYTES));
+      }
+    }
+    // missing episodes are warned about by the caller
+    return Map.of();
+  }
+
+  private int findShow(byte[] key, int year) {
+    int low = 0;
+    int high = showCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(mid, key, year);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  // compares the show at the index with the key and year, in the order the importer sorted them
+  private int compare(int show, byte[] key, int year) {
+    int showRecord = showsStart + show * EpisodeIndexFormat.SHOW_BYTES;
+    int keyOffset = stringsStart + index.getInt(showRecord);
+    int keyLength = index.getInt(showRecord + Integer.BYTES);
+    for (int i = 0; i < Math.min(keyLength, key.length); i++) {
+      int cmp = Byte.compareUnsigned(index.get(keyOffset + i), key[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    if (keyLength != key.length) {
+      return Integer.compare(keyLength, key.length);
+    }
+    return Integer.compare(index.getInt(showRecord + 2 * Integer.BYTES), year);
+  }
+
+  private Map<Integer, String> episodeNames(int firstEpisode, int episodeCount) {
+    Map<Integer, String> episodeNames = new HashMap<>(episodeCount * 4 / 3 + 1);
+    byte[] buffer = new byte[64];
+    for (int i = firstEpisode; i < firstEpisode + episodeCount; i++) {
+      int episodeRecord = episodesStart + i * EpisodeIndexFormat.EPISODE_BYTES;
+      int nameOffset = stringsStart + index.getInt(episodeRecord + Integer.BYTES);
+      int nameLength = index.getInt(episodeRecord + 2 * Integer.BYTES);
+      if (buffer.length < nameLength) {
+        buffer = new byte[nameLength];
+      }
+      index.get(nameOffset, buffer, 0, nameLength);
+      episodeNames.put(
+          index.getInt(episodeRecord), new String(buffer, 0, nameLength, StandardCharsets.UTF_8));
+    }
+    return Collections.unmodifiableMap(episodeNames);
+  }
+}
@@ -0,0 +1,29 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import org.apache.logging.log4j.util.Strings;
+
+/**
+ * A TV show's episode names, as a line of a snapshot file.
+ *
+ * <p>Snapshot files are JSON lines (optionally gzipped), one show per line, e.g.:
+ *
+ * <pre>{@code
+ * {"name": "Breaking Bad", "year": 2008, "seasons": {"1": {"1": "Pilot", "2": "Cat's in..."}}}
+ * }</pre>
+ *
+ * @param name show name
+ * @param year show year (first air date)
+ * @param seasons map of [season number -> map of [episode number -> episode name]]
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record ShowSnapshot(String name, int year, Map<Integer, Map<Integer, String>> seasons) {
+  public ShowSnapshot {
+    checkArgument(Strings.isNotBlank(name), "blank name");
+    checkArgument(year > 0, "year (%s) <= 0", year);
+    checkNotNull(seasons, "null seasons map");
+  }
+}
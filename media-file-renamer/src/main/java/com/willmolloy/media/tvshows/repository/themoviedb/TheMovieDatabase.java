@@ -5,16 +5,37 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Verify.verify;
 import static java.util.stream.Collectors.toUnmodifiableMap;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.willmolloy.media.tvshows.repository.CachingTvShowRepository;
 import com.willmolloy.media.tvshows.repository.TvShowRepository;
 import com.willmolloy.media.util.HttpHelper;
+import com.willmolloy.media.util.Metrics;
+import com.willmolloy.media.util.PersistentCache;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
@@ -22,6 +43,9 @@ import org.apache.logging.log4j.util.Strings;
 /**
  * Client for calling The Movie Database API (for TV Show info).
  *
+ * <p>Seasons are cached on disk, its lookups are recorded as the {@code disk} tier of the cache
+ * metrics (a miss's latency includes the API request).
+ *
  * @see <a href=https://developers.themoviedb.org>https://developers.themoviedb.org</a>
  * @author <a href=https://willmolloy.com>Will Molloy</a>
  */
@@ -29,14 +53,46 @@ public class TheMovieDatabase implements TvShowRepository {
 
   private static final Logger log = LogManager.getLogger();
 
-  private static final String BASE_URL = "https://api.themoviedb.org/3";
+  private static final String DEFAULT_BASE_URL = "https://api.themoviedb.org/3";
+
+  private static final Duration SHOW_ID_TTL = Duration.ofDays(30);
+  // seasons that finished airing (practically) never change, airing seasons get new episode names
+  private static final Duration ENDED_SEASON_TTL = Duration.ofDays(180);
+  private static final Duration AIRING_SEASON_TTL = Duration.ofDays(1);
+  private static final Period SEASON_ENDED_AFTER = Period.ofDays(30);
+  // max number of seasons appended to a single show request (limit of append_to_response)
+  private static final int MAX_SEASONS_PER_REQUEST = 20;
 
+  private final String baseUrl;
   private final String apiKey;
   private final HttpHelper httpHelper;
+  private final PersistentCache persistentCache;
+  private final Clock clock;
+  private final Metrics.Timer diskHitTimer = CachingTvShowRepository.lookupTimer("disk", "hit");
+  private final Metrics.Timer diskMissTimer = CachingTvShowRepository.lookupTimer("disk", "miss");
+
+  /**
+   * Constructor.
+   *
+   * @param apiKey API key
+   * @param httpHelper {@link HttpHelper}
+   * @param persistentCache cache to store lookups in (may be shared, keys are prefixed)
+   */
+  public TheMovieDatabase(String apiKey, HttpHelper httpHelper, PersistentCache persistentCache) {
+    this(DEFAULT_BASE_URL, apiKey, httpHelper, persistentCache, Clock.systemUTC());
+  }
 
-  public TheMovieDatabase(String apiKey, HttpHelper httpHelper) {
+  TheMovieDatabase(
+      String baseUrl,
+      String apiKey,
+      HttpHelper httpHelper,
+      PersistentCache persistentCache,
+      Clock clock) {
+    this.baseUrl = checkNotNull(baseUrl);
     this.apiKey = checkNotNull(apiKey);
     this.httpHelper = checkNotNull(httpHelper);
+    this.persistentCache = checkNotNull(persistentCache);
+    this.clock = checkNotNull(clock);
   }
 
   @Override
@@ -45,15 +101,145 @@ public class TheMovieDatabase implements TvShowRepository {
 
     int showId = getIdCache.getUnchecked(new GetIdCacheKey(showName, showYear));
 
-    String url = "%s/tv/%s/season/%s?api_key=%s".formatted(BASE_URL, showId, season, apiKey);
-    TvSeasonDetailsResponse response = httpHelper.get(url, TvSeasonDetailsResponse.class);
+    long start = System.nanoTime();
+    Optional<Map<Integer, String>> cached = getCachedSeason(showId, season);
+    if (cached.isPresent()) {
+      diskHitTimer.recordSince(start);
+      return cached.get();
+    }
+
+    try {
+      String url = "%s/tv/%s/season/%s?api_key=%s".formatted(baseUrl, showId, season, apiKey);
+      return cacheSeason(showId, season, httpHelper.get(url, TvSeasonDetailsResponse.class));
+    } finally {
+      diskMissTimer.recordSince(start);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Seasons are appended to a request for the show itself (up to 20 per request), so e.g. a 30
+   * season show takes 2 requests rather than 30. The requests are sent concurrently.
+   */
+  @Override
+  public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+      String showName, int showYear, Set<Integer> seasons) {
+    log.debug(
+        "getEpisodeNamesBySeason(showName={}, showYear={}, seasons={})",
+        showName,
+        showYear,
+        seasons);
+
+    // resolved once for the show, not per season
+    int showId = getIdCache.getUnchecked(new GetIdCacheKey(showName, showYear));
+
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason = new HashMap<>();
+    List<Integer> uncached = new ArrayList<>();
+    for (int season : seasons.stream().sorted().toList()) {
+      long start = System.nanoTime();
+      getCachedSeason(showId, season)
+          .ifPresentOrElse(
+              episodeNames -> {
+                diskHitTimer.recordSince(start);
+                episodeNamesBySeason.put(season, episodeNames);
+              },
+              () -> uncached.add(season));
+    }
+
+    List<List<Integer>> requests = Lists.partition(uncached, MAX_SEASONS_PER_REQUEST);
+    List<CompletableFuture<TvDetailsWithSeasonsResponse>> futures =
+        requests.stream()
+            .map(
+                requestSeasons ->
+                    httpHelper.getAsync(
+                        "%s/tv/%s?api_key=%s&append_to_response=%s"
+                            .formatted(
+                                baseUrl,
+                                showId,
+                                apiKey,
+                                requestSeasons.stream()
+                                    .map(season -> "season/" + season)
+                                    .collect(Collectors.joining(","))),
+                        TvDetailsWithSeasonsResponse.class))
+            .toList();
+
+    // every miss waits on the requests, so each has their latency
+    long missStart = System.nanoTime();
+    try {
+      for (int i = 0; i < requests.size(); i++) {
+        TvDetailsWithSeasonsResponse response = futures.get(i).join();
+        for (int season : requests.get(i)) {
+          Optional<TvSeasonDetailsResponse> seasonResponse = response.season(season);
+          verify(seasonResponse.isPresent(), "No season %s for show id %s", season, showId);
+          episodeNamesBySeason.put(season, cacheSeason(showId, season, seasonResponse.get()));
+        }
+      }
+    } catch (CompletionException e) {
+      // don't bother with the remaining requests, the show has failed
+      futures.forEach(future -> future.cancel(false));
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    } finally {
+      long nanos = System.nanoTime() - missStart;
+      for (int i = 0; i < uncached.size(); i++) {
+        diskMissTimer.record(nanos);
+      }
+    }
+    return Map.copyOf(episodeNamesBySeason);
+  }
+
+  @Override
+  public boolean isCached(String showName, int showYear, Set<Integer> seasons) {
+    Optional<Integer> showId =
+        Optional.ofNullable(getIdCache.getIfPresent(new GetIdCacheKey(showName, showYear)))
+            .or(() -> persistentCache.get(showIdCacheKey(showName, showYear), Integer.class));
+    return showId.isPresent()
+        && seasons.stream()
+            .allMatch(season -> persistentCache.contains(seasonCacheKey(showId.get(), season)));
+  }
+
+  @Override
+  public void logStats() {
+    log.info("Disk cache: {}", CachingTvShowRepository.Stats.of(diskHitTimer, diskMissTimer));
+  }
+
+  private Optional<Map<Integer, String>> getCachedSeason(int showId, int season) {
+    String cacheKey = seasonCacheKey(showId, season);
+    Optional<CachedSeason> cached = persistentCache.get(cacheKey, CachedSeason.class);
+    if (cached.isPresent()) {
+      log.debug("Using cached season: {}", cacheKey);
+    }
+    return cached.map(CachedSeason::episodeNames);
+  }
 
+  private Map<Integer, String> cacheSeason(
+      int showId, int season, TvSeasonDetailsResponse response) {
     List<TvSeasonDetailsResponse.Episode> episodes = response.episodes();
-    return episodes.stream()
-        .collect(
-            toUnmodifiableMap(
-                TvSeasonDetailsResponse.Episode::episode_number,
-                TvSeasonDetailsResponse.Episode::name));
+    Map<Integer, String> episodeNames =
+        episodes.stream()
+            .collect(
+                toUnmodifiableMap(
+                    TvSeasonDetailsResponse.Episode::episode_number,
+                    TvSeasonDetailsResponse.Episode::name));
+    persistentCache.put(
+        seasonCacheKey(showId, season),
+        new CachedSeason(episodeNames),
+        hasEnded(response) ? ENDED_SEASON_TTL : AIRING_SEASON_TTL);
+    return episodeNames;
+  }
+
+  private static String seasonCacheKey(int showId, int season) {
+    return "tv-season/%s/%s".formatted(showId, season);
+  }
+
+  private boolean hasEnded(TvSeasonDetailsResponse season) {
+    LocalDate endedBefore = LocalDate.now(clock).minus(SEASON_ENDED_AFTER);
+    return !season.episodes().isEmpty()
+        && season.episodes().stream()
+            .allMatch(
+                episode ->
+                    episode.air_date() != null && episode.air_date().isBefore(endedBefore));
   }
 
   private final LoadingCache<GetIdCacheKey, Integer> getIdCache =
@@ -63,10 +249,26 @@ public class TheMovieDatabase implements TvShowRepository {
   private int getShowId(String showName, int showYear) {
     log.debug("getShowId(showName={}, showYear={})", showName, showYear);
 
+    String cacheKey = showIdCacheKey(showName, showYear);
+    Optional<Integer> cached = persistentCache.get(cacheKey, Integer.class);
+    if (cached.isPresent()) {
+      log.debug("Using cached show id: {}", cacheKey);
+      return cached.get();
+    }
+    int showId = searchShowId(showName, showYear);
+    persistentCache.put(cacheKey, showId, SHOW_ID_TTL);
+    return showId;
+  }
+
+  private static String showIdCacheKey(String showName, int showYear) {
+    return "tv-id/%s/%s".formatted(URLEncoder.encode(showName, StandardCharsets.UTF_8), showYear);
+  }
+
+  private int searchShowId(String showName, int showYear) {
     String url =
         "%s/search/tv?api_key=%s&query=%s&first_air_date_year=%s"
             .formatted(
-                BASE_URL, apiKey, URLEncoder.encode(showName, StandardCharsets.UTF_8), showYear);
+                baseUrl, apiKey, URLEncoder.encode(showName, StandardCharsets.UTF_8), showYear);
     TvShowSearchResponse response = httpHelper.get(url, TvShowSearchResponse.class);
 
     List<TvShowSearchResponse.Result> searchResults = response.results();
@@ -86,8 +288,15 @@ public class TheMovieDatabase implements TvShowRepository {
 
   private record GetIdCacheKey(String showName, int showYear) {}
 
+  private record CachedSeason(Map<Integer, String> episodeNames) {
+    CachedSeason {
+      checkNotNull(episodeNames, "null episodeNames map");
+    }
+  }
+
   // https://developers.themoviedb.org/3/search/search-tv-shows
-  private record TvShowSearchResponse(List<Result> results) {
+  // (package-private for benchmarks)
+  record TvShowSearchResponse(List<Result> results) {
     TvShowSearchResponse {
       checkNotNull(results, "null results list");
     }
@@ -102,20 +311,62 @@ public class TheMovieDatabase implements TvShowRepository {
     }
   }
 
+  // https://developers.themoviedb.org/3/tv/get-tv-details
+  // with append_to_response=season/1,season/2,... only the appended seasons are kept, the show
+  // details themselves aren't used
+  @JsonDeserialize(using = TvDetailsWithSeasonsResponse.Deserializer.class)
+  private record TvDetailsWithSeasonsResponse(Map<Integer, TvSeasonDetailsResponse> seasons) {
+    private static final String SEASON_PREFIX = "season/";
+
+    Optional<TvSeasonDetailsResponse> season(int season) {
+      return Optional.ofNullable(seasons.get(season));
+    }
+
+    // appended responses are top level properties named after the request, e.g. "season/1", each
+    // is read straight off the stream into the season type (mapped the same as a season requested
+    // on its own) rather than buffered as a tree first, everything else is skipped
+    private static final class Deserializer extends JsonDeserializer<TvDetailsWithSeasonsResponse> {
+      @Override
+      public TvDetailsWithSeasonsResponse deserialize(
+          JsonParser parser, DeserializationContext ctxt) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+          return (TvDetailsWithSeasonsResponse)
+              ctxt.handleUnexpectedToken(TvDetailsWithSeasonsResponse.class, parser);
+        }
+        Map<Integer, TvSeasonDetailsResponse> seasons = new HashMap<>();
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+          JsonToken value = parser.nextToken();
+          if (name.startsWith(SEASON_PREFIX) && value == JsonToken.START_OBJECT) {
+            seasons.put(
+                Integer.parseInt(name.substring(SEASON_PREFIX.length())),
+                ctxt.readValue(parser, TvSeasonDetailsResponse.class));
+          } else {
+            parser.skipChildren();
+          }
+        }
+        return new TvDetailsWithSeasonsResponse(Map.copyOf(seasons));
+      }
+    }
+  }
+
   // https://developers.themoviedb.org/3/tv-seasons/get-tv-season-details
-  private record TvSeasonDetailsResponse(List<Episode> episodes) {
+  // (package-private for benchmarks)
+  record TvSeasonDetailsResponse(List<Episode> episodes) {
     TvSeasonDetailsResponse {
       checkNotNull(episodes, "null episodes list");
     }
 
-    record Episode(int id, int season_number, int episode_number, String name, String overview) {
+    // only the fields used are declared, the rest (e.g. overview, crew, guest_stars) are skipped
+    // when parsing rather than materialised
+    record Episode(
+        int id, int season_number, int episode_number, String name, LocalDate air_date) {
       Episode {
         checkArgument(id > 0, "id (%s) <= 0", id);
         checkArgument(season_number >= 0, "season_number (%s) < 0", season_number);
         checkArgument(episode_number > 0, "episode_number (%s) <= 0", episode_number);
         checkArgument(Strings.isNotBlank(name), "blank name");
-        // overview sometimes null, but unused in this app
-        //        checkArgument(Strings.isNotBlank(overview), "blank overview");
+        // air_date null if not yet scheduled
       }
     }
   }
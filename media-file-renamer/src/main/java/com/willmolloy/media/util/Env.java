@@ -0,0 +1,137 @@
+package com.willmolloy.media.util;
+
+import static java.util.stream.Collectors.toMap;
+
+import com.google.common.base.Splitter;
+import com.google.common.net.InetAddresses;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Settings read from {@code MEDIA_FILE_RENAMER_*} env variables, shared by the TV show and movie
+ * renamers.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public final class Env {
+
+  private Env() {}
+
+  /**
+   * Reads an int env variable.
+   *
+   * @param name env variable name
+   * @param defaultValue value if not set
+   * @return value
+   */
+  public static int intEnv(String name, int defaultValue) {
+    String value = System.getenv(name);
+    return value != null ? Integer.parseInt(value) : defaultValue;
+  }
+
+  /**
+   * Reads a double env variable.
+   *
+   * @param name env variable name
+   * @param defaultValue value if not set
+   * @return value
+   */
+  public static double doubleEnv(String name, double defaultValue) {
+    String value = System.getenv(name);
+    return value != null ? Double.parseDouble(value) : defaultValue;
+  }
+
+  /**
+   * Directory caches and state files are kept in, {@code MEDIA_FILE_RENAMER_CACHE_DIR} if set.
+   *
+   * @return path to cache directory
+   */
+  public static Path cacheDir() {
+    String cacheDir = System.getenv("MEDIA_FILE_RENAMER_CACHE_DIR");
+    return cacheDir != null
+        ? Path.of(cacheDir)
+        : Path.of(System.getProperty("user.home"), ".media-file-renamer", "cache");
+  }
+
+  /**
+   * How long rename journals are kept for, {@code MEDIA_FILE_RENAMER_JOURNAL_RETENTION_DAYS} if
+   * set.
+   *
+   * @return journal retention period
+   */
+  public static Duration journalRetention() {
+    return Duration.ofDays(intEnv("MEDIA_FILE_RENAMER_JOURNAL_RETENTION_DAYS", 30));
+  }
+
+  /**
+   * {@link HttpHelper.Settings} with the defaults overridden by any {@code
+   * MEDIA_FILE_RENAMER_HTTP_*} env variables set.
+   *
+   * @return settings
+   */
+  public static HttpHelper.Settings httpSettings() {
+    HttpHelper.Settings defaults = HttpHelper.Settings.defaults();
+    return new HttpHelper.Settings(
+        intEnv("MEDIA_FILE_RENAMER_HTTP_MAX_REQUESTS", defaults.maxRequests()),
+        intEnv("MEDIA_FILE_RENAMER_HTTP_MAX_REQUESTS_PER_HOST", defaults.maxRequestsPerHost()),
+        intEnv("MEDIA_FILE_RENAMER_HTTP_MAX_IDLE_CONNECTIONS", defaults.maxIdleConnections()),
+        defaults.keepAliveDuration(),
+        doubleEnv(
+            "MEDIA_FILE_RENAMER_HTTP_MAX_REQUESTS_PER_SECOND", defaults.maxRequestsPerSecond()),
+        intEnv("MEDIA_FILE_RENAMER_HTTP_MAX_RETRIES", defaults.maxRetries()),
+        defaults.initialBackoff(),
+        defaults.maxBackoff());
+  }
+
+  /**
+   * Parses per file store rename concurrency overrides.
+   *
+   * @param value comma separated {@code <file store name>=<concurrency>} pairs, may be null
+   * @return concurrency by file store name
+   */
+  public static Map<String, Integer> concurrencyByStoreName(String value) {
+    if (value == null || value.isBlank()) {
+      return Map.of();
+    }
+    return Splitter.on(',')
+        .trimResults()
+        .omitEmptyStrings()
+        .withKeyValueSeparator(Splitter.on('=').trimResults())
+        .split(value)
+        .entrySet()
+        .stream()
+        .collect(toMap(Map.Entry::getKey, entry -> Integer.parseInt(entry.getValue())));
+  }
+
+  /** Exports the metrics recorded so far, if {@code MEDIA_FILE_RENAMER_METRICS_FILE} is set. */
+  public static void exportMetrics() {
+    String metricsFile = System.getenv("MEDIA_FILE_RENAMER_METRICS_FILE");
+    if (metricsFile == null) {
+      return;
+    }
+    try {
+      Metrics.export(Path.of(metricsFile), new JsonHelper());
+    } catch (UncheckedIOException e) {
+      // already logged, not worth failing the run over
+    }
+  }
+
+  /**
+   * Starts serving metrics, if {@code MEDIA_FILE_RENAMER_METRICS_PORT} is set. On the loopback
+   * address, unless {@code MEDIA_FILE_RENAMER_METRICS_ADDRESS} is set (an IP address).
+   *
+   * @return endpoint, or empty if not set
+   */
+  public static Optional<MetricsEndpoint> startMetricsEndpoint() {
+    InetAddress address =
+        Optional.ofNullable(System.getenv("MEDIA_FILE_RENAMER_METRICS_ADDRESS"))
+            .map(InetAddresses::forString)
+            .orElse(InetAddress.getLoopbackAddress());
+    return Optional.ofNullable(System.getenv("MEDIA_FILE_RENAMER_METRICS_PORT"))
+        .map(port -> new MetricsEndpoint(address, Integer.parseInt(port), new JsonHelper()));
+  }
+}
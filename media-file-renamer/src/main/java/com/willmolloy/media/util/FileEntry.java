@@ -0,0 +1,124 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Path plus its attributes, as read when it was listed.
+ *
+ * <p>Passed along instead of a bare {@link Path}, so the attributes are read once rather than each
+ * time they're checked. They're a snapshot, not kept in sync with the disk.
+ *
+ * <p>Equality is by path only.
+ *
+ * @param path path
+ * @param attributes attributes
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public record FileEntry(Path path, BasicFileAttributes attributes) {
+
+  private static final Logger log = LogManager.getLogger();
+
+  public FileEntry {
+    checkNotNull(path, "null path");
+    checkNotNull(attributes, "null attributes");
+  }
+
+  /**
+   * Reads the attributes of a path.
+   *
+   * @param path path
+   * @return {@link FileEntry}
+   */
+  public static FileEntry of(Path path) {
+    try {
+      return new FileEntry(path, Files.readAttributes(path, BasicFileAttributes.class));
+    } catch (IOException e) {
+      String msg = "Error reading attributes: %s".formatted(path);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Lists the direct children of a directory, reading the attributes of each child once.
+   *
+   * <p>Unlike {@link Files#list}, the directory handle is always closed. Symbolic links are
+   * followed, so a linked directory is listed as a directory. Children whose attributes can't be
+   * read are skipped (and logged), rather than failing the whole listing.
+   *
+   * @param dir path to directory
+   * @return children, in directory order
+   */
+  public static List<FileEntry> list(Path dir) {
+    List<FileEntry> entries = new ArrayList<>();
+    try {
+      Files.walkFileTree(
+          dir,
+          EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+          1,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              // at max depth, child directories are 'visited' as files too
+              entries.add(new FileEntry(file, attributes));
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+              if (file.equals(dir)) {
+                throw e;
+              }
+              log.warn("Skipping {}, can't read attributes - {}", file, String.valueOf(e));
+              return FileVisitResult.CONTINUE;
+            }
+          });
+      return entries;
+    } catch (IOException e) {
+      String msg = "Error listing directory: %s".formatted(dir);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  public String fileName() {
+    return path.getFileName().toString();
+  }
+
+  public boolean isDirectory() {
+    return attributes.isDirectory();
+  }
+
+  public boolean isRegularFile() {
+    return attributes.isRegularFile();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof FileEntry other && path.equals(other.path);
+  }
+
+  @Override
+  public int hashCode() {
+    return path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return path.toString();
+  }
+}
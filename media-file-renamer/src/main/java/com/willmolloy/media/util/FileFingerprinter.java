@@ -0,0 +1,187 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toMap;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fingerprints (stable identities) of large media files, without reading them in full.
+ *
+ * <p>Like the OpenSubtitles hash, a fingerprint is a hash of the file size plus a fixed size chunk
+ * from the head, middle and tail of the file (files up to 3 chunks are read whole). So it costs 3
+ * small positional reads whatever the file size. Chunks are read into a direct buffer reused per
+ * thread, rather than allocating one per file.
+ *
+ * <p>Fingerprints are cached by file key (e.g. inode, or path where there isn't one), size and
+ * modified time, so an unchanged file is only read once, even across renames. On save, entries of
+ * files not seen this run are dropped unless their fingerprint is still referenced (e.g. by the
+ * episode index), so files deleted or changed since don't accumulate.
+ *
+ * <p>Thread safe.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ * @see <a
+ *     href=https://trac.opensubtitles.org/projects/opensubtitles/wiki/HashSourceCodes>https://trac.opensubtitles.org/projects/opensubtitles/wiki/HashSourceCodes</a>
+ */
+public final class FileFingerprinter {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int CHUNK_BYTES = 64 * 1024;
+  private static final ThreadLocal<ByteBuffer> BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK_BYTES));
+  private static final Metrics.Timer FINGERPRINT_TIMER =
+      Metrics.timer("file_fingerprint_seconds", "Time reading and hashing a file's fingerprint");
+  private static final Metrics.Counter HIT_COUNTER =
+      Metrics.counter(
+          "file_fingerprints_total", "Fingerprints looked up, by result", "result", "hit");
+  private static final Metrics.Counter COMPUTED_COUNTER =
+      Metrics.counter(
+          "file_fingerprints_total", "Fingerprints looked up, by result", "result", "computed");
+
+  private final Path file;
+  private final JsonHelper jsonHelper;
+  private final Map<String, String> fingerprints;
+  // keys looked up this run
+  private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+  private FileFingerprinter(Path file, JsonHelper jsonHelper, Map<String, String> fingerprints) {
+    this.file = file;
+    this.jsonHelper = jsonHelper;
+    this.fingerprints = new ConcurrentHashMap<>(fingerprints);
+  }
+
+  /**
+   * Fingerprinter whose cache isn't saved.
+   *
+   * @return {@link FileFingerprinter}
+   */
+  public static FileFingerprinter inMemory() {
+    return new FileFingerprinter(null, null, Map.of());
+  }
+
+  /**
+   * Loads the fingerprints saved to a file (if it exists).
+   *
+   * @param file state file
+   * @param jsonHelper {@link JsonHelper}
+   * @return {@link FileFingerprinter}
+   */
+  public static FileFingerprinter load(Path file, JsonHelper jsonHelper) {
+    checkNotNull(file);
+    checkNotNull(jsonHelper);
+    Map<String, String> fingerprints =
+        StateFiles.readJson(file, jsonHelper, State.class, "file fingerprints")
+            .map(State::fingerprints)
+            .orElse(Map.of());
+    log.debug("Loaded {} file fingerprint(s) from {}", fingerprints.size(), file);
+    return new FileFingerprinter(file, jsonHelper, fingerprints);
+  }
+
+  /**
+   * Gets the fingerprint of a file, reading it only if it changed since it was last fingerprinted.
+   *
+   * @param fileEntry file, its attributes are the cache key
+   * @return fingerprint
+   */
+  public String fingerprint(FileEntry fileEntry) {
+    String key = key(fileEntry);
+    seen.add(key);
+    String fingerprint = fingerprints.get(key);
+    if (fingerprint != null) {
+      HIT_COUNTER.increment();
+      return fingerprint;
+    }
+    // not computeIfAbsent, reading may be slow (e.g. a spun down disk) and would block other keys
+    fingerprint = FINGERPRINT_TIMER.time(() -> compute(fileEntry.path()));
+    fingerprints.put(key, fingerprint);
+    COMPUTED_COUNTER.increment();
+    return fingerprint;
+  }
+
+  /**
+   * Saves the fingerprints (unless in memory) of files seen this run or still referenced, replacing
+   * the file atomically.
+   *
+   * @param referencedFingerprints fingerprints to keep even if their file wasn't seen this run
+   */
+  public synchronized void save(Set<String> referencedFingerprints) {
+    if (file == null) {
+      return;
+    }
+    Map<String, String> kept =
+        fingerprints.entrySet().stream()
+            .filter(
+                entry ->
+                    seen.contains(entry.getKey())
+                        || referencedFingerprints.contains(entry.getValue()))
+            .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+    StateFiles.writeJson(file, jsonHelper, new State(kept), "file fingerprints");
+    log.debug(
+        "Saved {} file fingerprint(s) to {}, dropped {}",
+        kept.size(),
+        file,
+        fingerprints.size() - kept.size());
+  }
+
+  private static String key(FileEntry fileEntry) {
+    Object fileKey = fileEntry.attributes().fileKey();
+    return "%s:%s:%s"
+        .formatted(
+            fileKey != null ? fileKey : fileEntry.path().toAbsolutePath().normalize(),
+            fileEntry.attributes().size(),
+            fileEntry.attributes().lastModifiedTime().toMillis());
+  }
+
+  private static String compute(Path path) {
+    ByteBuffer buffer = BUFFER.get();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      Hasher hasher = Hashing.murmur3_128().newHasher().putLong(size);
+      for (long position : chunkPositions(size)) {
+        buffer.clear().limit((int) Math.min(CHUNK_BYTES, size - position));
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, position + buffer.position()) < 0) {
+            // truncated since the size was read
+            break;
+          }
+        }
+        hasher.putBytes(buffer.flip());
+      }
+      return hasher.hash().toString();
+    } catch (IOException e) {
+      String msg = "Error fingerprinting: %s".formatted(path);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  private static long[] chunkPositions(long size) {
+    if (size <= 3L * CHUNK_BYTES) {
+      return LongStream.iterate(
+              0, position -> position < size, position -> position + CHUNK_BYTES)
+          .toArray();
+    }
+    return new long[] {0, size / 2 - CHUNK_BYTES / 2, size - CHUNK_BYTES};
+  }
+
+  private record State(Map<String, String> fingerprints) {
+    State {
+      checkNotNull(fingerprints, "null fingerprints map");
+    }
+  }
+}
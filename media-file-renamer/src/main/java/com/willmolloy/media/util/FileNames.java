@@ -0,0 +1,60 @@
+package com.willmolloy.media.util;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for the file names in a library, shared by the TV show and movie renamers: matching
+ * directory and video file names, and building file names out of names from elsewhere (e.g.
+ * episode or movie titles).
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public final class FileNames {
+
+  /** Name of a show or movie directory, i.e. {@code <Name> (<Year>)}. */
+  public static final Pattern NAME_AND_YEAR_PATTERN = Pattern.compile("(.+?) [(](\\d{4})[)]");
+
+  private static final Set<String> VIDEO_FILE_EXTENSIONS = Set.of(".mp4", ".mkv", ".avi");
+
+  private FileNames() {}
+
+  /**
+   * Whether a file is a video file, by its extension.
+   *
+   * @param fileName file name
+   * @return true if a video file
+   */
+  public static boolean isVideoFile(String fileName) {
+    return VIDEO_FILE_EXTENSIONS.stream().anyMatch(fileName::endsWith);
+  }
+
+  /**
+   * Appends a name, skipping any characters that can't be in a file name.
+   *
+   * @param fileName file name to append to
+   * @param name name to append
+   */
+  public static void appendWithoutIllegalPathChars(StringBuilder fileName, String name) {
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!isIllegalPathChar(c)) {
+        fileName.append(c);
+      }
+    }
+  }
+
+  /**
+   * Whether a character can't be in a file name, on Windows (the strictest), i.e. {@code \ / : *
+   * ? " < > |}.
+   *
+   * @param c character
+   * @return true if illegal
+   */
+  public static boolean isIllegalPathChar(char c) {
+    return switch (c) {
+      case '\\', '/', ':', '*', '?', '"', '<', '>', '|' -> true;
+      default -> false;
+    };
+  }
+}
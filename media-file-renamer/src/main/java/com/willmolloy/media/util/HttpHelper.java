@@ -1,8 +1,23 @@
 package com.willmolloy.media.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.base.Throwables;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -18,12 +33,45 @@ public class HttpHelper {
 
   private static final Logger log = LogManager.getLogger();
 
-  private final OkHttpClient httpClient = new OkHttpClient.Builder().build();
+  private final OkHttpClient httpClient;
 
   private final JsonHelper jsonHelper;
+  // looked up once per host (and status), rather than from the registry per request
+  private final Map<String, Metrics.Counter> responseBytesCounters = new ConcurrentHashMap<>();
+  private final Map<HostStatus, Metrics.Timer> requestTimers = new ConcurrentHashMap<>();
 
   public HttpHelper(JsonHelper jsonHelper) {
+    this(jsonHelper, Settings.defaults());
+  }
+
+  public HttpHelper(JsonHelper jsonHelper, Settings settings) {
     this.jsonHelper = checkNotNull(jsonHelper);
+
+    // daemon threads so idle dispatcher threads don't hold up JVM exit
+    Dispatcher dispatcher =
+        new Dispatcher(
+            Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder()
+                    .setNameFormat("http-dispatcher-%d")
+                    .setDaemon(true)
+                    .build()));
+    dispatcher.setMaxRequests(settings.maxRequests());
+    dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost());
+    this.httpClient =
+        new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(
+                new ConnectionPool(
+                    settings.maxIdleConnections(),
+                    settings.keepAliveDuration().toMillis(),
+                    TimeUnit.MILLISECONDS))
+            .addInterceptor(
+                new RateLimitInterceptor(
+                    settings.maxRequestsPerSecond(),
+                    settings.maxRetries(),
+                    settings.initialBackoff(),
+                    settings.maxBackoff()))
+            .build();
   }
 
   /**
@@ -35,33 +83,160 @@ public class HttpHelper {
    * @return deserialised response
    */
   public <T> T get(String url, Class<T> type) {
+    try {
+      return getAsync(url, type).join();
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /**
+   * Asynchronously sends a GET request and deserialises the JSON response.
+   *
+   * <p>Requests are queued subject to the {@link Settings} dispatcher limits, cancelling the
+   * returned future cancels the request.
+   *
+   * @param url url to send the GET request to
+   * @param type deserialised object type
+   * @param <T> deserialised object type
+   * @return future of the deserialised response
+   */
+  public <T> CompletableFuture<T> getAsync(String url, Class<T> type) {
     Request request =
         new Request.Builder().url(url).header("Accept", "application/json").get().build();
 
-    String jsonResponseBody = sendRequest(request);
-
-    return jsonHelper.deserialise(jsonResponseBody, type);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Call call = sendRequest(request, future, type);
+    future.whenComplete(
+        (result, e) -> {
+          if (future.isCancelled()) {
+            call.cancel();
+          }
+        });
+    return future;
   }
 
-  private String sendRequest(Request request) {
+  private <T> Call sendRequest(Request request, CompletableFuture<T> future, Class<T> type) {
     log.debug("Sending request: {}", request);
-    try {
-      Response response = httpClient.newCall(request).execute();
-
-      if (response.isSuccessful()) {
-        log.debug("Received successful response: {}", response);
-        String responseBody = response.body().string();
-        log.debug("Received response body: {}", responseBody);
-        return responseBody;
-      }
-
-      String msg = "Received unsuccessful response: %s".formatted(response);
-      log.error(msg);
-      throw new RuntimeException(msg);
-    } catch (IOException e) {
-      String msg = "Error sending request: %s".formatted(request);
-      log.error(msg, e);
-      throw new RuntimeException(msg, e);
+    // includes time queued by the dispatcher, rate limited and retrying
+    long start = System.nanoTime();
+    String host = request.url().host();
+    Call call = httpClient.newCall(request);
+    call.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            requestTimer(host, "error").recordSince(start);
+            String msg = "Error sending request: %s".formatted(request);
+            log.error(msg, e);
+            future.completeExceptionally(new RuntimeException(msg, e));
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) {
+            // always close the response, otherwise the connection isn't returned to the pool
+            requestTimer(host, String.valueOf(response.code())).recordSince(start);
+            try (response) {
+              checkSuccessful(response);
+              // parse straight off the socket rather than buffering the body into a String first
+              CountingInputStream body = new CountingInputStream(response.body().byteStream());
+              try {
+                future.complete(jsonHelper.deserialise(body, type));
+              } finally {
+                // counted as read, since the body is usually gzipped (so has no content length)
+                responseBytesCounter(host).add(body.getCount());
+              }
+            } catch (RuntimeException e) {
+              future.completeExceptionally(e);
+            }
+          }
+        });
+    return call;
+  }
+
+  private Metrics.Counter responseBytesCounter(String host) {
+    return responseBytesCounters.computeIfAbsent(
+        host,
+        h ->
+            Metrics.counter(
+                "http_response_bytes_total",
+                "HTTP response body bytes received, by host",
+                "host",
+                h));
+  }
+
+  private Metrics.Timer requestTimer(String host, String status) {
+    return requestTimers.computeIfAbsent(
+        new HostStatus(host, status),
+        key ->
+            Metrics.timer(
+                "http_request_seconds",
+                "Time until an HTTP response is received, by host and status",
+                "host",
+                key.host(),
+                "status",
+                key.status()));
+  }
+
+  private void checkSuccessful(Response response) {
+    if (response.isSuccessful()) {
+      log.debug(
+          "Received successful response: {} ({} bytes)",
+          response,
+          response.body().contentLength());
+      return;
+    }
+
+    String msg = "Received unsuccessful response: %s".formatted(response);
+    log.error(msg);
+    throw new RuntimeException(msg);
+  }
+
+  /**
+   * HTTP client settings.
+   *
+   * @param maxRequests max number of concurrent requests
+   * @param maxRequestsPerHost max number of concurrent requests to a single host
+   * @param maxIdleConnections max number of idle connections kept alive for reuse
+   * @param keepAliveDuration how long idle connections are kept alive for
+   * @param maxRequestsPerSecond max request rate, shared by all requests
+   * @param maxRetries max number of retries for rate limited (429) or server error (5xx) responses
+   * @param initialBackoff delay before the first retry, doubling each retry (unless the response
+   *     has a Retry-After header)
+   * @param maxBackoff max delay between retries
+   */
+  public record Settings(
+      int maxRequests,
+      int maxRequestsPerHost,
+      int maxIdleConnections,
+      Duration keepAliveDuration,
+      double maxRequestsPerSecond,
+      int maxRetries,
+      Duration initialBackoff,
+      Duration maxBackoff) {
+    public Settings {
+      checkArgument(maxRequests > 0, "maxRequests (%s) <= 0", maxRequests);
+      checkArgument(maxRequestsPerHost > 0, "maxRequestsPerHost (%s) <= 0", maxRequestsPerHost);
+      checkArgument(maxIdleConnections >= 0, "maxIdleConnections (%s) < 0", maxIdleConnections);
+      checkArgument(!keepAliveDuration.isNegative(), "negative keepAliveDuration");
+      checkArgument(
+          maxRequestsPerSecond > 0, "maxRequestsPerSecond (%s) <= 0", maxRequestsPerSecond);
+      checkArgument(maxRetries >= 0, "maxRetries (%s) < 0", maxRetries);
+      checkArgument(!initialBackoff.isNegative(), "negative initialBackoff");
+      checkArgument(!maxBackoff.isNegative(), "negative maxBackoff");
+    }
+
+    /**
+     * Default settings.
+     *
+     * @return default settings
+     */
+    public static Settings defaults() {
+      return new Settings(
+          64, 8, 5, Duration.ofMinutes(5), 20, 5, Duration.ofMillis(500), Duration.ofSeconds(30));
     }
   }
+
+  private record HostStatus(String host, String status) {}
 }
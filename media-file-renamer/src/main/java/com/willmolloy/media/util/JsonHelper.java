@@ -8,7 +8,10 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,15 +24,18 @@ public class JsonHelper {
 
   private static final Logger log = LogManager.getLogger();
 
-  private final ObjectReader objectReader;
+  private final ObjectMapper objectMapper;
   private final ObjectWriter objectWriter;
+  // readers are immutable and thread safe, so build one per type rather than per call
+  private final Map<Class<?>, ObjectReader> objectReaders = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Metrics.Timer> deserialiseTimers = new ConcurrentHashMap<>();
 
   public JsonHelper() {
-    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper = new ObjectMapper();
     objectMapper.registerModule(new JavaTimeModule());
+    // unknown properties are skipped by the parser, without being materialised
     objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     objectMapper.configure(SerializationFeature.INDENT_OUTPUT, true);
-    objectReader = objectMapper.reader();
     objectWriter = objectMapper.writer();
   }
 
@@ -42,15 +48,58 @@ public class JsonHelper {
    * @return deserialised object
    */
   public <T> T deserialise(String json, Class<T> type) {
+    long start = System.nanoTime();
     try {
-      return objectReader.readValue(json, type);
+      return objectReader(type).readValue(json);
     } catch (IOException e) {
       String msg = "Failed to deserialise: %s".formatted(json);
       log.error(msg, e);
       throw new UncheckedIOException(msg, e);
+    } finally {
+      deserialiseTimer(type).recordSince(start);
     }
   }
 
+  /**
+   * Deserialise JSON straight from a stream, without buffering the whole document.
+   *
+   * <p>Only the properties of {@code type} are materialised, so keep it to the fields that are
+   * actually used.
+   *
+   * @param json JSON stream to deserialise (closed once read)
+   * @param type deserialised object type
+   * @param <T> deserialised object type
+   * @return deserialised object
+   */
+  public <T> T deserialise(InputStream json, Class<T> type) {
+    long start = System.nanoTime();
+    try {
+      return objectReader(type).readValue(json);
+    } catch (IOException e) {
+      String msg = "Failed to deserialise: %s".formatted(type.getSimpleName());
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    } finally {
+      // from a stream this includes reading it, e.g. receiving the rest of an HTTP response body
+      deserialiseTimer(type).recordSince(start);
+    }
+  }
+
+  private ObjectReader objectReader(Class<?> type) {
+    return objectReaders.computeIfAbsent(type, objectMapper::readerFor);
+  }
+
+  private Metrics.Timer deserialiseTimer(Class<?> type) {
+    return deserialiseTimers.computeIfAbsent(
+        type,
+        t ->
+            Metrics.timer(
+                "json_deserialise_seconds",
+                "Time deserialising JSON, by type",
+                "type",
+                t.getSimpleName()));
+  }
+
   /**
    * Serialise JSON.
    *
@@ -0,0 +1,383 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Process wide registry of counters and timers, exported as Prometheus text or JSON.
+ *
+ * <p>Static (like {@link LogManager}) so any stage can be instrumented without threading a
+ * registry through every constructor, e.g. {@code private static final Metrics.Timer PARSE_TIMER =
+ * Metrics.timer("parse_seconds", "Time parsing a show")}. A metric is identified by its name and
+ * labels, asking for the same one twice returns the same instance.
+ *
+ * <p>Recording is lock free (just {@link LongAdder} increments), so is cheap enough for hot paths.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public final class Metrics {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String PREFIX = "media_file_renamer_";
+
+  // upper bounds of the timer histogram buckets, in seconds (and +Inf)
+  private static final double[] BUCKETS_SECONDS = {
+    0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+  };
+  // as the le label values, e.g. 0.0005 rather than 5.0E-4
+  private static final String[] BUCKET_LABELS =
+      Stream.concat(
+              Arrays.stream(BUCKETS_SECONDS)
+                  .mapToObj(BigDecimal::valueOf)
+                  .map(bound -> bound.stripTrailingZeros().toPlainString()),
+              Stream.of("+Inf"))
+          .toArray(String[]::new);
+
+  private static final ConcurrentMap<String, Metric> REGISTRY = new ConcurrentHashMap<>();
+
+  private Metrics() {}
+
+  /**
+   * Gets (or creates) a counter.
+   *
+   * @param name name, e.g. {@code http_response_bytes_total}
+   * @param help description
+   * @param labels label name and value pairs, e.g. {@code "host", "api.themoviedb.org"}
+   * @return counter
+   */
+  public static Counter counter(String name, String help, String... labels) {
+    return register(new Counter(name, help, labels(labels)), Counter.class);
+  }
+
+  /**
+   * Gets (or creates) a timer, a histogram of durations.
+   *
+   * @param name name, e.g. {@code http_request_seconds}
+   * @param help description
+   * @param labels label name and value pairs, e.g. {@code "status", "200"}
+   * @return timer
+   */
+  public static Timer timer(String name, String help, String... labels) {
+    return register(new Timer(name, help, labels(labels)), Timer.class);
+  }
+
+  private static <M extends Metric> M register(M metric, Class<M> type) {
+    Metric registered = REGISTRY.computeIfAbsent(metric.id(), id -> metric);
+    checkArgument(
+        type.isInstance(registered), "%s already registered as a different type", metric.id());
+    return type.cast(registered);
+  }
+
+  private static Map<String, String> labels(String... labels) {
+    checkArgument(labels.length % 2 == 0, "Expected label name and value pairs");
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < labels.length; i += 2) {
+      map.put(checkNotNull(labels[i]), String.valueOf(labels[i + 1]));
+    }
+    return map;
+  }
+
+  /**
+   * Renders every metric in the Prometheus text exposition format.
+   *
+   * @return Prometheus text
+   * @see <a
+   *     href=https://prometheus.io/docs/instrumenting/exposition_formats>https://prometheus.io/docs/instrumenting/exposition_formats</a>
+   */
+  public static String prometheusText() {
+    StringBuilder sb = new StringBuilder();
+    String previousName = null;
+    for (Metric metric : sorted()) {
+      // HELP and TYPE once per name, not per label set
+      if (!metric.name.equals(previousName)) {
+        sb.append("# HELP ").append(PREFIX).append(metric.name).append(' ');
+        sb.append(metric.help).append('\n');
+        sb.append("# TYPE ").append(PREFIX).append(metric.name).append(' ');
+        sb.append(metric.type()).append('\n');
+        previousName = metric.name;
+      }
+      metric.appendPrometheus(sb);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Renders every metric as JSON.
+   *
+   * @param jsonHelper {@link JsonHelper}
+   * @return JSON array of metrics
+   */
+  public static String json(JsonHelper jsonHelper) {
+    return jsonHelper.serialise(sorted().stream().map(Metric::toJson).toList());
+  }
+
+  /**
+   * Writes every metric to a file, as JSON if it ends in {@code .json}, otherwise as Prometheus
+   * text (e.g. for the node exporter's textfile collector).
+   *
+   * @param file file to write to (replaced atomically)
+   * @param jsonHelper {@link JsonHelper}
+   */
+  public static void export(Path file, JsonHelper jsonHelper) {
+    String content =
+        file.getFileName().toString().endsWith(".json") ? json(jsonHelper) : prometheusText();
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      // written aside and moved, so a scraper never reads a partial file
+      Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      Files.writeString(temp, content, StandardCharsets.UTF_8);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.info("Exported metrics to: {}", file);
+    } catch (IOException e) {
+      String msg = "Failed to export metrics to: %s".formatted(file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  private static List<Metric> sorted() {
+    List<Metric> metrics = new ArrayList<>(REGISTRY.values());
+    metrics.sort(Comparator.comparing(Metric::id));
+    return metrics;
+  }
+
+  /** Base of a named and labelled metric. */
+  private abstract static class Metric {
+    final String name;
+    final String help;
+    final Map<String, String> labels;
+
+    Metric(String name, String help, Map<String, String> labels) {
+      checkArgument(name.matches("[a-z_][a-z0-9_]*"), "Invalid metric name: %s", name);
+      this.name = name;
+      this.help = checkNotNull(help);
+      this.labels = labels;
+    }
+
+    String id() {
+      return name + labels;
+    }
+
+    abstract String type();
+
+    abstract void appendPrometheus(StringBuilder sb);
+
+    abstract Map<String, Object> toJson();
+
+    // e.g. name{a="1",b="2"} with an extra label (if not null) added last
+    void appendSeries(StringBuilder sb, String suffix, String extraLabel, String extraValue) {
+      sb.append(PREFIX).append(name).append(suffix);
+      if (labels.isEmpty() && extraLabel == null) {
+        return;
+      }
+      sb.append('{');
+      String separator = "";
+      for (Map.Entry<String, String> label : labels.entrySet()) {
+        appendLabel(sb.append(separator), label.getKey(), label.getValue());
+        separator = ",";
+      }
+      if (extraLabel != null) {
+        appendLabel(sb.append(separator), extraLabel, extraValue);
+      }
+      sb.append('}');
+    }
+
+    private static void appendLabel(StringBuilder sb, String name, String value) {
+      sb.append(name).append("=\"");
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        switch (c) {
+          case '\\' -> sb.append("\\\\");
+          case '"' -> sb.append("\\\"");
+          case '\n' -> sb.append("\\n");
+          default -> sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+
+    Map<String, Object> jsonBase() {
+      Map<String, Object> json = new LinkedHashMap<>();
+      json.put("name", name);
+      json.put("type", type());
+      json.put("labels", labels);
+      return json;
+    }
+  }
+
+  /** Monotonically increasing count. */
+  public static final class Counter extends Metric {
+    private final LongAdder value = new LongAdder();
+
+    private Counter(String name, String help, Map<String, String> labels) {
+      super(name, help, labels);
+    }
+
+    public void increment() {
+      value.increment();
+    }
+
+    /**
+     * Adds to the count.
+     *
+     * @param amount amount to add (not negative)
+     */
+    public void add(long amount) {
+      checkArgument(amount >= 0, "amount (%s) < 0", amount);
+      value.add(amount);
+    }
+
+    public long value() {
+      return value.sum();
+    }
+
+    @Override
+    String type() {
+      return "counter";
+    }
+
+    @Override
+    void appendPrometheus(StringBuilder sb) {
+      appendSeries(sb, "", null, null);
+      sb.append(' ').append(value()).append('\n');
+    }
+
+    @Override
+    Map<String, Object> toJson() {
+      Map<String, Object> json = jsonBase();
+      json.put("value", value());
+      return json;
+    }
+  }
+
+  /** Histogram of durations, with their count, sum and max. */
+  public static final class Timer extends Metric {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    // not cumulative (unlike the exported buckets), the last is +Inf
+    private final LongAdder[] buckets = new LongAdder[BUCKETS_SECONDS.length + 1];
+
+    private Timer(String name, String help, Map<String, String> labels) {
+      super(name, help, labels);
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+      count.increment();
+      sumNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      double seconds = nanos / 1e9;
+      int bucket = 0;
+      while (bucket < BUCKETS_SECONDS.length && seconds > BUCKETS_SECONDS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket].increment();
+    }
+
+    /**
+     * Records the duration since a start time.
+     *
+     * @param startNanos start time, from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Times a call, recording its duration even if it throws.
+     *
+     * @param call call to time
+     * @param <T> result type
+     * @return result of the call
+     */
+    public <T> T time(Supplier<T> call) {
+      long start = System.nanoTime();
+      try {
+        return call.get();
+      } finally {
+        recordSince(start);
+      }
+    }
+
+    public long count() {
+      return count.sum();
+    }
+
+    public long sumNanos() {
+      return sumNanos.sum();
+    }
+
+    public long maxNanos() {
+      return maxNanos.get();
+    }
+
+    @Override
+    String type() {
+      return "histogram";
+    }
+
+    @Override
+    void appendPrometheus(StringBuilder sb) {
+      long cumulative = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        cumulative += buckets[i].sum();
+        appendSeries(sb, "_bucket", "le", BUCKET_LABELS[i]);
+        sb.append(' ').append(cumulative).append('\n');
+      }
+      appendSeries(sb, "_sum", null, null);
+      sb.append(' ').append(sumNanos() / 1e9).append('\n');
+      appendSeries(sb, "_count", null, null);
+      sb.append(' ').append(count()).append('\n');
+    }
+
+    @Override
+    Map<String, Object> toJson() {
+      Map<String, Object> json = jsonBase();
+      long count = count();
+      json.put("count", count);
+      json.put("sumSeconds", sumNanos() / 1e9);
+      json.put("meanSeconds", count == 0 ? 0 : sumNanos() / 1e9 / count);
+      json.put("maxSeconds", maxNanos() / 1e9);
+      Map<String, Long> cumulativeBuckets = new LinkedHashMap<>();
+      long cumulative = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        cumulative += buckets[i].sum();
+        cumulativeBuckets.put(BUCKET_LABELS[i], cumulative);
+      }
+      json.put("buckets", cumulativeBuckets);
+      return json;
+    }
+  }
+}
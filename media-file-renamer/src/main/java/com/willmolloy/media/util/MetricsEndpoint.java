@@ -0,0 +1,98 @@
+package com.willmolloy.media.util;
+
+import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Serves {@link Metrics} over HTTP while running, for long running modes (e.g. the library
+ * watcher).
+ *
+ * <p>Unauthenticated, so only listens on the loopback address unless told otherwise.
+ *
+ * <ul>
+ *   <li>{@code GET /metrics} Prometheus text, to be scraped
+ *   <li>{@code GET /metrics.json} JSON
+ * </ul>
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class MetricsEndpoint implements Closeable {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  public MetricsEndpoint(int port, JsonHelper jsonHelper) {
+    this(InetAddress.getLoopbackAddress(), port, jsonHelper);
+  }
+
+  /**
+   * Starts serving.
+   *
+   * @param address address to listen on, e.g. the wildcard address to be scraped from other hosts
+   * @param port port to listen on (0 for any free port)
+   * @param jsonHelper {@link JsonHelper}
+   */
+  public MetricsEndpoint(InetAddress address, int port, JsonHelper jsonHelper) {
+    try {
+      server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    } catch (IOException e) {
+      String msg = "Failed to start metrics endpoint on: %s:%s".formatted(address, port);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+    server.createContext(
+        "/metrics",
+        exchange -> respond(exchange, PROMETHEUS_CONTENT_TYPE, Metrics.prometheusText()));
+    server.createContext(
+        "/metrics.json",
+        exchange -> respond(exchange, "application/json", Metrics.json(jsonHelper)));
+    server.setExecutor(
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("metrics-endpoint").setDaemon(true).build()));
+    server.start();
+    log.info(
+        "Serving metrics on: http://{}:{}/metrics",
+        InetAddresses.toUriString(server.getAddress().getAddress()),
+        port());
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  private static void respond(HttpExchange exchange, String contentType, String body)
+      throws IOException {
+    try (exchange) {
+      if (!exchange.getRequestMethod().equals("GET")) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", contentType);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(bytes);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,341 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Persistent key-value cache, backed by an append-only log file.
+ *
+ * <p>Each entry is stored as a header line ({@code <expires at millis>\t<key>\t<value length>})
+ * followed by the JSON value. On startup only the headers are read, building an index of key ->
+ * file offset, values are deserialised lazily when requested. Later entries supersede earlier ones.
+ *
+ * <p>Thread safe. The file can't be shared by multiple processes at once (their appends would
+ * interleave), so it's locked (via a sibling {@code .lock} file, since compacting replaces the
+ * file) while open, opening it while another process has it open fails. The lock is held per
+ * process, until every instance opened in it is closed.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public class PersistentCache implements Closeable {
+
+  private static final Logger log = LogManager.getLogger();
+
+  // file locks are held by the whole process, so are shared by its instances
+  private static final Map<Path, ProcessLock> PROCESS_LOCKS = new HashMap<>();
+
+  private final Path file;
+  private final JsonHelper jsonHelper;
+  private final Clock clock;
+  private final Map<String, Entry> index = new HashMap<>();
+  private final Path lockFile;
+  private final FileChannel channel;
+
+  public PersistentCache(Path file, JsonHelper jsonHelper) {
+    this(file, jsonHelper, Clock.systemUTC());
+  }
+
+  PersistentCache(Path file, JsonHelper jsonHelper, Clock clock) {
+    this.file = checkNotNull(file);
+    this.jsonHelper = checkNotNull(jsonHelper);
+    this.clock = checkNotNull(clock);
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      lockFile = lock(file);
+    } catch (IOException e) {
+      String msg = "Error locking cache: %s".formatted(file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+    try {
+      compactIfStale(load());
+      channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      String msg = "Error opening cache: %s".formatted(file);
+      log.error(msg, e);
+      unlock(lockFile);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Get a cached value.
+   *
+   * @param key key
+   * @param type value type
+   * @param <T> value type
+   * @return cached value, or empty if absent or expired
+   */
+  public <T> Optional<T> get(String key, Class<T> type) {
+    Entry entry;
+    synchronized (this) {
+      entry = index.get(key);
+    }
+    if (entry == null || entry.isExpired(clock.millis())) {
+      return Optional.empty();
+    }
+
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, entry.offset() + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of file");
+        }
+      }
+      String json = new String(buffer.array(), StandardCharsets.UTF_8);
+      return Optional.of(jsonHelper.deserialise(json, type));
+    } catch (IOException e) {
+      String msg = "Error reading cache entry: %s".formatted(key);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Whether a value is cached, without reading it.
+   *
+   * @param key key
+   * @return true if present and not expired
+   */
+  public synchronized boolean contains(String key) {
+    Entry entry = index.get(key);
+    return entry != null && !entry.isExpired(clock.millis());
+  }
+
+  /**
+   * Cache a value.
+   *
+   * @param key key (must not contain tabs or newlines)
+   * @param value value to cache
+   * @param ttl how long the value is valid for
+   */
+  public void put(String key, Object value, Duration ttl) {
+    checkArgument(key.indexOf('\t') < 0 && key.indexOf('\n') < 0, "Illegal key: %s", key);
+    long expiresAt = clock.millis() + ttl.toMillis();
+    byte[] json = jsonHelper.serialise(value).getBytes(StandardCharsets.UTF_8);
+    byte[] header =
+        "%s\t%s\t%s\n".formatted(expiresAt, key, json.length).getBytes(StandardCharsets.UTF_8);
+
+    synchronized (this) {
+      try {
+        long position = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + json.length + 1);
+        buffer.put(header).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer, position + buffer.position());
+        }
+        index.put(key, new Entry(position + header.length, json.length, expiresAt));
+      } catch (IOException e) {
+        String msg = "Error writing cache entry: %s".formatted(key);
+        log.error(msg, e);
+        throw new UncheckedIOException(msg, e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      channel.close();
+    } finally {
+      unlock(lockFile);
+    }
+  }
+
+  private static Path lock(Path file) throws IOException {
+    Path lockFile = file.resolveSibling(file.getFileName() + ".lock").toAbsolutePath().normalize();
+    synchronized (PROCESS_LOCKS) {
+      ProcessLock processLock = PROCESS_LOCKS.get(lockFile);
+      if (processLock == null) {
+        FileChannel lockChannel =
+            FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+          lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+          // locked by this process, but not by an instance
+          lock = null;
+        }
+        if (lock == null) {
+          lockChannel.close();
+          throw new IllegalStateException(
+              ("Cache %s is in use by another process, stop it first or set a different"
+                      + " MEDIA_FILE_RENAMER_CACHE_DIR")
+                  .formatted(file));
+        }
+        processLock = new ProcessLock(lockChannel);
+        PROCESS_LOCKS.put(lockFile, processLock);
+      }
+      processLock.holders++;
+      return lockFile;
+    }
+  }
+
+  private static void unlock(Path lockFile) {
+    synchronized (PROCESS_LOCKS) {
+      ProcessLock processLock = PROCESS_LOCKS.get(lockFile);
+      if (--processLock.holders > 0) {
+        return;
+      }
+      PROCESS_LOCKS.remove(lockFile);
+      try {
+        // closing the channel releases the lock
+        processLock.channel.close();
+      } catch (IOException e) {
+        log.warn("Error closing lock file: {}", lockFile, e);
+      }
+    }
+  }
+
+  private static final class ProcessLock {
+    private final FileChannel channel;
+    private int holders;
+
+    private ProcessLock(FileChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  /** Builds the index from the entry headers, returns the number of superseded/expired entries. */
+  private int load() throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+
+    long now = clock.millis();
+    long position = 0;
+    int entries = 0;
+    boolean corrupt = false;
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+      byte[] header;
+      while ((header = readLine(in)) != null) {
+        String[] parts = new String(header, StandardCharsets.UTF_8).split("\t", -1);
+        checkFormat(parts.length == 3);
+        long expiresAt = Long.parseLong(parts[0]);
+        int length = Integer.parseInt(parts[2]);
+        long valueOffset = position + header.length + 1;
+
+        // skip the value (and its trailing newline) without parsing it
+        in.skipNBytes(length + 1L);
+
+        entries++;
+        if (expiresAt > now) {
+          index.put(parts[1], new Entry(valueOffset, length, expiresAt));
+        } else {
+          index.remove(parts[1]);
+        }
+        position = valueOffset + length + 1;
+      }
+    } catch (EOFException | IllegalArgumentException e) {
+      // most likely the process died mid-write, drop the incomplete entry
+      corrupt = true;
+    }
+
+    if (corrupt) {
+      log.warn("Truncating corrupt cache {} at offset {}", file, position);
+      try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        out.truncate(position);
+      }
+    }
+    log.debug("Loaded {} live entries from {}", index.size(), file);
+    return entries - index.size();
+  }
+
+  /** Rewrites the file with only the live entries, if most of it is dead. */
+  private void compactIfStale(int deadEntries) throws IOException {
+    if (deadEntries <= index.size()) {
+      return;
+    }
+    log.debug("Compacting cache {}, {} dead entries", file, deadEntries);
+
+    Map<String, Entry> compacted = new HashMap<>();
+    StateFiles.write(
+        file,
+        tempFile -> {
+          try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+              FileChannel target =
+                  FileChannel.open(
+                      tempFile,
+                      StandardOpenOption.CREATE,
+                      StandardOpenOption.TRUNCATE_EXISTING,
+                      StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+              Entry entry = e.getValue();
+              byte[] header =
+                  "%s\t%s\t%s\n"
+                      .formatted(entry.expiresAt(), e.getKey(), entry.length())
+                      .getBytes(StandardCharsets.UTF_8);
+              ByteBuffer buffer = ByteBuffer.wrap(header);
+              while (buffer.hasRemaining()) {
+                target.write(buffer);
+              }
+              long valueOffset = target.position();
+              long length = entry.length() + 1L;
+              long copied = 0;
+              while (copied < length) {
+                copied += source.transferTo(entry.offset() + copied, length - copied, target);
+              }
+              compacted.put(e.getKey(), new Entry(valueOffset, entry.length(), entry.expiresAt()));
+            }
+          }
+        });
+    index.clear();
+    index.putAll(compacted);
+  }
+
+  private static void checkFormat(boolean expression) {
+    if (!expression) {
+      throw new IllegalArgumentException("Malformed cache entry header");
+    }
+  }
+
+  /** Reads up to the next newline, returns null at end of stream. */
+  private static byte[] readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) {
+        if (line.size() == 0) {
+          return null;
+        }
+        throw new EOFException("Partial cache entry header");
+      }
+      line.write(b);
+    }
+    return line.toByteArray();
+  }
+
+  private record Entry(long offset, int length, long expiresAt) {
+    boolean isExpired(long now) {
+      return expiresAt <= now;
+    }
+  }
+}
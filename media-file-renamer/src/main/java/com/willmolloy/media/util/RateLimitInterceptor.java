@@ -0,0 +1,157 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * OkHttp interceptor which rate limits requests and retries rate limited (429) and server error
+ * (5xx) responses with exponential backoff.
+ *
+ * <p>The rate limiter is a token bucket shared by every request sent through the client. It adapts
+ * to the server: each 429 halves the rate, each success recovers it gradually back to the
+ * configured rate.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class RateLimitInterceptor implements Interceptor {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final double MIN_REQUESTS_PER_SECOND = 1;
+
+  private final double maxRequestsPerSecond;
+  private final int maxRetries;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final RateLimiter rateLimiter;
+
+  RateLimitInterceptor(
+      double maxRequestsPerSecond, int maxRetries, Duration initialBackoff, Duration maxBackoff) {
+    checkArgument(
+        maxRequestsPerSecond > 0, "maxRequestsPerSecond (%s) <= 0", maxRequestsPerSecond);
+    checkArgument(maxRetries >= 0, "maxRetries (%s) < 0", maxRetries);
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+    this.maxRetries = maxRetries;
+    this.initialBackoff = checkNotNull(initialBackoff);
+    this.maxBackoff = checkNotNull(maxBackoff);
+    this.rateLimiter = RateLimiter.create(maxRequestsPerSecond);
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    for (int attempt = 0; ; attempt++) {
+      rateLimiter.acquire();
+      Response response = chain.proceed(request);
+
+      int code = response.code();
+      if (code == TOO_MANY_REQUESTS) {
+        slowDown();
+      } else if (response.isSuccessful()) {
+        speedUp();
+      }
+      if (!isRetryable(code) || attempt >= maxRetries) {
+        return response;
+      }
+
+      Duration delay = retryDelay(response, attempt);
+      response.close();
+      log.warn(
+          "Received {} for {}, retrying in {} (retry {}/{})",
+          code,
+          request.url(),
+          delay,
+          attempt + 1,
+          maxRetries);
+      sleep(delay);
+    }
+  }
+
+  private boolean isRetryable(int code) {
+    return code == TOO_MANY_REQUESTS || code >= 500;
+  }
+
+  private synchronized void slowDown() {
+    double rate = Math.max(MIN_REQUESTS_PER_SECOND, rateLimiter.getRate() / 2);
+    if (rate < rateLimiter.getRate()) {
+      log.warn("Rate limited, reducing rate to {} request(s)/second", rate);
+      rateLimiter.setRate(rate);
+    }
+  }
+
+  private synchronized void speedUp() {
+    if (rateLimiter.getRate() < maxRequestsPerSecond) {
+      double step = Math.max(maxRequestsPerSecond / 100, 0.1);
+      rateLimiter.setRate(Math.min(maxRequestsPerSecond, rateLimiter.getRate() + step));
+    }
+  }
+
+  /** Retry-After if given (at most max backoff), otherwise exponential backoff with jitter. */
+  private Duration retryDelay(Response response, int attempt) {
+    Optional<Duration> retryAfter = parseRetryAfter(response.header("Retry-After"));
+    if (retryAfter.isPresent()) {
+      // a server asking for hours would otherwise stall the run
+      return retryAfter.get().compareTo(maxBackoff) < 0 ? retryAfter.get() : maxBackoff;
+    }
+
+    long backoffMillis =
+        Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt, 30));
+    long halfBackoffMillis = backoffMillis / 2;
+    return Duration.ofMillis(
+        halfBackoffMillis + ThreadLocalRandom.current().nextLong(halfBackoffMillis + 1));
+  }
+
+  /**
+   * Parses a Retry-After header, either delay seconds or an HTTP date.
+   *
+   * @see <a href=https://httpwg.org/specs/rfc9110.html#field.retry-after>Retry-After</a>
+   */
+  static Optional<Duration> parseRetryAfter(String retryAfter) {
+    if (retryAfter == null) {
+      return Optional.empty();
+    }
+
+    Long seconds = Longs.tryParse(retryAfter.trim());
+    if (seconds != null) {
+      return Optional.of(Duration.ofSeconds(Math.max(0, seconds)));
+    }
+    try {
+      Instant retryAt =
+          ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      Duration delay = Duration.between(Instant.now(), retryAt);
+      return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+    } catch (DateTimeParseException e) {
+      log.warn("Ignoring unparseable Retry-After: {}", retryAfter);
+      return Optional.empty();
+    }
+  }
+
+  private void sleep(Duration delay) throws InterruptedIOException {
+    try {
+      Thread.sleep(delay.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException interrupted = new InterruptedIOException("Interrupted during retry");
+      interrupted.initCause(e);
+      throw interrupted;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.willmolloy.media.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads and writes files kept between runs (state files, caches, indexes).
+ *
+ * <p>Files are written whole to a sibling {@code .tmp} file then moved over the file atomically, so
+ * a run that dies mid write leaves the previous file intact.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+public final class StateFiles {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private StateFiles() {}
+
+  /**
+   * Reads a JSON file.
+   *
+   * @param file path to file
+   * @param jsonHelper {@link JsonHelper}
+   * @param type deserialised object type
+   * @param description what's in the file, for the error message
+   * @param <T> deserialised object type
+   * @return deserialised object, or empty if the file doesn't exist
+   */
+  public static <T> Optional<T> readJson(
+      Path file, JsonHelper jsonHelper, Class<T> type, String description) {
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(jsonHelper.deserialise(Files.readString(file), type));
+    } catch (IOException e) {
+      String msg = "Error loading %s: %s".formatted(description, file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Writes a JSON file atomically.
+   *
+   * @param file path to file
+   * @param jsonHelper {@link JsonHelper}
+   * @param value object to serialise
+   * @param description what's in the file, for the error message
+   */
+  public static void writeJson(Path file, JsonHelper jsonHelper, Object value, String description) {
+    String json = jsonHelper.serialise(value);
+    try {
+      write(file, tempFile -> Files.writeString(tempFile, json));
+    } catch (IOException e) {
+      String msg = "Error saving %s: %s".formatted(description, file);
+      log.error(msg, e);
+      throw new UncheckedIOException(msg, e);
+    }
+  }
+
+  /**
+   * Writes a file atomically, creating its directory if needed.
+   *
+   * @param file path to file
+   * @param writer writes the contents to the temp file given to it
+   * @throws IOException if writing or moving fails
+   */
+  public static void write(Path file, Writer writer) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    writer.write(tempFile);
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Writes the contents of a file. */
+  @FunctionalInterface
+  public interface Writer {
+
+    /**
+     * Writes the contents.
+     *
+     * @param tempFile path to write to
+     * @throws IOException if writing fails
+     */
+    void write(Path tempFile) throws IOException;
+  }
+}
@@ -0,0 +1,127 @@
+package com.willmolloy.media.movies;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.movies.MovieRenamer.MovieResult;
+import com.willmolloy.media.movies.parser.MovieParser;
+import com.willmolloy.media.movies.repository.MovieDetails;
+import com.willmolloy.media.rename.RenameExecutor;
+import com.willmolloy.media.rename.RenameJournal;
+import com.willmolloy.media.rename.RenamePlanner;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MovieRenamerTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class MovieRenamerTest {
+
+  @TempDir Path tempDir;
+
+  private MovieRenamer renamer;
+  private Path libraryDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    renamer =
+        new MovieRenamer(
+            new MovieParser(),
+            (title, year) -> {
+              if (title.equals("Unknown")) {
+                throw new IllegalStateException("No search results");
+              }
+              return new MovieDetails(1, title.replace("Mission", "Mission:"), year);
+            },
+            new RenamePlanner(),
+            new RenameExecutor(new RenameJournal(tempDir.resolve("journals"), new JsonHelper())));
+    libraryDir = Files.createDirectories(tempDir.resolve("library"));
+  }
+
+  @Test
+  void run() throws Exception {
+    // Given
+    Path single = Files.createDirectories(libraryDir.resolve("Mission Impossible (1996)"));
+    Files.writeString(single.resolve("mi.1996.1080p.mkv"), "");
+    Path parts = Files.createDirectories(libraryDir.resolve("Movie (2000)"));
+    Files.writeString(parts.resolve("movie.cd1.avi"), "");
+    Files.writeString(parts.resolve("movie.cd2.avi"), "");
+    Path named = Files.createDirectories(libraryDir.resolve("Named (2001)"));
+    Files.writeString(named.resolve("Named (2001).mp4"), "");
+    Path unknown = Files.createDirectories(libraryDir.resolve("Unknown (2002)"));
+    Files.writeString(unknown.resolve("unknown.mkv"), "");
+
+    // When
+    List<MovieResult> results = renamer.run(libraryDir, false, 2);
+
+    // Then
+    assertThat(results)
+        .containsExactly(
+            MovieResult.success(single, 1),
+            MovieResult.success(parts, 2),
+            MovieResult.success(named, 0),
+            MovieResult.failure(unknown, new IllegalStateException("No search results")))
+        .inOrder();
+    assertThat(Files.exists(single.resolve("Mission Impossible (1996).mkv"))).isTrue();
+    assertThat(Files.exists(parts.resolve("Movie (2000) - pt1.avi"))).isTrue();
+    assertThat(Files.exists(parts.resolve("Movie (2000) - pt2.avi"))).isTrue();
+    assertThat(Files.exists(named.resolve("Named (2001).mp4"))).isTrue();
+    assertThat(Files.exists(unknown.resolve("unknown.mkv"))).isTrue();
+  }
+
+  @Test
+  void dryRunRenamesNothing() throws Exception {
+    // Given
+    Path movieDir = Files.createDirectories(libraryDir.resolve("Movie (2000)"));
+    Files.writeString(movieDir.resolve("movie.mkv"), "");
+
+    // When
+    List<MovieResult> results = renamer.run(libraryDir, true, 1);
+
+    // Then
+    assertThat(results).containsExactly(MovieResult.success(movieDir, 1));
+    assertThat(Files.exists(movieDir.resolve("movie.mkv"))).isTrue();
+  }
+
+  @Test
+  void skipsMovieWithFilesNotMarkedAsParts() throws Exception {
+    // Given
+    Path movieDir = Files.createDirectories(libraryDir.resolve("Movie (2000)"));
+    Files.writeString(movieDir.resolve("movie.1080p.mkv"), "");
+    Files.writeString(movieDir.resolve("movie.sample.mkv"), "");
+
+    // When
+    List<MovieResult> results = renamer.run(libraryDir, false, 1);
+
+    // Then
+    assertThat(results).containsExactly(MovieResult.success(movieDir, 0));
+    assertThat(Files.exists(movieDir.resolve("movie.1080p.mkv"))).isTrue();
+    assertThat(Files.exists(movieDir.resolve("movie.sample.mkv"))).isTrue();
+  }
+
+  @Test
+  void collisionFailsOnlyThatMovie() throws Exception {
+    // Given
+    Path collides = Files.createDirectories(libraryDir.resolve("Collides (2000)"));
+    Files.writeString(collides.resolve("collides.mkv"), "");
+    // not a movie file, but in the way
+    Files.createDirectories(collides.resolve("Collides (2000).mkv"));
+    Path movieDir = Files.createDirectories(libraryDir.resolve("Movie (2000)"));
+    Files.writeString(movieDir.resolve("movie.mkv"), "");
+
+    // When
+    List<MovieResult> results = renamer.run(libraryDir, false, 2);
+
+    // Then
+    assertThat(results.get(0).failed()).isTrue();
+    assertThat(results.get(1)).isEqualTo(MovieResult.success(movieDir, 1));
+    assertThat(Files.exists(movieDir.resolve("Movie (2000).mkv"))).isTrue();
+  }
+}
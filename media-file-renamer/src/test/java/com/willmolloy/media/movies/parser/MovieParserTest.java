@@ -0,0 +1,91 @@
+package com.willmolloy.media.movies.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.willmolloy.media.util.FileEntry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MovieParserTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class MovieParserTest {
+
+  @TempDir Path tempDir;
+
+  private final MovieParser parser = new MovieParser();
+
+  @Test
+  void parse() throws IOException {
+    // Given
+    Path movieDir = Files.createDirectories(tempDir.resolve("Movie (2000)"));
+    Files.writeString(movieDir.resolve("movie.cd2.avi"), "");
+    Files.writeString(movieDir.resolve("movie.cd1.avi"), "");
+    Files.writeString(movieDir.resolve("movie.srt"), "");
+    Files.createDirectories(movieDir.resolve("Extras.mkv"));
+
+    // When
+    Movie movie = parser.parse(movieDir);
+
+    // Then
+    assertThat(movie)
+        .isEqualTo(
+            new Movie(
+                "Movie",
+                2000,
+                FileEntry.of(movieDir),
+                List.of(
+                    FileEntry.of(movieDir.resolve("movie.cd1.avi")),
+                    FileEntry.of(movieDir.resolve("movie.cd2.avi")))));
+  }
+
+  @Test
+  void parseRejectsDirectoryWithoutYear() throws IOException {
+    // Given
+    Path movieDir = Files.createDirectories(tempDir.resolve("Movie"));
+    Files.writeString(movieDir.resolve("movie.mkv"), "");
+
+    // When
+    IllegalArgumentException thrown =
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(movieDir));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("doesn't match");
+  }
+
+  @Test
+  void parseRejectsDirectoryWithoutVideo() throws IOException {
+    // Given
+    Path movieDir = Files.createDirectories(tempDir.resolve("Movie (2000)"));
+    Files.writeString(movieDir.resolve("movie.srt"), "");
+
+    // When
+    IllegalArgumentException thrown =
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(movieDir));
+
+    // Then
+    assertThat(thrown).hasMessageThat().isEqualTo("empty files list");
+  }
+
+  @Test
+  void findMovieDirs() throws IOException {
+    // Given
+    Path movie2 = Files.createDirectories(tempDir.resolve("Movie 2 (2002)"));
+    Path movie1 = Files.createDirectories(tempDir.resolve("Movie 1 (2001)"));
+    Files.createDirectories(tempDir.resolve("Unsorted"));
+    Files.writeString(tempDir.resolve("Loose (2003).mkv"), "");
+
+    // When
+    List<Path> movieDirs = parser.findMovieDirs(tempDir);
+
+    // Then
+    assertThat(movieDirs).containsExactly(movie1, movie2).inOrder();
+  }
+}
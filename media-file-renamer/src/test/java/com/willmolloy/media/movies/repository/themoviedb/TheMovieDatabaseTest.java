@@ -0,0 +1,104 @@
+package com.willmolloy.media.movies.repository.themoviedb;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.movies.repository.MovieDetails;
+import com.willmolloy.media.util.HttpHelper;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.PersistentCache;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TheMovieDatabaseTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TheMovieDatabaseTest {
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  private MockWebServer server;
+  private PersistentCache persistentCache;
+  private TheMovieDatabase theMovieDatabase;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    persistentCache = new PersistentCache(tempDir.resolve("themoviedb-movies.cache"), jsonHelper);
+    theMovieDatabase =
+        new TheMovieDatabase(
+            server.url("/3").toString(), "apiKey", new HttpHelper(jsonHelper), persistentCache);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    persistentCache.close();
+    server.shutdown();
+  }
+
+  @Test
+  void getMoviePrefersResultFirstReleasedThatYear() throws Exception {
+    // Given
+    // e.g. a re-release, matched by the year filter but ranked first
+    server.enqueue(
+        searchResults(result(1, "Movie", "2005-06-01"), result(2, "Movie", "2000-05-01")));
+
+    // When
+    MovieDetails movie = theMovieDatabase.getMovie("Movie", 2000);
+
+    // Then
+    assertThat(movie).isEqualTo(new MovieDetails(2, "Movie", 2000));
+    assertThat(server.takeRequest().getRequestUrl().queryParameter("year")).isEqualTo("2000");
+  }
+
+  @Test
+  void getMovieTakesFirstDatedResultIfNoneReleasedThatYear() {
+    // Given
+    server.enqueue(
+        searchResults(
+            result(1, "Movie", ""), result(2, "Movie", "2001-01-01"), result(3, "Movie", "1999")));
+
+    // When
+    MovieDetails movie = theMovieDatabase.getMovie("Movie", 2000);
+
+    // Then
+    assertThat(movie).isEqualTo(new MovieDetails(2, "Movie", 2001));
+  }
+
+  @Test
+  void getMovieIsCachedAcrossRuns() throws IOException {
+    // Given
+    server.enqueue(searchResults(result(1, "Movie", "2000-05-01")));
+    MovieDetails movie = theMovieDatabase.getMovie("Movie", 2000);
+
+    // When
+    persistentCache.close();
+    persistentCache = new PersistentCache(tempDir.resolve("themoviedb-movies.cache"), jsonHelper);
+    TheMovieDatabase nextRun =
+        new TheMovieDatabase(
+            server.url("/3").toString(), "apiKey", new HttpHelper(jsonHelper), persistentCache);
+
+    // Then
+    assertThat(nextRun.getMovie("Movie", 2000)).isEqualTo(movie);
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  private MockResponse searchResults(Map<?, ?>... results) {
+    return new MockResponse().setBody(jsonHelper.serialise(Map.of("results", List.of(results))));
+  }
+
+  private Map<String, Object> result(int id, String title, String releaseDate) {
+    return Map.of("id", id, "title", title, "release_date", releaseDate, "overview", "Overview");
+  }
+}
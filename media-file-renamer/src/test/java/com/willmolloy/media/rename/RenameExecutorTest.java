@@ -0,0 +1,171 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * RenameExecutorTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class RenameExecutorTest {
+
+  @TempDir Path tempDir;
+
+  private final RenamePlanner planner = new RenamePlanner();
+  private RenameJournal journal;
+  private RenameExecutor executor;
+  private Path dir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    journal = new RenameJournal(tempDir.resolve("journals"), new JsonHelper());
+    executor = new RenameExecutor(journal);
+    dir = Files.createDirectories(tempDir.resolve("dir"));
+  }
+
+  @Test
+  void swap() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path b = Files.writeString(dir.resolve("b"), "b");
+
+    // When
+    executor.execute("swap", planner.plan(List.of(new Move(a, b), new Move(b, a))));
+
+    // Then
+    assertThat(Files.readString(a)).isEqualTo("b");
+    assertThat(Files.readString(b)).isEqualTo("a");
+    assertThat(list(dir)).containsExactly("a", "b");
+  }
+
+  @Test
+  void manyMovesConcurrently() throws IOException {
+    // Given
+    executor = new RenameExecutor(journal, 8, Map.of());
+    List<Move> moves = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      Path file = Files.writeString(dir.resolve("a%03d".formatted(i)), String.valueOf(i));
+      moves.add(new Move(file, dir.resolve("b%03d".formatted(i))));
+    }
+
+    // When
+    executor.execute("rename", planner.plan(moves));
+
+    // Then
+    List<String> files = list(dir);
+    assertThat(files).hasSize(200);
+    assertThat(files.get(0)).isEqualTo("b000");
+    assertThat(Files.readString(dir.resolve("b199"))).isEqualTo("199");
+  }
+
+  @Test
+  void rollback() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path b = Files.writeString(dir.resolve("b"), "b");
+    Path c = Files.writeString(dir.resolve("c"), "c");
+    Path journalFile =
+        executor.execute(
+            "rename",
+            planner.plan(
+                List.of(new Move(a, b), new Move(b, c), new Move(c, dir.resolve("d")))));
+
+    // When
+    int rolledBack = journal.rollback(journalFile);
+
+    // Then
+    assertThat(rolledBack).isEqualTo(5);
+    assertThat(list(dir)).containsExactly("a", "b", "c");
+    assertThat(Files.readString(a)).isEqualTo("a");
+    assertThat(Files.readString(b)).isEqualTo("b");
+    assertThat(Files.readString(c)).isEqualTo("c");
+  }
+
+  @Test
+  void rollbackTwiceIsNoOp() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path journalFile =
+        executor.execute("rename", planner.plan(List.of(new Move(a, dir.resolve("x")))));
+    journal.rollback(journalFile);
+
+    // When
+    int rolledBack = journal.rollback(journalFile);
+
+    // Then
+    assertThat(rolledBack).isEqualTo(0);
+    assertThat(list(dir)).containsExactly("a");
+  }
+
+  @Test
+  void rollbackInfersStepsWithoutProgressRecord() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path journalFile =
+        executor.execute("rename", planner.plan(List.of(new Move(a, dir.resolve("x")))));
+    // as if the process died before recording the step
+    Files.delete(journalFile.resolveSibling(journalFile.getFileName() + ".progress"));
+
+    // When
+    int rolledBack = journal.rollback(journalFile);
+
+    // Then
+    assertThat(rolledBack).isEqualTo(1);
+    assertThat(list(dir)).containsExactly("a");
+  }
+
+  @Test
+  void failedMoveUndoesMovesAlreadyDone() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path b = Files.writeString(dir.resolve("b"), "b");
+    RenamePlan plan =
+        planner.plan(List.of(new Move(a, dir.resolve("x")), new Move(b, dir.resolve("y"))));
+    // deleted after planning, so the second move fails
+    Files.delete(b);
+
+    // When
+    assertThrows(IOException.class, () -> executor.execute("rename", plan));
+
+    // Then
+    assertThat(list(dir)).containsExactly("a");
+  }
+
+  @Test
+  void targetCreatedAfterPlanningIsNotReplaced() throws IOException {
+    // Given
+    Path a = Files.writeString(dir.resolve("a"), "a");
+    Path b = Files.writeString(dir.resolve("b"), "b");
+    Path y = dir.resolve("y");
+    RenamePlan plan = planner.plan(List.of(new Move(a, dir.resolve("x")), new Move(b, y)));
+    // created after planning, so the second move would replace it
+    Files.writeString(y, "y");
+
+    // When
+    assertThrows(FileAlreadyExistsException.class, () -> executor.execute("rename", plan));
+
+    // Then
+    assertThat(list(dir)).containsExactly("a", "b", "y");
+    assertThat(Files.readString(y)).isEqualTo("y");
+  }
+
+  private List<String> list(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    }
+  }
+}
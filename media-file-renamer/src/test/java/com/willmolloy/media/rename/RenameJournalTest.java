@@ -0,0 +1,92 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * RenameJournalTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class RenameJournalTest {
+
+  private static final Instant NOW = Instant.parse("2022-01-31T00:00:00Z");
+
+  @TempDir Path tempDir;
+
+  private Path journalDir;
+  private RenameJournal journal;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    journalDir = Files.createDirectories(tempDir.resolve("journals"));
+    journal =
+        new RenameJournal(
+            journalDir, new JsonHelper(), Duration.ofDays(30), Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  void beginDeletesJournalsLastWrittenBeforeRetention() throws IOException {
+    // Given
+    writtenAt("20211201T000000.000 expired.json", NOW.minus(Duration.ofDays(60)));
+    writtenAt("20211201T000000.000 expired.json.progress", NOW.minus(Duration.ofDays(31)));
+    // still being rolled back (its progress written to recently)
+    writtenAt("20211201T000000.000 recent progress.json", NOW.minus(Duration.ofDays(60)));
+    writtenAt("20211201T000000.000 recent progress.json.progress", NOW.minus(Duration.ofDays(1)));
+    writtenAt("20220130T000000.000 recent.json", NOW.minus(Duration.ofDays(1)));
+    writtenAt("notes.txt", NOW.minus(Duration.ofDays(60)));
+
+    // When
+    journal.begin("new", new RenamePlanner().plan(List.of())).close();
+
+    // Then
+    assertThat(list(journalDir))
+        .containsExactly(
+            "20211201T000000.000 recent progress.json",
+            "20211201T000000.000 recent progress.json.progress",
+            "20220130T000000.000 recent.json",
+            "20220131T000000.000 new.json",
+            "notes.txt");
+  }
+
+  @Test
+  void rollbackDoesntDeleteJournals() throws IOException {
+    // Given
+    Path expired = journalDir.resolve("20211201T000000.000 expired.json");
+    Files.writeString(expired, "{\"steps\":[]}");
+    Files.setLastModifiedTime(expired, FileTime.from(NOW.minus(Duration.ofDays(60))));
+
+    // When
+    int rolledBack = journal.rollback(expired);
+
+    // Then
+    assertThat(rolledBack).isEqualTo(0);
+    assertThat(list(journalDir)).containsExactly("20211201T000000.000 expired.json");
+  }
+
+  private Path writtenAt(String fileName, Instant lastModified) throws IOException {
+    Path file = Files.writeString(journalDir.resolve(fileName), "");
+    Files.setLastModifiedTime(file, FileTime.from(lastModified));
+    return file;
+  }
+
+  private List<String> list(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.willmolloy.media.rename;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * RenamePlannerTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class RenamePlannerTest {
+
+  @TempDir Path tempDir;
+
+  private final RenamePlanner planner = new RenamePlanner();
+
+  @Test
+  void independentMovesAreOneBatch() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+    Path b = Files.createFile(tempDir.resolve("b"));
+
+    // When
+    RenamePlan plan =
+        planner.plan(List.of(new Move(a, tempDir.resolve("x")), new Move(b, tempDir.resolve("y"))));
+
+    // Then
+    assertThat(plan.moves()).hasSize(2);
+    assertThat(plan.batches()).containsExactly(plan.moves());
+  }
+
+  @Test
+  void noOpMovesAreDropped() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+
+    // When
+    RenamePlan plan = planner.plan(List.of(new Move(a, a)));
+
+    // Then
+    assertThat(plan.isEmpty()).isTrue();
+    assertThat(plan.batches()).isEmpty();
+  }
+
+  @Test
+  void swapIsDoneViaTemporaryName() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+    Path b = Files.createFile(tempDir.resolve("b"));
+
+    // When
+    RenamePlan plan = planner.plan(List.of(new Move(a, b), new Move(b, a)));
+
+    // Then
+    assertThat(plan.batches()).hasSize(2);
+    List<Move> toTemp = plan.batches().get(0);
+    List<Move> fromTemp = plan.batches().get(1);
+    assertThat(toTemp.get(0).source()).isEqualTo(a);
+    assertThat(fromTemp.get(0).source()).isEqualTo(toTemp.get(0).target());
+    assertThat(fromTemp.get(0).target()).isEqualTo(b);
+    assertThat(toTemp.get(0).target().getParent()).isEqualTo(tempDir);
+  }
+
+  @Test
+  void chainRunsInOrder() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+    Path b = Files.createFile(tempDir.resolve("b"));
+    Path c = tempDir.resolve("c");
+
+    // When
+    RenamePlan plan = planner.plan(List.of(new Move(a, b), new Move(b, c)));
+
+    // Then
+    assertThat(plan.batches()).hasSize(3);
+    assertThat(plan.batches().get(1)).containsExactly(new Move(b, c));
+    assertThat(plan.stepCount()).isEqualTo(3);
+  }
+
+  @Test
+  void sameTargetIsCollision() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+    Path b = Files.createFile(tempDir.resolve("b"));
+    Path x = tempDir.resolve("x");
+
+    // When
+    IllegalArgumentException thrown =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> planner.plan(List.of(new Move(a, x), new Move(b, x))));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("are both renamed to");
+  }
+
+  @Test
+  void existingTargetIsCollision() throws IOException {
+    // Given
+    Path a = Files.createFile(tempDir.resolve("a"));
+    Path x = Files.createFile(tempDir.resolve("x"));
+
+    // When
+    IllegalArgumentException thrown =
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(List.of(new Move(a, x))));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("already exists");
+  }
+}
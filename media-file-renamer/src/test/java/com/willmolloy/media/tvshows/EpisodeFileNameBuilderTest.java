@@ -0,0 +1,67 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * EpisodeFileNameBuilderTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EpisodeFileNameBuilderTest {
+
+  private final EpisodeFileNameBuilder builder =
+      new EpisodeFileNameBuilder(EpisodeFileNameTemplate.compile(EpisodeFileNameTemplate.DEFAULT));
+
+  @Test
+  void build() {
+    assertThat(builder.build("Show", 2000, 1, 2, Optional.of("Name"), "ep 2.mkv").toString())
+        .isEqualTo("Show S01E02 Name.mkv");
+  }
+
+  @Test
+  void buildWithoutEpisodeName() {
+    assertThat(builder.build("Show", 2000, 1, 2, Optional.empty(), "ep 2.mkv").toString())
+        .isEqualTo("Show S01E02.mkv");
+  }
+
+  @Test
+  void padsToLength2Only() {
+    assertThat(builder.build("Show", 2000, 10, 100, Optional.empty(), "ep.mkv").toString())
+        .isEqualTo("Show S10E100.mkv");
+  }
+
+  @Test
+  void removesIllegalPathCharsFromEpisodeName() {
+    assertThat(
+            builder
+                .build("Show", 2000, 1, 2, Optional.of("Who? \\/:*\"<>| Part 1/2"), "ep.2.mkv")
+                .toString())
+        .isEqualTo("Show S01E02 Who  Part 12.mkv");
+  }
+
+  @Test
+  void reusesBuffer() {
+    // Given
+    builder.build("A Much Longer Show Name", 2000, 1, 1, Optional.of("Long Name"), "ep.mkv");
+
+    // When
+    CharSequence fileName = builder.build("Show", 2000, 1, 2, Optional.empty(), "ep.mkv");
+
+    // Then
+    assertThat(fileName.toString()).isEqualTo("Show S01E02.mkv");
+  }
+
+  @Test
+  void matches() {
+    // When
+    builder.build("Show", 2000, 1, 2, Optional.of("Name"), "Show S01E02 Name.mkv");
+
+    // Then
+    assertThat(builder.matches("Show S01E02 Name.mkv")).isTrue();
+    assertThat(builder.matches("Show S01E02 Name.avi")).isFalse();
+    assertThat(builder.matches("Show S01E02 Name.mkv2")).isFalse();
+  }
+}
@@ -0,0 +1,120 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * EpisodeFileNameTemplateTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EpisodeFileNameTemplateTest {
+
+  @Test
+  void everyPlaceholder() {
+    // Given
+    EpisodeFileNameTemplate template =
+        EpisodeFileNameTemplate.compile(
+            "{show} ({year}) - s{season:02}e{episode:03} - {title}{ext}");
+
+    // When
+    String fileName = build(template, Optional.of("Name"));
+
+    // Then
+    assertThat(fileName).isEqualTo("Show (2000) - s01e002 - Name.mkv");
+  }
+
+  @Test
+  void withoutPadding() {
+    // Given
+    EpisodeFileNameTemplate template = EpisodeFileNameTemplate.compile("{season}x{episode}{ext}");
+
+    // When
+    String fileName = build(template, Optional.empty());
+
+    // Then
+    assertThat(fileName).isEqualTo("1x2.mkv");
+  }
+
+  @Test
+  void optionalGroupIncludedWhenKnown() {
+    // Given
+    EpisodeFileNameTemplate template =
+        EpisodeFileNameTemplate.compile("{show} S{season:02}E{episode:02}[ - {title}]{ext}");
+
+    // When
+    String fileName = build(template, Optional.of("Name"));
+
+    // Then
+    assertThat(fileName).isEqualTo("Show S01E02 - Name.mkv");
+  }
+
+  @Test
+  void optionalGroupDroppedWhenUnknown() {
+    // Given
+    EpisodeFileNameTemplate template =
+        EpisodeFileNameTemplate.compile("{show} S{season:02}E{episode:02}[ - {title}]{ext}");
+
+    // When
+    String fileName = build(template, Optional.empty());
+
+    // Then
+    assertThat(fileName).isEqualTo("Show S01E02.mkv");
+  }
+
+  @Test
+  void unknownTitleOutsideGroupIsEmpty() {
+    // Given
+    EpisodeFileNameTemplate template =
+        EpisodeFileNameTemplate.compile("{show} E{episode:02} {title}{ext}");
+
+    // When
+    String fileName = build(template, Optional.empty());
+
+    // Then
+    assertThat(fileName).isEqualTo("Show E02 .mkv");
+  }
+
+  @Test
+  void defaultIsOriginalNaming() {
+    // Given
+    EpisodeFileNameTemplate template =
+        EpisodeFileNameTemplate.compile(EpisodeFileNameTemplate.DEFAULT);
+
+    // When/Then
+    assertThat(build(template, Optional.of("Name"))).isEqualTo("Show S01E02 Name.mkv");
+    assertThat(build(template, Optional.empty())).isEqualTo("Show S01E02.mkv");
+  }
+
+  @Test
+  void invalidTemplate() {
+    for (String template :
+        List.of(
+            "{show} E{episode{ext}",
+            "{show} E{episode}}{ext}",
+            "{show} [E{episode}[ {title}]]{ext}",
+            "{show} E{episode}] {ext}",
+            "{show} [E{episode}{ext}",
+            "{show} E{episode} {name}{ext}",
+            "{show:02} E{episode}{ext}",
+            "{show} E{episode:2}{ext}",
+            "{show}/E{episode}{ext}",
+            "{show} S{season}{ext}",
+            "{show} E{episode}")) {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> EpisodeFileNameTemplate.compile(template),
+          template);
+    }
+  }
+
+  private String build(EpisodeFileNameTemplate template, Optional<String> episodeName) {
+    return new EpisodeFileNameBuilder(template)
+        .build("Show", 2000, 1, 2, episodeName, "ep.2.mkv")
+        .toString();
+  }
+}
@@ -0,0 +1,92 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * SeasonFingerprintsTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class SeasonFingerprintsTest {
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  private Path file;
+  private Path seasonDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = tempDir.resolve("season-fingerprints.json");
+    seasonDir = Files.createDirectories(tempDir.resolve("Show (2000)").resolve("Season 01"));
+    Files.writeString(seasonDir.resolve("Ep 01.mkv"), "1");
+  }
+
+  @Test
+  void unrecordedSeasonHasChanged() {
+    // Given
+    SeasonFingerprints seasonFingerprints = SeasonFingerprints.load(file, jsonHelper);
+
+    // When/Then
+    assertThat(seasonFingerprints.hasChanged(seasonDir)).isTrue();
+  }
+
+  @Test
+  void recordedSeasonHasNotChanged() {
+    // Given
+    SeasonFingerprints seasonFingerprints = SeasonFingerprints.load(file, jsonHelper);
+
+    // When
+    seasonFingerprints.record(seasonDir);
+
+    // Then
+    assertThat(seasonFingerprints.hasChanged(seasonDir)).isFalse();
+  }
+
+  @Test
+  void addedFileIsChange() throws IOException {
+    // Given
+    SeasonFingerprints seasonFingerprints = SeasonFingerprints.load(file, jsonHelper);
+    seasonFingerprints.record(seasonDir);
+
+    // When
+    Files.writeString(seasonDir.resolve("Ep 02.mkv"), "2");
+
+    // Then
+    assertThat(seasonFingerprints.hasChanged(seasonDir)).isTrue();
+  }
+
+  @Test
+  void renamedFileIsChange() throws IOException {
+    // Given
+    SeasonFingerprints seasonFingerprints = SeasonFingerprints.load(file, jsonHelper);
+    seasonFingerprints.record(seasonDir);
+
+    // When
+    Files.move(seasonDir.resolve("Ep 01.mkv"), seasonDir.resolve("Episode 01.mkv"));
+
+    // Then
+    assertThat(seasonFingerprints.hasChanged(seasonDir)).isTrue();
+  }
+
+  @Test
+  void survivesSaveAndLoad() {
+    // Given
+    SeasonFingerprints seasonFingerprints = SeasonFingerprints.load(file, jsonHelper);
+    seasonFingerprints.record(seasonDir);
+
+    // When
+    seasonFingerprints.save();
+
+    // Then
+    assertThat(SeasonFingerprints.load(file, jsonHelper).hasChanged(seasonDir)).isFalse();
+  }
+}
@@ -0,0 +1,128 @@
+package com.willmolloy.media.tvshows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.willmolloy.media.tvshows.AuditReport.Finding;
+import com.willmolloy.media.tvshows.AuditReport.FindingType;
+import com.willmolloy.media.tvshows.enricher.TvShowEnricher;
+import com.willmolloy.media.tvshows.parser.TvShowParser;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TvShowLibraryAuditorTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowLibraryAuditorTest {
+
+  @TempDir Path tempDir;
+
+  private final TvShowLibraryAuditor auditor =
+      new TvShowLibraryAuditor(
+          new TvShowParser(),
+          new TvShowEnricher(
+              (showName, showYear, season) -> Map.of(1, "One", 2, "Two", 3, "Three")));
+
+  private Path libraryDir;
+  private Path season1;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    libraryDir = Files.createDirectories(tempDir.resolve("library"));
+    season1 = Files.createDirectories(libraryDir.resolve("Show (2000)/Season 01"));
+    Files.writeString(season1.resolve("Show S01E01.mkv"), "1");
+    Files.writeString(season1.resolve("Show S01E01 (copy).mkv"), "1");
+    Files.writeString(season1.resolve("Show S01E04.mkv"), "4");
+    Files.createDirectories(libraryDir.resolve("Broken (2000)/Specials"));
+  }
+
+  @Test
+  void audit() {
+    // When
+    List<Finding> findings = auditor.audit(libraryDir.resolve("Show (2000)"));
+
+    // Then
+    assertThat(findings)
+        .containsExactly(
+            new Finding(
+                FindingType.DUPLICATE,
+                "Show",
+                2000,
+                1,
+                1,
+                season1.resolve("Show S01E01 (copy).mkv").toString(),
+                "2 files are episode 1"),
+            new Finding(
+                FindingType.DUPLICATE,
+                "Show",
+                2000,
+                1,
+                1,
+                season1.resolve("Show S01E01.mkv").toString(),
+                "2 files are episode 1"),
+            new Finding(
+                FindingType.UNMATCHED,
+                "Show",
+                2000,
+                1,
+                4,
+                season1.resolve("Show S01E04.mkv").toString(),
+                "No episode 4 found"),
+            new Finding(FindingType.GAP, "Show", 2000, 1, 2, null, "No file for episode 2 (Two)"),
+            new Finding(
+                FindingType.GAP, "Show", 2000, 1, 3, null, "No file for episode 3 (Three)"))
+        .inOrder();
+  }
+
+  @Test
+  void auditReportsShowsThatCantBeParsed() {
+    // When
+    List<Finding> findings = auditor.audit(libraryDir.resolve("Broken (2000)"));
+
+    // Then
+    assertThat(findings).hasSize(1);
+    assertThat(findings.get(0).type()).isEqualTo(FindingType.ERROR);
+    assertThat(findings.get(0).showName()).isEqualTo("Broken (2000)");
+  }
+
+  @Test
+  void writesCsvReport() throws IOException, InterruptedException {
+    // Given
+    Path reportFile = tempDir.resolve("report.csv");
+
+    // When
+    try (AuditReport report = new AuditReport(reportFile, new JsonHelper())) {
+      auditor.run(libraryDir, report, 2);
+    }
+
+    // Then
+    List<String> lines = Files.readAllLines(reportFile);
+    assertThat(lines).hasSize(7);
+    assertThat(lines.get(0)).isEqualTo("type,showName,showYear,seasonNum,episodeNum,file,detail");
+    assertThat(lines).contains("GAP,Show,2000,1,2,,No file for episode 2 (Two)");
+  }
+
+  @Test
+  void writesJsonReport() throws IOException, InterruptedException {
+    // Given
+    Path reportFile = tempDir.resolve("report.json");
+
+    // When
+    try (AuditReport report = new AuditReport(reportFile, new JsonHelper())) {
+      auditor.run(libraryDir, report, 2);
+    }
+
+    // Then
+    Finding[] findings =
+        new JsonHelper().deserialise(Files.readString(reportFile), Finding[].class);
+    assertThat(findings).hasLength(6);
+  }
+}
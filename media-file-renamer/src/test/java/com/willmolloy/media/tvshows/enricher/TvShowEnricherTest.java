@@ -0,0 +1,127 @@
+package com.willmolloy.media.tvshows.enricher;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.willmolloy.media.tvshows.parser.TvShow;
+import com.willmolloy.media.tvshows.repository.TvShowRepository;
+import com.willmolloy.media.util.FileEntry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TvShowEnricherTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowEnricherTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void seasonsLookedUpTogetherAndReturnedInOrder() throws IOException {
+    // Given
+    TvShow tvShow = fakeShow(5);
+    List<Set<Integer>> lookups = new ArrayList<>();
+    TvShowEnricher enricher =
+        new TvShowEnricher(
+            new TvShowRepository() {
+              @Override
+              public Map<Integer, String> getEpisodeNames(
+                  String showName, int showYear, int season) {
+                throw new AssertionError("Looked up a single season");
+              }
+
+              @Override
+              public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+                  String showName, int showYear, Set<Integer> seasons) {
+                lookups.add(seasons);
+                return seasons.stream()
+                    .collect(toMap(identity(), season -> Map.of(1, "Episode " + season)));
+              }
+            });
+
+    // When
+    EnrichedTvShow enriched = enricher.enrich(tvShow);
+
+    // Then
+    assertThat(lookups).containsExactly(Set.of(1, 2, 3, 4, 5));
+    List<Integer> seasonNums = new ArrayList<>();
+    List<Optional<String>> episodeNames = new ArrayList<>();
+    for (EnrichedTvShow.EnrichedSeason season : enriched.seasons()) {
+      seasonNums.add(season.seasonNum());
+      episodeNames.add(season.episodeName(season.episodes().get(0)));
+    }
+    assertThat(seasonNums).containsExactly(1, 2, 3, 4, 5).inOrder();
+    assertThat(episodeNames)
+        .containsExactly(
+            Optional.of("Episode 1"),
+            Optional.of("Episode 2"),
+            Optional.of("Episode 3"),
+            Optional.of("Episode 4"),
+            Optional.of("Episode 5"))
+        .inOrder();
+  }
+
+  @Test
+  void seasonLookupFailureIsPropagated() throws IOException {
+    // Given
+    TvShow tvShow = fakeShow(3);
+    TvShowEnricher enricher =
+        new TvShowEnricher(
+            (showName, showYear, season) -> {
+              if (season == 2) {
+                throw new IllegalStateException("season 2 failed");
+              }
+              return Map.of(1, "Episode");
+            });
+
+    // When
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> enricher.enrich(tvShow));
+
+    // Then
+    assertThat(thrown).hasMessageThat().isEqualTo("season 2 failed");
+  }
+
+  @Test
+  void wrapsParsedShowWithoutCopyingIt() throws IOException {
+    // Given
+    TvShow tvShow = fakeShow(2);
+    TvShowEnricher enricher =
+        new TvShowEnricher((showName, showYear, season) -> Map.of(2, "Episode 2"));
+
+    // When
+    EnrichedTvShow enriched = enricher.enrich(tvShow);
+
+    // Then
+    assertThat(enriched.tvShow()).isSameInstanceAs(tvShow);
+    EnrichedTvShow.EnrichedSeason season = enriched.seasons().get(0);
+    assertThat(season.season()).isSameInstanceAs(tvShow.seasons().get(0));
+    assertThat(season.episodeName(season.episodes().get(0))).isEmpty();
+  }
+
+  private TvShow fakeShow(int numSeasons) throws IOException {
+    List<TvShow.Season> seasons = new ArrayList<>();
+    for (int seasonNum = 1; seasonNum <= numSeasons; seasonNum++) {
+      Path seasonDir = Files.createDirectories(tempDir.resolve("Season 0" + seasonNum));
+      Path episodeFile = Files.createFile(seasonDir.resolve("Ep 01.mkv"));
+      seasons.add(
+          new TvShow.Season(
+              seasonNum,
+              FileEntry.of(seasonDir),
+              List.of(new TvShow.Episode(1, FileEntry.of(episodeFile)))));
+    }
+    return new TvShow("Show", 2000, seasons);
+  }
+}
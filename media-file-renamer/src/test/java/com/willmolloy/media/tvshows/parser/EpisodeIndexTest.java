@@ -0,0 +1,92 @@
+package com.willmolloy.media.tvshows.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileFingerprinter;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * EpisodeIndexTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EpisodeIndexTest {
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  private final FileFingerprinter fileFingerprinter = FileFingerprinter.inMemory();
+
+  @Test
+  void identifiesByContent() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 2");
+    Path copy = Files.writeString(tempDir.resolve("b.mkv"), "episode 2");
+    Path other = Files.writeString(tempDir.resolve("c.mkv"), "episode 3");
+    EpisodeIndex episodeIndex = load(tempDir.resolve("index.json"));
+
+    // When
+    episodeIndex.record("Show", 2000, 1, 2, file);
+
+    // Then
+    assertThat(episodeIndex.episodeNum("Show", 2000, 1, FileEntry.of(copy))).hasValue(2);
+    assertThat(episodeIndex.episodeNum("Show", 2000, 1, FileEntry.of(other))).isEmpty();
+    assertThat(episodeIndex.episodeNum("Show", 2000, 2, FileEntry.of(copy))).isEmpty();
+    assertThat(episodeIndex.episodeNum("Other", 2000, 1, FileEntry.of(copy))).isEmpty();
+  }
+
+  @Test
+  void identifiesRenamedFile() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 2");
+    EpisodeIndex episodeIndex = load(tempDir.resolve("index.json"));
+    episodeIndex.record("Show", 2000, 1, 2, file);
+
+    // When
+    Path renamed = Files.move(file, tempDir.resolve("b.mkv"));
+
+    // Then
+    assertThat(episodeIndex.episodeNum("Show", 2000, 1, FileEntry.of(renamed))).hasValue(2);
+  }
+
+  @Test
+  void savesAndLoads() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 2");
+    Path indexFile = tempDir.resolve("index.json");
+    EpisodeIndex episodeIndex = load(indexFile);
+    episodeIndex.record("Show", 2000, 1, 2, file);
+
+    // When
+    episodeIndex.save();
+    EpisodeIndex loaded = load(indexFile);
+
+    // Then
+    assertThat(loaded.episodeNum("Show", 2000, 1, FileEntry.of(file))).hasValue(2);
+  }
+
+  @Test
+  void disabledIdentifiesNothing() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 2");
+    EpisodeIndex episodeIndex = EpisodeIndex.disabled();
+
+    // When
+    episodeIndex.record("Show", 2000, 1, 2, file);
+    episodeIndex.save();
+
+    // Then
+    assertThat(episodeIndex.episodeNum("Show", 2000, 1, FileEntry.of(file))).isEmpty();
+  }
+
+  private EpisodeIndex load(Path indexFile) {
+    return EpisodeIndex.load(indexFile, jsonHelper, fileFingerprinter);
+  }
+}
@@ -0,0 +1,65 @@
+package com.willmolloy.media.tvshows.parser;
+
+import static com.google.common.truth.Truth8.assertThat;
+
+import java.util.OptionalInt;
+import org.junit.jupiter.api.Test;
+
+/**
+ * EpisodeNumberExtractorTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EpisodeNumberExtractorTest {
+
+  @Test
+  void extractsCommonNamings() {
+    assertThat(extract("Show S01E02 Title.mkv", 1)).hasValue(2);
+    assertThat(extract("show.s01.e02.720p.mkv", 1)).hasValue(2);
+    assertThat(extract("Show 1x02.mkv", 1)).hasValue(2);
+    assertThat(extract("Show - 102 - Title.mkv", 1)).hasValue(2);
+    assertThat(extract("Ep 2.mkv", 1)).hasValue(2);
+    assertThat(extract("Episode 02.mkv", 1)).hasValue(2);
+    assertThat(extract("Ep 102 (Blu-ray 1080p).mkv", 1)).hasValue(102);
+    assertThat(extract("E12.mkv", 1)).hasValue(12);
+  }
+
+  @Test
+  void prefersTheMostSpecificNaming() {
+    assertThat(extract("Show 103 S01E02.mkv", 1)).hasValue(2);
+    assertThat(extract("Ep 3 1x02.mkv", 1)).hasValue(2);
+  }
+
+  @Test
+  void ignoresOtherNumbers() {
+    assertThat(extract("Show 720p x264.mkv", 1)).isEmpty();
+    assertThat(extract("Show (2008) 1080p.mkv", 1)).isEmpty();
+    assertThat(extract("Pilot.mkv", 1)).isEmpty();
+  }
+
+  @Test
+  void ignoresOtherSeasons() {
+    assertThat(extract("Show S02E02.mkv", 1)).isEmpty();
+    assertThat(extract("Show 202.mkv", 1)).isEmpty();
+    assertThat(extract("Show 202 Ep 3.mkv", 1)).hasValue(3);
+  }
+
+  @Test
+  void readsNumberAfterEpisodeAsEpisode() {
+    assertThat(extract("Episode 01.mkv", 1)).hasValue(1);
+    assertThat(extract("Episode 101.mkv", 1)).hasValue(101);
+    assertThat(extract("Ep 100.mkv", 1)).hasValue(100);
+  }
+
+  @Test
+  void ignoresBareNumbersInLongSeasons() {
+    assertThat(EpisodeNumberExtractor.extract("Show 101.mkv", 1, 99)).hasValue(1);
+    assertThat(EpisodeNumberExtractor.extract("Show 101.mkv", 1, 100)).isEmpty();
+    assertThat(EpisodeNumberExtractor.extract("Show S01E101.mkv", 1, 100)).hasValue(101);
+  }
+
+  // a season short enough for bare numbers to be read
+  private static OptionalInt extract(String fileName, int seasonNum) {
+    return EpisodeNumberExtractor.extract(fileName, seasonNum, 10);
+  }
+}
@@ -0,0 +1,252 @@
+package com.willmolloy.media.tvshows.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.willmolloy.media.util.FileEntry;
+import com.willmolloy.media.util.FileFingerprinter;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TvShowParserTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TvShowParserTest {
+
+  @TempDir Path tempDir;
+
+  private final TvShowParser parser = new TvShowParser(2, EpisodeIndex.disabled());
+
+  @Test
+  void parse() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    Path season1 = createSeason(showDir, "Season 01", "Ep 02.mkv", "Ep 01.mp4", "notes.txt");
+    Path season2 = createSeason(showDir, "Season 02", "Ep 01.avi");
+    Files.createDirectories(season1.resolve("Extras.mkv"));
+
+    // When
+    TvShow tvShow = parser.parse(showDir);
+
+    // Then
+    assertThat(tvShow)
+        .isEqualTo(
+            new TvShow(
+                "Show",
+                2000,
+                List.of(
+                    new TvShow.Season(
+                        1,
+                        FileEntry.of(season1),
+                        List.of(
+                            new TvShow.Episode(1, FileEntry.of(season1.resolve("Ep 01.mp4"))),
+                            new TvShow.Episode(2, FileEntry.of(season1.resolve("Ep 02.mkv"))))),
+                    new TvShow.Season(
+                        2,
+                        FileEntry.of(season2),
+                        List.of(
+                            new TvShow.Episode(1, FileEntry.of(season2.resolve("Ep 01.avi"))))))));
+  }
+
+  @Test
+  void parseWithSeasonFilter() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    createSeason(showDir, "Season 01", "Ep 01.mkv");
+    Path season2 = createSeason(showDir, "Season 02", "Ep 01.mkv");
+
+    Map<Path, List<Path>> listed = new ConcurrentHashMap<>();
+
+    // When
+    Optional<TvShow> tvShow =
+        parser.parse(
+            showDir,
+            (seasonDir, entries) -> {
+              listed.put(seasonDir, entries.stream().map(FileEntry::path).toList());
+              return seasonDir.equals(season2);
+            });
+    Optional<TvShow> none = parser.parse(showDir, (seasonDir, entries) -> false);
+
+    // Then
+    assertThat(tvShow.map(show -> show.seasons().size())).hasValue(1);
+    assertThat(tvShow.map(show -> show.seasons().get(0).directory().path())).hasValue(season2);
+    assertThat(none).isEmpty();
+    // the filter is given each season's listing
+    assertThat(listed)
+        .containsExactly(
+            showDir.resolve("Season 01"),
+            List.of(showDir.resolve("Season 01").resolve("Ep 01.mkv")),
+            season2,
+            List.of(season2.resolve("Ep 01.mkv")));
+  }
+
+  @Test
+  void numbersEpisodesByFileName() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    Path season1 =
+        createSeason(
+            showDir, "Season 01", "Ep 10.mkv", "Ep 9.mkv", "Show 1x03.mkv", "Show S01E01.mkv");
+
+    // When
+    TvShow tvShow = parser.parse(showDir);
+
+    // Then
+    assertThat(tvShow.seasons().get(0).episodes())
+        .containsExactly(
+            new TvShow.Episode(1, FileEntry.of(season1.resolve("Show S01E01.mkv"))),
+            new TvShow.Episode(3, FileEntry.of(season1.resolve("Show 1x03.mkv"))),
+            new TvShow.Episode(9, FileEntry.of(season1.resolve("Ep 9.mkv"))),
+            new TvShow.Episode(10, FileEntry.of(season1.resolve("Ep 10.mkv"))))
+        .inOrder();
+  }
+
+  @Test
+  void numbersThreeDigitEpisodesOfLongSeasons() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    Path season1 = createSeason(showDir, "Season 01", "Episode 01.mkv", "Episode 101.mkv");
+
+    // When
+    TvShow tvShow = parser.parse(showDir);
+
+    // Then
+    assertThat(tvShow.seasons().get(0).episodes())
+        .containsExactly(
+            new TvShow.Episode(1, FileEntry.of(season1.resolve("Episode 01.mkv"))),
+            new TvShow.Episode(101, FileEntry.of(season1.resolve("Episode 101.mkv"))))
+        .inOrder();
+    assertThat(tvShow.seasons().get(0).skipped()).isEmpty();
+  }
+
+  @Test
+  void numbersUnnumberedEpisodesByPositionInTheGaps() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    Path season1 =
+        createSeason(showDir, "Season 01", "B.mkv", "Ep 02.mkv", "A.mkv", "Ep 02 (copy).mkv");
+
+    // When
+    TvShow tvShow = parser.parse(showDir);
+
+    // Then
+    // the copy of episode 2 is skipped, rather than numbered as another episode
+    assertThat(tvShow.seasons().get(0).episodes())
+        .containsExactly(
+            new TvShow.Episode(1, FileEntry.of(season1.resolve("A.mkv"))),
+            new TvShow.Episode(2, FileEntry.of(season1.resolve("Ep 02.mkv"))),
+            new TvShow.Episode(3, FileEntry.of(season1.resolve("B.mkv"))))
+        .inOrder();
+  }
+
+  @Test
+  void numbersEpisodesIdentifiedBefore() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    Path season1 = createSeason(showDir, "Season 01", "Pilot.mkv", "Another.mkv");
+    EpisodeIndex episodeIndex =
+        EpisodeIndex.load(
+            tempDir.resolve("episode-index.json"), new JsonHelper(), FileFingerprinter.inMemory());
+    episodeIndex.record("Show", 2000, 1, 1, season1.resolve("Pilot.mkv"));
+    episodeIndex.record("Show", 2000, 1, 2, season1.resolve("Another.mkv"));
+
+    // When
+    TvShow tvShow = new TvShowParser(2, episodeIndex).parse(showDir);
+
+    // Then
+    assertThat(tvShow.seasons().get(0).episodes())
+        .containsExactly(
+            new TvShow.Episode(1, FileEntry.of(season1.resolve("Pilot.mkv"))),
+            new TvShow.Episode(2, FileEntry.of(season1.resolve("Another.mkv"))))
+        .inOrder();
+  }
+
+  @Test
+  void capturesFileAttributes() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    createSeason(showDir, "Season 01", "Ep 01.mkv");
+
+    // When
+    TvShow tvShow = parser.parse(showDir);
+
+    // Then
+    TvShow.Season season = tvShow.seasons().get(0);
+    assertThat(season.directory().isDirectory()).isTrue();
+    assertThat(season.episodes().get(0).file().isRegularFile()).isTrue();
+    assertThat(season.episodes().get(0).file().attributes().size()).isEqualTo(9);
+  }
+
+  @Test
+  void invalidSeasonDirectoryIsRejected() throws IOException {
+    // Given
+    Path showDir = tempDir.resolve("Show (2000)");
+    createSeason(showDir, "Season 01", "Ep 01.mkv");
+    createSeason(showDir, "Specials", "Ep 01.mkv");
+
+    // When
+    IllegalArgumentException thrown =
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(showDir));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("Directory Specials doesnt match");
+  }
+
+  @Test
+  void findShowDirs() throws IOException {
+    // Given
+    Files.createDirectories(tempDir.resolve("B Show (2001)"));
+    Files.createDirectories(tempDir.resolve("A Show (2000)"));
+    Files.createDirectories(tempDir.resolve("Not A Show"));
+    Files.writeString(tempDir.resolve("File (2002)"), "");
+
+    // When
+    List<Path> showDirs = parser.findShowDirs(tempDir);
+
+    // Then
+    assertThat(showDirs)
+        .containsExactly(tempDir.resolve("A Show (2000)"), tempDir.resolve("B Show (2001)"))
+        .inOrder();
+  }
+
+  @Test
+  void followsSymbolicLinks() throws IOException {
+    // Given
+    Path libraryDir = Files.createDirectories(tempDir.resolve("library"));
+    Path showDir = tempDir.resolve("elsewhere").resolve("Show (2000)");
+    createSeason(showDir, "Season 01", "Ep 01.mkv");
+    Path linkedShowDir =
+        Files.createSymbolicLink(libraryDir.resolve("Show (2000)"), showDir.toAbsolutePath());
+    Files.createSymbolicLink(libraryDir.resolve("Missing (2001)"), tempDir.resolve("missing"));
+
+    // When
+    List<Path> showDirs = parser.findShowDirs(libraryDir);
+    TvShow tvShow = parser.parse(linkedShowDir);
+
+    // Then
+    assertThat(showDirs).containsExactly(linkedShowDir);
+    assertThat(tvShow.seasons().get(0).directory().path())
+        .isEqualTo(linkedShowDir.resolve("Season 01"));
+    assertThat(tvShow.seasons().get(0).episodes()).hasSize(1);
+  }
+
+  private Path createSeason(Path showDir, String seasonDirName, String... fileNames)
+      throws IOException {
+    Path seasonDir = Files.createDirectories(showDir.resolve(seasonDirName));
+    for (String fileName : fileNames) {
+      Files.writeString(seasonDir.resolve(fileName), fileName);
+    }
+    return seasonDir;
+  }
+}
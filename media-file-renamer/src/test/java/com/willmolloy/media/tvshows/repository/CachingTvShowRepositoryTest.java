@@ -0,0 +1,178 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CachingTvShowRepositoryTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class CachingTvShowRepositoryTest {
+
+  private final List<Integer> remoteLookups = new ArrayList<>();
+  private final TvShowRepository remote =
+      (showName, showYear, season) -> {
+        remoteLookups.add(season);
+        return Map.of(1, "Season %s Pilot".formatted(season));
+      };
+
+  @Test
+  void memoryTierReadsThrough() {
+    // Given
+    MemoryCachingTvShowRepository memory = new MemoryCachingTvShowRepository(remote, 1024 * 1024);
+
+    // When
+    memory.getEpisodeNames("Show", 2000, 1);
+    Map<Integer, String> episodeNames = memory.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(episodeNames).containsExactly(1, "Season 1 Pilot");
+    assertThat(remoteLookups).containsExactly(1);
+    assertThat(memory.stats().hits()).isEqualTo(1);
+    assertThat(memory.stats().misses()).isEqualTo(1);
+    assertThat(memory.stats().hitRate()).isEqualTo(0.5);
+  }
+
+  @Test
+  void memoryTierIsBoundedBySize() {
+    // Given room for a few seasons (each ~250 bytes)
+    MemoryCachingTvShowRepository memory = new MemoryCachingTvShowRepository(remote, 1000);
+    for (int season = 1; season <= 20; season++) {
+      memory.getEpisodeNames("Show", 2000, season);
+    }
+
+    // When
+    for (int season = 1; season <= 20; season++) {
+      memory.getEpisodeNames("Show", 2000, season);
+    }
+
+    // Then
+    assertThat(remoteLookups.size()).isGreaterThan(20);
+    assertThat(memory.stats().misses()).isEqualTo(remoteLookups.size());
+  }
+
+  @Test
+  void memoryTierExpiresEntries() {
+    // Given
+    AtomicLong nanos = new AtomicLong();
+    Ticker ticker =
+        new Ticker() {
+          @Override
+          public long read() {
+            return nanos.get();
+          }
+        };
+    List<String> answers = new ArrayList<>(List.of("Pilot", "Pilot (Extended)"));
+    MemoryCachingTvShowRepository memory =
+        new MemoryCachingTvShowRepository(
+            (showName, showYear, season) -> {
+              remoteLookups.add(season);
+              return Map.of(1, answers.get(remoteLookups.size() - 1));
+            },
+            1024 * 1024,
+            Duration.ofDays(1),
+            ticker);
+    memory.getEpisodeNames("Show", 2000, 1);
+
+    // When
+    nanos.set(Duration.ofHours(23).toNanos());
+    Map<Integer, String> beforeExpiry = memory.getEpisodeNames("Show", 2000, 1);
+    nanos.set(Duration.ofHours(25).toNanos());
+    Map<Integer, String> afterExpiry = memory.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(beforeExpiry).containsExactly(1, "Pilot");
+    assertThat(afterExpiry).containsExactly(1, "Pilot (Extended)");
+    assertThat(remoteLookups).containsExactly(1, 1);
+  }
+
+  @Test
+  void tiersFillFromTheTierBehind() {
+    // Given
+    MemoryCachingTvShowRepository behind = new MemoryCachingTvShowRepository(remote, 1024 * 1024);
+    behind.getEpisodeNames("Show", 2000, 1);
+    MemoryCachingTvShowRepository front = new MemoryCachingTvShowRepository(behind, 1024 * 1024);
+
+    // When
+    front.getEpisodeNames("Show", 2000, 1);
+    front.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(remoteLookups).containsExactly(1);
+    assertThat(front.stats().misses()).isEqualTo(1);
+    assertThat(front.stats().hits()).isEqualTo(1);
+    assertThat(behind.stats().misses()).isEqualTo(1);
+    assertThat(behind.stats().hits()).isEqualTo(1);
+  }
+
+  @Test
+  void bulkLookupOnlyPassesOnMisses() {
+    // Given
+    List<Set<Integer>> bulkLookups = new ArrayList<>();
+    MemoryCachingTvShowRepository memory =
+        new MemoryCachingTvShowRepository(
+            new TvShowRepository() {
+              @Override
+              public Map<Integer, String> getEpisodeNames(
+                  String showName, int showYear, int season) {
+                return remote.getEpisodeNames(showName, showYear, season);
+              }
+
+              @Override
+              public Map<Integer, Map<Integer, String>> getEpisodeNamesBySeason(
+                  String showName, int showYear, Set<Integer> seasons) {
+                bulkLookups.add(seasons);
+                return TvShowRepository.super.getEpisodeNamesBySeason(showName, showYear, seasons);
+              }
+            },
+            1024 * 1024);
+    memory.getEpisodeNames("Show", 2000, 2);
+
+    // When
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+        memory.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2, 3));
+
+    // Then
+    assertThat(episodeNamesBySeason)
+        .containsExactly(
+            1, Map.of(1, "Season 1 Pilot"),
+            2, Map.of(1, "Season 2 Pilot"),
+            3, Map.of(1, "Season 3 Pilot"));
+    assertThat(bulkLookups).containsExactly(Set.of(1, 3));
+    assertThat(memory.stats().hits()).isEqualTo(1);
+    assertThat(memory.stats().misses()).isEqualTo(3);
+
+    // When
+    memory.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2, 3));
+
+    // Then
+    assertThat(bulkLookups).hasSize(1);
+    assertThat(memory.stats().hits()).isEqualTo(4);
+  }
+
+  @Test
+  void failedLookupIsNotCached() {
+    // Given
+    MemoryCachingTvShowRepository memory =
+        new MemoryCachingTvShowRepository(
+            (showName, showYear, season) -> {
+              throw new IllegalStateException("remote down");
+            },
+            1024 * 1024);
+
+    // When/Then
+    assertThrows(IllegalStateException.class, () -> memory.getEpisodeNames("Show", 2000, 1));
+    assertThrows(IllegalStateException.class, () -> memory.getEpisodeNames("Show", 2000, 1));
+    assertThat(memory.stats().misses()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,143 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CoalescingTvShowRepositoryTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class CoalescingTvShowRepositoryTest {
+
+  private final CountDownLatch lookupStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseLookup = new CountDownLatch(1);
+  private final AtomicInteger delegateCalls = new AtomicInteger();
+
+  @Test
+  void concurrentDuplicateLookupsShareOneCall() throws InterruptedException {
+    // Given
+    CoalescingTvShowRepository repository =
+        new CoalescingTvShowRepository(blockingDelegate(() -> Map.of(1, "Pilot")));
+
+    // When
+    CompletableFuture<Map<Integer, String>> first =
+        CompletableFuture.supplyAsync(() -> repository.getEpisodeNames("Show", 2000, 1));
+    assertThat(lookupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Map<Integer, String>> second =
+        CompletableFuture.supplyAsync(() -> repository.getEpisodeNames("Show", 2000, 1));
+    awaitCoalesced(repository);
+    releaseLookup.countDown();
+
+    // Then
+    assertThat(first.join()).containsExactly(1, "Pilot");
+    assertThat(second.join()).containsExactly(1, "Pilot");
+    assertThat(delegateCalls.get()).isEqualTo(1);
+    assertThat(repository.issuedCount()).isEqualTo(1);
+    assertThat(repository.coalescedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void failureIsSharedWithCoalescedCallers() throws InterruptedException {
+    // Given
+    CoalescingTvShowRepository repository =
+        new CoalescingTvShowRepository(
+            blockingDelegate(
+                () -> {
+                  throw new IllegalStateException("lookup failed");
+                }));
+
+    // When
+    CompletableFuture<Map<Integer, String>> first =
+        CompletableFuture.supplyAsync(() -> repository.getEpisodeNames("Show", 2000, 1));
+    assertThat(lookupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Map<Integer, String>> second =
+        CompletableFuture.supplyAsync(() -> repository.getEpisodeNames("Show", 2000, 1));
+    awaitCoalesced(repository);
+    releaseLookup.countDown();
+
+    // Then
+    CompletionException firstThrown = assertThrows(CompletionException.class, first::join);
+    CompletionException secondThrown = assertThrows(CompletionException.class, second::join);
+    assertThat(firstThrown).hasCauseThat().hasMessageThat().isEqualTo("lookup failed");
+    assertThat(secondThrown).hasCauseThat().hasMessageThat().isEqualTo("lookup failed");
+    assertThat(delegateCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void sequentialLookupsAreNotCoalesced() {
+    // Given
+    releaseLookup.countDown();
+    CoalescingTvShowRepository repository =
+        new CoalescingTvShowRepository(blockingDelegate(() -> Map.of(1, "Pilot")));
+
+    // When
+    repository.getEpisodeNames("Show", 2000, 1);
+    repository.getEpisodeNames("Show", 2000, 1);
+    repository.getEpisodeNames("Show", 2000, 2);
+
+    // Then
+    assertThat(delegateCalls.get()).isEqualTo(3);
+    assertThat(repository.issuedCount()).isEqualTo(3);
+    assertThat(repository.coalescedCount()).isEqualTo(0);
+  }
+
+  @Test
+  void bulkLookupSharesInFlightSeasons() throws InterruptedException {
+    // Given
+    CoalescingTvShowRepository repository =
+        new CoalescingTvShowRepository(blockingDelegate(() -> Map.of(1, "Pilot")));
+
+    // When
+    CompletableFuture<Map<Integer, String>> single =
+        CompletableFuture.supplyAsync(() -> repository.getEpisodeNames("Show", 2000, 1));
+    assertThat(lookupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<Map<Integer, Map<Integer, String>>> bulk =
+        CompletableFuture.supplyAsync(
+            () -> repository.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2, 3)));
+    awaitCoalesced(repository);
+    releaseLookup.countDown();
+
+    // Then
+    assertThat(single.join()).containsExactly(1, "Pilot");
+    assertThat(bulk.join().keySet()).containsExactly(1, 2, 3);
+    assertThat(delegateCalls.get()).isEqualTo(3);
+    assertThat(repository.issuedCount()).isEqualTo(3);
+    assertThat(repository.coalescedCount()).isEqualTo(1);
+  }
+
+  private TvShowRepository blockingDelegate(Lookup lookup) {
+    return (showName, showYear, season) -> {
+      delegateCalls.incrementAndGet();
+      lookupStarted.countDown();
+      try {
+        releaseLookup.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      return lookup.get();
+    };
+  }
+
+  private void awaitCoalesced(CoalescingTvShowRepository repository) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (repository.coalescedCount() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(repository.coalescedCount()).isGreaterThan(0L);
+  }
+
+  private interface Lookup {
+    Map<Integer, String> get();
+  }
+}
@@ -0,0 +1,240 @@
+package com.willmolloy.media.tvshows.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.willmolloy.media.tvshows.repository.HedgingTvShowRepository.Provider;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * HedgingTvShowRepositoryTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class HedgingTvShowRepositoryTest {
+
+  private static final Map<Integer, String> SEASON = Map.of(1, "One", 2, "Two", 3, "Three");
+
+  private final CountDownLatch releaseSlowLookups = new CountDownLatch(1);
+  private final AtomicInteger secondaryCalls = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    releaseSlowLookups.countDown();
+  }
+
+  @Test
+  void fastPrimaryIsNotHedged() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(Duration.ofSeconds(5), (showName, showYear, season) -> SEASON);
+
+    // When
+    Map<Integer, String> episodeNames = repository.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(episodeNames).isEqualTo(SEASON);
+    assertThat(secondaryCalls.get()).isEqualTo(0);
+  }
+
+  @Test
+  void slowPrimaryIsHedged() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(
+            Duration.ofMillis(50),
+            (showName, showYear, season) -> {
+              awaitRelease();
+              return Map.of(1, "Primary");
+            });
+
+    // When
+    Map<Integer, String> episodeNames = repository.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(episodeNames).isEqualTo(SEASON);
+    assertThat(secondaryCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void incompletePrimaryIsHedgedStraightAway() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(Duration.ofHours(1), (showName, showYear, season) -> Map.of(1, "A", 3, "C"));
+
+    // When
+    Map<Integer, String> episodeNames = repository.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(episodeNames).isEqualTo(SEASON);
+    assertThat(secondaryCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void incompleteAnswersAreMerged() {
+    // Given
+    HedgingTvShowRepository repository =
+        new HedgingTvShowRepository(
+            List.of(
+                new Provider("primary", (showName, showYear, season) -> Map.of(1, "A", 3, "C")),
+                new Provider("secondary", (showName, showYear, season) -> Map.of(2, "b", 3, "c"))),
+            Duration.ofHours(1));
+
+    // When
+    Map<Integer, String> episodeNames = repository.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(episodeNames).containsExactly(1, "A", 2, "b", 3, "C");
+  }
+
+  @Test
+  void failsIfEveryProviderFails() {
+    // Given
+    HedgingTvShowRepository repository =
+        new HedgingTvShowRepository(
+            List.of(
+                new Provider(
+                    "primary",
+                    (showName, showYear, season) -> {
+                      throw new IllegalStateException("primary failed");
+                    }),
+                new Provider(
+                    "secondary",
+                    (showName, showYear, season) -> {
+                      throw new IllegalStateException("secondary failed");
+                    })),
+            Duration.ofHours(1));
+
+    // When
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class, () -> repository.getEpisodeNames("Show", 2000, 1));
+
+    // Then
+    assertThat(thrown).hasMessageThat().isEqualTo("primary failed");
+    assertThat(thrown.getSuppressed()).hasLength(1);
+  }
+
+  @Test
+  void hedgeDelayFollowsLatency() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(Duration.ofHours(1), (showName, showYear, season) -> SEASON);
+    Duration initialHedgeDelay = repository.hedgeDelay(0);
+
+    // When
+    for (int i = 0; i < 20; i++) {
+      repository.getEpisodeNames("Show", 2000, 1);
+    }
+
+    // Then
+    assertThat(initialHedgeDelay).isEqualTo(Duration.ofHours(1));
+    assertThat(repository.hedgeDelay(0)).isLessThan(Duration.ofSeconds(1));
+  }
+
+  @Test
+  void cachedLookupsDontCountTowardsLatency() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(
+            Duration.ofHours(1),
+            new TvShowRepository() {
+              @Override
+              public Map<Integer, String> getEpisodeNames(
+                  String showName, int showYear, int season) {
+                return SEASON;
+              }
+
+              @Override
+              public boolean isCached(String showName, int showYear, Set<Integer> seasons) {
+                return true;
+              }
+            });
+
+    // When
+    for (int i = 0; i < 20; i++) {
+      repository.getEpisodeNames("Show", 2000, 1);
+    }
+
+    // Then
+    assertThat(repository.hedgeDelay(0)).isEqualTo(Duration.ofHours(1));
+  }
+
+  @Test
+  void losingLookupWaitingForThreadIsCancelled() {
+    // Given
+    AtomicInteger primaryCalls = new AtomicInteger();
+    HedgingTvShowRepository repository =
+        new HedgingTvShowRepository(
+            List.of(
+                new Provider(
+                    "primary",
+                    (showName, showYear, season) -> {
+                      primaryCalls.incrementAndGet();
+                      awaitRelease();
+                      return SEASON;
+                    }),
+                // only the primary has season 3
+                new Provider(
+                    "secondary",
+                    (showName, showYear, season) -> season == 3 ? Map.of() : SEASON)),
+            Duration.ofMillis(50),
+            1);
+    // holds the primary's only thread
+    repository.getEpisodeNames("Show", 2000, 1);
+
+    // When
+    Map<Integer, String> episodeNames = repository.getEpisodeNames("Show", 2000, 2);
+    releaseSlowLookups.countDown();
+    // queued behind season 2 on the primary's thread, so answered after it would have run
+    repository.getEpisodeNames("Show", 2000, 3);
+
+    // Then
+    assertThat(episodeNames).isEqualTo(SEASON);
+    assertThat(primaryCalls.get()).isEqualTo(2);
+  }
+
+  @Test
+  void getEpisodeNamesBySeasonHedgesMissingSeason() {
+    // Given
+    HedgingTvShowRepository repository =
+        repository(Duration.ofHours(1), (showName, showYear, season) -> Map.of());
+
+    // When
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+        repository.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2));
+
+    // Then
+    assertThat(episodeNamesBySeason).containsExactly(1, SEASON, 2, SEASON);
+    assertThat(secondaryCalls.get()).isEqualTo(2);
+  }
+
+  private HedgingTvShowRepository repository(
+      Duration initialHedgeDelay, TvShowRepository primary) {
+    return new HedgingTvShowRepository(
+        List.of(
+            new Provider("primary", primary),
+            new Provider(
+                "secondary",
+                (showName, showYear, season) -> {
+                  secondaryCalls.incrementAndGet();
+                  return SEASON;
+                })),
+        initialHedgeDelay);
+  }
+
+  private void awaitRelease() {
+    try {
+      releaseSlowLookups.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.VerifyException;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * LocalTvShowRepositoryTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class LocalTvShowRepositoryTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void getEpisodeNames() throws IOException {
+    // Given
+    Files.writeString(
+        tempDir.resolve("Show (2000).json"),
+        """
+        {"name": "Show", "year": 2000, "seasons": {"1": {"1": "Pilot", "2": "Second"}}}
+        """);
+    LocalTvShowRepository repository = new LocalTvShowRepository(tempDir, new JsonHelper());
+
+    // When
+    Map<Integer, String> season1 = repository.getEpisodeNames("Show", 2000, 1);
+    Map<Integer, String> season2 = repository.getEpisodeNames("Show", 2000, 2);
+
+    // Then
+    assertThat(season1).containsExactly(1, "Pilot", 2, "Second");
+    assertThat(season2).isEmpty();
+  }
+
+  @Test
+  void getEpisodeNamesOfShowWithoutFile() {
+    // Given
+    LocalTvShowRepository repository = new LocalTvShowRepository(tempDir, new JsonHelper());
+
+    // When
+    VerifyException thrown =
+        assertThrows(VerifyException.class, () -> repository.getEpisodeNames("Show", 2000, 1));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("No local file");
+  }
+}
@@ -0,0 +1,175 @@
+package com.willmolloy.media.tvshows.repository.offline;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.VerifyException;
+import com.willmolloy.media.util.JsonHelper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * OfflineTvShowRepositoryTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class OfflineTvShowRepositoryTest {
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  private Path snapshotFile;
+  private Path indexFile;
+
+  @BeforeEach
+  void setUp() {
+    snapshotFile = tempDir.resolve("snapshot.jsonl");
+    indexFile = tempDir.resolve("index/episodes.idx");
+  }
+
+  @Test
+  void getEpisodeNames() throws IOException {
+    // Given
+    writeSnapshot(
+        new ShowSnapshot(
+            "Breaking Bad",
+            2008,
+            Map.of(1, Map.of(1, "Pilot", 2, "Cat's in the Bag..."), 2, Map.of(1, "737"))),
+        new ShowSnapshot("Better Call Saul", 2015, Map.of(1, Map.of(1, "Uno"))));
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    assertThat(repository.getEpisodeNames("Breaking Bad", 2008, 1))
+        .containsExactly(1, "Pilot", 2, "Cat's in the Bag...");
+    assertThat(repository.getEpisodeNames("Breaking Bad", 2008, 2)).containsExactly(1, "737");
+    assertThat(repository.getEpisodeNames("Better Call Saul", 2015, 1)).containsExactly(1, "Uno");
+  }
+
+  @Test
+  void ignoresCasePunctuationAndAccents() throws IOException {
+    // Given
+    writeSnapshot(
+        new ShowSnapshot(
+            "Law & Order: Special Victims Unit", 1999, Map.of(1, Map.of(1, "Payback"))),
+        new ShowSnapshot("Pokémon", 1997, Map.of(1, Map.of(1, "Pokémon - I Choose You!"))));
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    assertThat(repository.getEpisodeNames("law & order special victims unit", 1999, 1))
+        .containsExactly(1, "Payback");
+    assertThat(repository.getEpisodeNames("Pokemon", 1997, 1))
+        .containsExactly(1, "Pokémon - I Choose You!");
+  }
+
+  @Test
+  void unknownSeasonIsEmpty() throws IOException {
+    // Given
+    writeSnapshot(new ShowSnapshot("Show", 2000, Map.of(1, Map.of(1, "One"))));
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    assertThat(repository.getEpisodeNames("Show", 2000, 2)).isEmpty();
+  }
+
+  @Test
+  void unknownShowThrows() throws IOException {
+    // Given
+    writeSnapshot(new ShowSnapshot("Show", 2000, Map.of(1, Map.of(1, "One"))));
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    assertThrows(VerifyException.class, () -> repository.getEpisodeNames("Show", 2001, 1));
+    assertThrows(VerifyException.class, () -> repository.getEpisodeNames("Other", 2000, 1));
+  }
+
+  @Test
+  void manyShows() throws IOException {
+    // Given
+    ShowSnapshot[] shows = new ShowSnapshot[1000];
+    for (int i = 0; i < shows.length; i++) {
+      shows[i] = new ShowSnapshot("Show " + i, 2000 + i % 3, Map.of(1, Map.of(1, "Ep " + i)));
+    }
+    writeSnapshot(shows);
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    for (int i = 0; i < shows.length; i++) {
+      assertThat(repository.getEpisodeNames("Show " + i, 2000 + i % 3, 1))
+          .containsExactly(1, "Ep " + i);
+    }
+  }
+
+  @Test
+  void importsGzippedSnapshot() throws IOException {
+    // Given
+    snapshotFile = tempDir.resolve("snapshot.jsonl.gz");
+    try (OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(snapshotFile))) {
+      gzip.write(
+          jsonHelper
+              .serialise(new ShowSnapshot("Show", 2000, Map.of(1, Map.of(1, "One"))))
+              .replace("\n", "")
+              .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // When
+    OfflineTvShowRepository repository = importAndOpen();
+
+    // Then
+    assertThat(repository.getEpisodeNames("Show", 2000, 1)).containsExactly(1, "One");
+  }
+
+  @Test
+  void skipsDuplicateShows() throws IOException {
+    // Given
+    writeSnapshot(
+        new ShowSnapshot("Show", 2000, Map.of(1, Map.of(1, "One"))),
+        new ShowSnapshot("Show!", 2000, Map.of(1, Map.of(1, "Other"))));
+
+    // When
+    int imported = new EpisodeIndexImporter(jsonHelper).importSnapshot(snapshotFile, indexFile);
+
+    // Then
+    assertThat(imported).isEqualTo(1);
+  }
+
+  @Test
+  void rejectsOtherFiles() throws IOException {
+    // Given
+    Path otherFile = Files.writeString(tempDir.resolve("other"), "not an index");
+
+    // When/Then
+    assertThrows(VerifyException.class, () -> new OfflineTvShowRepository(otherFile));
+  }
+
+  private void writeSnapshot(ShowSnapshot... shows) throws IOException {
+    Files.write(
+        snapshotFile,
+        List.of(shows).stream()
+            .map(show -> jsonHelper.serialise(show).replace("\n", ""))
+            .toList());
+  }
+
+  private OfflineTvShowRepository importAndOpen() {
+    new EpisodeIndexImporter(jsonHelper).importSnapshot(snapshotFile, indexFile);
+    return new OfflineTvShowRepository(indexFile);
+  }
+}
@@ -0,0 +1,195 @@
+package com.willmolloy.media.tvshows.repository.themoviedb;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.stream.Collectors.toSet;
+
+import com.google.common.base.Splitter;
+import com.willmolloy.media.tvshows.repository.CachingTvShowRepository;
+import com.willmolloy.media.util.HttpHelper;
+import com.willmolloy.media.util.JsonHelper;
+import com.willmolloy.media.util.Metrics;
+import com.willmolloy.media.util.PersistentCache;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TheMovieDatabaseTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class TheMovieDatabaseTest {
+
+  private static final String SEASON_PREFIX = "season/";
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  // append_to_response of each show request
+  private final List<String> appendedSeasons = new CopyOnWriteArrayList<>();
+  private MockWebServer server;
+  private PersistentCache persistentCache;
+  private TheMovieDatabase theMovieDatabase;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    // requests for the seasons are sent concurrently, so answered by path rather than in order
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            HttpUrl url = request.getRequestUrl();
+            String path = url.encodedPath();
+            if (path.endsWith("/search/tv")) {
+              return json(
+                  Map.of(
+                      "results",
+                      List.of(
+                          Map.of(
+                              "id", 1,
+                              "name", "Show",
+                              "first_air_date", "2000-01-01",
+                              "overview", "Overview"))));
+            }
+            if (path.contains("/season/")) {
+              return json(season(Integer.parseInt(path.substring(path.lastIndexOf('/') + 1))));
+            }
+            String appended = url.queryParameter("append_to_response");
+            appendedSeasons.add(appended);
+            Map<String, Object> show = new HashMap<>();
+            show.put("id", 1);
+            for (String season : Splitter.on(',').split(appended)) {
+              show.put(season, season(Integer.parseInt(season.substring(SEASON_PREFIX.length()))));
+            }
+            return json(show);
+          }
+        });
+    server.start();
+    persistentCache = new PersistentCache(tempDir.resolve("themoviedb.cache"), jsonHelper);
+    theMovieDatabase =
+        new TheMovieDatabase(
+            server.url("/3").toString(),
+            "apiKey",
+            new HttpHelper(jsonHelper),
+            persistentCache,
+            Clock.systemUTC());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    persistentCache.close();
+    server.shutdown();
+  }
+
+  @Test
+  void getEpisodeNamesBySeasonAppendsUpTo20SeasonsPerRequest() {
+    // Given
+    Set<Integer> seasons = IntStream.rangeClosed(1, 30).boxed().collect(toSet());
+
+    // When
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+        theMovieDatabase.getEpisodeNamesBySeason("Show", 2000, seasons);
+
+    // Then
+    // 1 search for the show id, then 2 for the seasons
+    assertThat(server.getRequestCount()).isEqualTo(3);
+    assertThat(appendedSeasons.stream().map(this::seasonCount).toList()).containsExactly(20, 10);
+    assertThat(episodeNamesBySeason.keySet()).isEqualTo(seasons);
+    for (int season : seasons) {
+      assertThat(episodeNamesBySeason.get(season)).isEqualTo(episodeNames(season));
+    }
+  }
+
+  @Test
+  void getEpisodeNamesBySeasonOnlyRequestsUncachedSeasons() {
+    // Given
+    Map<Integer, String> season2 = theMovieDatabase.getEpisodeNames("Show", 2000, 2);
+
+    // When
+    Map<Integer, Map<Integer, String>> episodeNamesBySeason =
+        theMovieDatabase.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2, 3));
+
+    // Then
+    assertThat(appendedSeasons).containsExactly("season/1,season/3");
+    // appended seasons are mapped the same as seasons requested on their own
+    assertThat(season2).isEqualTo(episodeNames(2));
+    assertThat(episodeNamesBySeason)
+        .containsExactly(1, episodeNames(1), 2, episodeNames(2), 3, episodeNames(3));
+  }
+
+  @Test
+  void cachedSeasonLookupsAreRecordedAsDiskTier() {
+    // Given
+    // metrics are global, so compare against the counts before
+    Metrics.Timer hits = CachingTvShowRepository.lookupTimer("disk", "hit");
+    Metrics.Timer misses = CachingTvShowRepository.lookupTimer("disk", "miss");
+    long hitsBefore = hits.count();
+    long missesBefore = misses.count();
+    theMovieDatabase.getEpisodeNames("Show", 2000, 2);
+
+    // When
+    theMovieDatabase.getEpisodeNamesBySeason("Show", 2000, Set.of(1, 2, 3));
+
+    // Then
+    assertThat(hits.count() - hitsBefore).isEqualTo(1);
+    assertThat(misses.count() - missesBefore).isEqualTo(3);
+  }
+
+  @Test
+  void isCachedOnceEverySeasonIsCached() {
+    // Given
+    boolean cachedBefore = theMovieDatabase.isCached("Show", 2000, Set.of(1));
+
+    // When
+    theMovieDatabase.getEpisodeNames("Show", 2000, 1);
+
+    // Then
+    assertThat(cachedBefore).isFalse();
+    assertThat(theMovieDatabase.isCached("Show", 2000, Set.of(1))).isTrue();
+    assertThat(theMovieDatabase.isCached("Show", 2000, Set.of(1, 2))).isFalse();
+  }
+
+  private Map<Integer, String> episodeNames(int season) {
+    return Map.of(
+        1, "Season %s Episode 1".formatted(season), 2, "Season %s Episode 2".formatted(season));
+  }
+
+  private int seasonCount(String appended) {
+    return Splitter.on(',').splitToList(appended).size();
+  }
+
+  private Map<String, Object> season(int season) {
+    return Map.of(
+        "season_number", season, "episodes", List.of(episode(season, 1), episode(season, 2)));
+  }
+
+  private Map<String, Object> episode(int season, int episode) {
+    return Map.of(
+        "id", season * 100 + episode,
+        "season_number", season,
+        "episode_number", episode,
+        "name", "Season %s Episode %s".formatted(season, episode),
+        "air_date", "2000-01-01",
+        "overview", "Overview");
+  }
+
+  private MockResponse json(Object body) {
+    return new MockResponse().setBody(jsonHelper.serialise(body));
+  }
+}
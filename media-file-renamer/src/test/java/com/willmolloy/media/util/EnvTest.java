@@ -0,0 +1,21 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EnvTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class EnvTest {
+
+  @Test
+  void concurrencyByStoreName() {
+    assertThat(Env.concurrencyByStoreName(null)).isEmpty();
+    assertThat(Env.concurrencyByStoreName(" ")).isEmpty();
+    assertThat(Env.concurrencyByStoreName("nas:/export = 16, /dev/sda1=2"))
+        .containsExactly("nas:/export", 16, "/dev/sda1", 2);
+  }
+}
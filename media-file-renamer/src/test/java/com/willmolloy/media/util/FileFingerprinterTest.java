@@ -0,0 +1,139 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * FileFingerprinterTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class FileFingerprinterTest {
+
+  private static final int MB = 1024 * 1024;
+
+  @TempDir Path tempDir;
+
+  private final FileFingerprinter fileFingerprinter = FileFingerprinter.inMemory();
+
+  @Test
+  void sameContentIsSameFingerprint() throws IOException {
+    // Given
+    Path a = Files.writeString(tempDir.resolve("a.mkv"), "episode 1");
+    Path b = Files.writeString(tempDir.resolve("b.mkv"), "episode 1");
+    Path c = Files.writeString(tempDir.resolve("c.mkv"), "episode 2");
+    Path empty = Files.writeString(tempDir.resolve("d.mkv"), "");
+
+    // When
+    String fingerprint = fingerprint(a);
+
+    // Then
+    assertThat(fingerprint(b)).isEqualTo(fingerprint);
+    assertThat(fingerprint(c)).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(empty)).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void largeFilesAreFingerprintedByHeadMiddleAndTail() throws IOException {
+    // Given
+    byte[] content = new byte[10 * MB];
+    Path original = Files.write(tempDir.resolve("original.mkv"), content);
+    content[5 * MB] = 1;
+    Path middleChanged = Files.write(tempDir.resolve("middle.mkv"), content);
+    content[5 * MB] = 0;
+    content[content.length - 1] = 1;
+    Path tailChanged = Files.write(tempDir.resolve("tail.mkv"), content);
+    content[content.length - 1] = 0;
+    content[2 * MB] = 1;
+    Path unsampledChanged = Files.write(tempDir.resolve("unsampled.mkv"), content);
+
+    // When
+    String fingerprint = fingerprint(original);
+
+    // Then
+    assertThat(fingerprint(middleChanged)).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(tailChanged)).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(unsampledChanged)).isEqualTo(fingerprint);
+  }
+
+  @Test
+  void cachedUntilSizeOrModifiedTimeChanges() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 1");
+    FileTime modifiedTime = Files.getLastModifiedTime(file);
+    String fingerprint = fingerprint(file);
+
+    // When
+    Files.writeString(file, "episode 2");
+    Files.setLastModifiedTime(file, modifiedTime);
+    String unchanged = fingerprint(file);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedTime.toMillis() + 1000));
+    String changed = fingerprint(file);
+
+    // Then
+    assertThat(unchanged).isEqualTo(fingerprint);
+    assertThat(changed).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void savesAndLoads() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("a.mkv"), "episode 1");
+    FileTime modifiedTime = Files.getLastModifiedTime(file);
+    Path stateFile = tempDir.resolve("fingerprints.json");
+    FileFingerprinter saved = FileFingerprinter.load(stateFile, new JsonHelper());
+    String fingerprint = saved.fingerprint(FileEntry.of(file));
+
+    // When
+    saved.save(Set.of());
+    Files.writeString(file, "episode 2");
+    Files.setLastModifiedTime(file, modifiedTime);
+    FileFingerprinter loaded = FileFingerprinter.load(stateFile, new JsonHelper());
+
+    // Then
+    assertThat(loaded.fingerprint(FileEntry.of(file))).isEqualTo(fingerprint);
+  }
+
+  @Test
+  void saveDropsFilesNotSeenOrReferenced() throws IOException {
+    // Given
+    Path seen = Files.writeString(tempDir.resolve("a.mkv"), "episode 1");
+    Path referenced = Files.writeString(tempDir.resolve("b.mkv"), "episode 2");
+    Path neither = Files.writeString(tempDir.resolve("c.mkv"), "episode 3");
+    Path stateFile = tempDir.resolve("fingerprints.json");
+    FileFingerprinter firstRun = FileFingerprinter.load(stateFile, new JsonHelper());
+    String seenFingerprint = firstRun.fingerprint(FileEntry.of(seen));
+    String referencedFingerprint = firstRun.fingerprint(FileEntry.of(referenced));
+    String neitherFingerprint = firstRun.fingerprint(FileEntry.of(neither));
+    firstRun.save(Set.of());
+
+    // When
+    FileFingerprinter secondRun = FileFingerprinter.load(stateFile, new JsonHelper());
+    secondRun.fingerprint(FileEntry.of(seen));
+    secondRun.save(Set.of(referencedFingerprint));
+    // a cached fingerprint outlives a content change that keeps the size and modified time
+    for (Path file : List.of(seen, referenced, neither)) {
+      FileTime modifiedTime = Files.getLastModifiedTime(file);
+      Files.writeString(file, "episode 0");
+      Files.setLastModifiedTime(file, modifiedTime);
+    }
+    FileFingerprinter thirdRun = FileFingerprinter.load(stateFile, new JsonHelper());
+
+    // Then
+    assertThat(thirdRun.fingerprint(FileEntry.of(seen))).isEqualTo(seenFingerprint);
+    assertThat(thirdRun.fingerprint(FileEntry.of(referenced))).isEqualTo(referencedFingerprint);
+    assertThat(thirdRun.fingerprint(FileEntry.of(neither))).isNotEqualTo(neitherFingerprint);
+  }
+
+  private String fingerprint(Path file) {
+    return fileFingerprinter.fingerprint(FileEntry.of(file));
+  }
+}
@@ -0,0 +1,197 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.Stopwatch;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * HttpHelperTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class HttpHelperTest {
+
+  private MockWebServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  void get() {
+    // Given
+    server.enqueue(ok());
+
+    // When
+    Body body = httpHelper(100, 0).get(url(), Body.class);
+
+    // Then
+    assertThat(body).isEqualTo(new Body("name"));
+  }
+
+  @Test
+  void getAsync() {
+    // Given
+    server.enqueue(ok());
+
+    // When
+    CompletableFuture<Body> future = httpHelper(100, 0).getAsync(url(), Body.class);
+
+    // Then
+    assertThat(future.join()).isEqualTo(new Body("name"));
+  }
+
+  @Test
+  void retriesTooManyRequestsHonouringRetryAfter() {
+    // Given
+    server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+    server.enqueue(ok());
+
+    // When
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    Body body = httpHelper(100, 3, Duration.ofSeconds(5)).get(url(), Body.class);
+
+    // Then
+    assertThat(body).isEqualTo(new Body("name"));
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(stopwatch.elapsed()).isAtLeast(Duration.ofSeconds(1));
+  }
+
+  @Test
+  void retryAfterIsCappedAtMaxBackoff() {
+    // Given
+    server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "3600"));
+    server.enqueue(ok());
+
+    // When
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    Body body = httpHelper(100, 3).get(url(), Body.class);
+
+    // Then
+    assertThat(body).isEqualTo(new Body("name"));
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(stopwatch.elapsed()).isLessThan(Duration.ofSeconds(10));
+  }
+
+  @Test
+  void retriesServerErrors() {
+    // Given
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(ok());
+
+    // When
+    Body body = httpHelper(100, 3).get(url(), Body.class);
+
+    // Then
+    assertThat(body).isEqualTo(new Body("name"));
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test
+  void givesUpAfterMaxRetries() {
+    // Given
+    for (int i = 0; i < 4; i++) {
+      server.enqueue(new MockResponse().setResponseCode(500));
+    }
+
+    // When
+    RuntimeException thrown =
+        assertThrows(RuntimeException.class, () -> httpHelper(100, 2).get(url(), Body.class));
+
+    // Then
+    assertThat(thrown).hasMessageThat().contains("Received unsuccessful response");
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test
+  void doesNotRetryClientErrors() {
+    // Given
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    // When
+    assertThrows(RuntimeException.class, () -> httpHelper(100, 3).get(url(), Body.class));
+
+    // Then
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test
+  void rateLimitsRequests() {
+    // Given
+    int requests = 6;
+    for (int i = 0; i < requests; i++) {
+      server.enqueue(ok());
+    }
+    HttpHelper httpHelper = httpHelper(10, 0);
+
+    // When
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<CompletableFuture<Body>> futures = new ArrayList<>();
+    for (int i = 0; i < requests; i++) {
+      futures.add(httpHelper.getAsync(url(), Body.class));
+    }
+    futures.forEach(CompletableFuture::join);
+
+    // Then
+    // first permit is immediate, then 1 every 100ms
+    assertThat(stopwatch.elapsed()).isAtLeast(Duration.ofMillis(400));
+  }
+
+  @Test
+  void parseRetryAfter() {
+    assertThat(RateLimitInterceptor.parseRetryAfter("120")).hasValue(Duration.ofSeconds(120));
+    assertThat(RateLimitInterceptor.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"))
+        .hasValue(Duration.ZERO);
+    assertThat(RateLimitInterceptor.parseRetryAfter("soon")).isEmpty();
+    assertThat(RateLimitInterceptor.parseRetryAfter(null)).isEmpty();
+  }
+
+  private HttpHelper httpHelper(double maxRequestsPerSecond, int maxRetries) {
+    return httpHelper(maxRequestsPerSecond, maxRetries, Duration.ofMillis(100));
+  }
+
+  private HttpHelper httpHelper(
+      double maxRequestsPerSecond, int maxRetries, Duration maxBackoff) {
+    return new HttpHelper(
+        new JsonHelper(),
+        new HttpHelper.Settings(
+            64,
+            8,
+            5,
+            Duration.ofMinutes(1),
+            maxRequestsPerSecond,
+            maxRetries,
+            Duration.ofMillis(10),
+            maxBackoff));
+  }
+
+  private MockResponse ok() {
+    return new MockResponse().setBody("{\"name\": \"name\"}");
+  }
+
+  private String url() {
+    return server.url("/test").toString();
+  }
+
+  private record Body(String name) {}
+}
@@ -0,0 +1,146 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * MetricsTest.
+ *
+ * <p>The registry is process wide, so each test uses its own metric names.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class MetricsTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void sameNameAndLabelsIsSameMetric() {
+    // When
+    Metrics.Counter counter = Metrics.counter("test_same_total", "Test", "a", "1");
+
+    // Then
+    assertThat(Metrics.counter("test_same_total", "Test", "a", "1")).isSameInstanceAs(counter);
+    assertThat(Metrics.counter("test_same_total", "Test", "a", "2")).isNotSameInstanceAs(counter);
+    assertThrows(IllegalArgumentException.class, () -> Metrics.timer("test_same_total", "Test"));
+  }
+
+  @Test
+  void counterInPrometheusText() {
+    // Given
+    Metrics.Counter counter = Metrics.counter("test_counter_total", "Test counter", "a", "x\"y");
+
+    // When
+    counter.increment();
+    counter.add(2);
+
+    // Then
+    assertThat(Metrics.prometheusText())
+        .contains(
+            """
+            # HELP media_file_renamer_test_counter_total Test counter
+            # TYPE media_file_renamer_test_counter_total counter
+            media_file_renamer_test_counter_total{a="x\\"y"} 3
+            """);
+  }
+
+  @Test
+  void timerInPrometheusText() {
+    // Given
+    Metrics.Timer timer = Metrics.timer("test_timer_seconds", "Test timer");
+
+    // When
+    timer.record(Duration.ofMillis(2).toNanos());
+    timer.record(Duration.ofMillis(200).toNanos());
+    timer.record(Duration.ofSeconds(20).toNanos());
+
+    // Then
+    assertThat(timer.count()).isEqualTo(3);
+    assertThat(timer.maxNanos()).isEqualTo(Duration.ofSeconds(20).toNanos());
+    assertThat(Metrics.prometheusText())
+        .contains(
+            """
+            media_file_renamer_test_timer_seconds_bucket{le="0.001"} 0
+            media_file_renamer_test_timer_seconds_bucket{le="0.005"} 1
+            """);
+    assertThat(Metrics.prometheusText())
+        .contains(
+            """
+            media_file_renamer_test_timer_seconds_bucket{le="0.25"} 2
+            """);
+    assertThat(Metrics.prometheusText())
+        .contains(
+            """
+            media_file_renamer_test_timer_seconds_bucket{le="10"} 2
+            media_file_renamer_test_timer_seconds_bucket{le="+Inf"} 3
+            media_file_renamer_test_timer_seconds_sum 20.202
+            media_file_renamer_test_timer_seconds_count 3
+            """);
+  }
+
+  @Test
+  void timerRecordsFailedCalls() {
+    // Given
+    Metrics.Timer timer = Metrics.timer("test_failed_seconds", "Test timer");
+
+    // When
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            timer.time(
+                () -> {
+                  throw new IllegalStateException();
+                }));
+
+    // Then
+    assertThat(timer.count()).isEqualTo(1);
+  }
+
+  @Test
+  void exportsJsonOrPrometheusTextByExtension() throws IOException {
+    // Given
+    Metrics.counter("test_export_total", "Test counter").increment();
+    Path jsonFile = tempDir.resolve("metrics.json");
+    Path textFile = tempDir.resolve("metrics.prom");
+
+    // When
+    Metrics.export(jsonFile, new JsonHelper());
+    Metrics.export(textFile, new JsonHelper());
+
+    // Then
+    assertThat(Files.readString(jsonFile)).contains("\"name\" : \"test_export_total\"");
+    assertThat(Files.readString(textFile)).contains("media_file_renamer_test_export_total 1");
+  }
+
+  @Test
+  void endpointServesMetrics() throws IOException, InterruptedException {
+    // Given
+    Metrics.counter("test_endpoint_total", "Test counter").increment();
+
+    try (MetricsEndpoint endpoint = new MetricsEndpoint(0, new JsonHelper())) {
+      // When
+      HttpResponse<String> response =
+          HttpClient.newHttpClient()
+              .send(
+                  HttpRequest.newBuilder(
+                          URI.create("http://127.0.0.1:%s/metrics".formatted(endpoint.port())))
+                      .build(),
+                  HttpResponse.BodyHandlers.ofString());
+
+      // Then
+      assertThat(response.statusCode()).isEqualTo(200);
+      assertThat(response.body()).contains("media_file_renamer_test_endpoint_total 1");
+    }
+  }
+}
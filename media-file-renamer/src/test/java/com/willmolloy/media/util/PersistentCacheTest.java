@@ -0,0 +1,152 @@
+package com.willmolloy.media.util;
+
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * PersistentCacheTest.
+ *
+ * @author <a href=https://willmolloy.com>Will Molloy</a>
+ */
+class PersistentCacheTest {
+
+  private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+  @TempDir Path tempDir;
+
+  private final JsonHelper jsonHelper = new JsonHelper();
+  private Path file;
+
+  @BeforeEach
+  void setUp() {
+    file = tempDir.resolve("test.cache");
+  }
+
+  @Test
+  void getAfterPut() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("key", new Value("a", Map.of(1, "one")), Duration.ofDays(1));
+
+      assertThat(cache.get("key", Value.class)).hasValue(new Value("a", Map.of(1, "one")));
+      assertThat(cache.get("other", Value.class)).isEmpty();
+    }
+  }
+
+  @Test
+  void survivesReopen() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("key1", new Value("a", Map.of(1, "one")), Duration.ofDays(1));
+      cache.put("key2", new Value("b", Map.of(2, "two")), Duration.ofDays(1));
+    }
+
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key1", Value.class)).hasValue(new Value("a", Map.of(1, "one")));
+      assertThat(cache.get("key2", Value.class)).hasValue(new Value("b", Map.of(2, "two")));
+    }
+  }
+
+  @Test
+  void laterPutSupersedesEarlier() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("key", new Value("a", Map.of()), Duration.ofDays(1));
+      cache.put("key", new Value("b", Map.of()), Duration.ofDays(1));
+
+      assertThat(cache.get("key", Value.class)).hasValue(new Value("b", Map.of()));
+    }
+
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key", Value.class)).hasValue(new Value("b", Map.of()));
+    }
+  }
+
+  @Test
+  void expiredEntriesAreIgnored() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("short", new Value("a", Map.of()), Duration.ofHours(1));
+      cache.put("long", new Value("b", Map.of()), Duration.ofDays(1));
+    }
+
+    try (PersistentCache cache = cacheAt(NOW.plus(Duration.ofHours(2)))) {
+      assertThat(cache.get("short", Value.class)).isEmpty();
+      assertThat(cache.get("long", Value.class)).hasValue(new Value("b", Map.of()));
+    }
+  }
+
+  @Test
+  void incompleteTrailingEntryIsDropped() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("key", new Value("a", Map.of()), Duration.ofDays(1));
+    }
+    Files.writeString(file, "99999999999999\tpartial\t100\n{\"na", StandardOpenOption.APPEND);
+
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key", Value.class)).hasValue(new Value("a", Map.of()));
+      assertThat(cache.get("partial", Value.class)).isEmpty();
+
+      cache.put("key2", new Value("b", Map.of()), Duration.ofDays(1));
+    }
+
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key2", Value.class)).hasValue(new Value("b", Map.of()));
+    }
+    com.google.common.truth.Truth.assertThat(Files.readString(file, StandardCharsets.UTF_8))
+        .doesNotContain("partial");
+  }
+
+  @Test
+  void cannotBeOpenedWhileLockedByAnotherProcess() throws IOException {
+    // Given
+    // a lock taken directly stands in for another process, file locks are held per process
+    try (FileChannel lockChannel =
+            FileChannel.open(
+                tempDir.resolve("test.cache.lock"),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.lock()) {
+
+      // When/Then
+      IllegalStateException e = assertThrows(IllegalStateException.class, () -> cacheAt(NOW));
+      com.google.common.truth.Truth.assertThat(e).hasMessageThat().contains("in use");
+    }
+
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key", Value.class)).isEmpty();
+    }
+  }
+
+  @Test
+  void canBeOpenedAgainInTheSameProcess() throws IOException {
+    try (PersistentCache cache = cacheAt(NOW)) {
+      cache.put("key", new Value("a", Map.of()), Duration.ofDays(1));
+    }
+
+    // e.g. successive runs in one JVM, which don't close the cache
+    PersistentCache unclosed = cacheAt(NOW);
+    try (PersistentCache cache = cacheAt(NOW)) {
+      assertThat(cache.get("key", Value.class)).hasValue(new Value("a", Map.of()));
+    }
+    unclosed.close();
+  }
+
+  private PersistentCache cacheAt(Instant now) {
+    return new PersistentCache(file, jsonHelper, Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  private record Value(String name, Map<Integer, String> map) {}
+}